@@ -0,0 +1,126 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.bench;
+
+import org.magnopere.lexicon.sql.WeightedCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The lookup caches on their own: hits, misses, and puts into a cache too small to hold the keys, so that
+ * each put evicts. The concurrent hits show contention on the stripes.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CacheBenchmark {
+
+    static final int STRIPES = 16;
+
+    private static final WeightedCache.Weigher<String> WEIGHER = new WeightedCache.Weigher<String>() {
+        @Override
+        public int weigh(String value) {
+            return 40 + 2 * value.length();
+        }
+    };
+
+    private WeightedCache<String, String> full;
+    private WeightedCache<String, String> small;
+    private String[] keys;
+    private String[] absent;
+
+
+    /**
+     * Where each thread is in the keys
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int advance(){
+            return next++ & (Fixture.SAMPLE_SIZE - 1);
+        }
+    }
+
+    @Setup
+    public void setUp(){
+        keys = new String[Fixture.SAMPLE_SIZE];
+        absent = new String[Fixture.SAMPLE_SIZE];
+        long weight = 0;
+        for (int i = 0; i < keys.length; i++){
+            keys[i] = "form" + i;
+            absent[i] = "absent" + i;
+            weight += WEIGHER.weigh(keys[i]);
+        }
+        full = new WeightedCache<String, String>(weight * 2, STRIPES, WEIGHER);
+        small = new WeightedCache<String, String>(weight / 8, STRIPES, WEIGHER);
+        for (String key: keys){
+            full.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public String getHit(Cursor cursor){
+        return full.get(keys[cursor.advance()]);
+    }
+
+    @Benchmark
+    public String getMiss(Cursor cursor){
+        return full.get(absent[cursor.advance()]);
+    }
+
+    @Benchmark
+    public void putEvicting(Cursor cursor){
+        final String key = keys[cursor.advance()];
+        small.put(key, key);
+    }
+
+    @Benchmark
+    @Threads(LookupBenchmark.THREADS)
+    public String getHitConcurrent(Cursor cursor){
+        return full.get(keys[cursor.advance()]);
+    }
+}
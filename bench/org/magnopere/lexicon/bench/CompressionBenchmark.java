@@ -0,0 +1,120 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.bench;
+
+import org.magnopere.lexicon.sql.Compression;
+import org.magnopere.lexicon.sql.DefinitionCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Definition compression, over definitions sampled from the benchmark database. Compression.deflateToString
+ * is the decoder of the gzip format; the codec is measured with the database's own preset dictionary and
+ * with none.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CompressionBenchmark {
+
+    @Param({"dictionary", "gzip"})
+    public String codecName;
+
+    private final byte[] buffer = new byte[8192];
+    private String[] definitions;
+    private byte[][] gzipped;
+    private byte[][] encoded;
+    private DefinitionCodec codec;
+    private int next;
+
+
+    @Setup
+    public void setUp(){
+        definitions = Fixture.sampleDefinitions();
+        final byte[] dictionary = Fixture.readDictionary();
+        if ("dictionary".equals(codecName) && dictionary == null){
+            throw new IllegalStateException("The benchmark database has no definition dictionary");
+        }
+        codec = "gzip".equals(codecName) ? DefinitionCodec.GZIP : new DefinitionCodec(dictionary);
+        gzipped = new byte[definitions.length][];
+        encoded = new byte[definitions.length][];
+        for (int i = 0; i < definitions.length; i++){
+            gzipped[i] = DefinitionCodec.GZIP.encode(definitions[i]);
+            encoded[i] = codec.encode(definitions[i]);
+        }
+    }
+
+    @Benchmark
+    public String deflateToString(){
+        return Compression.deflateToString(gzipped[advance()]);
+    }
+
+    @Benchmark
+    public int toCompressedInputStream() throws IOException {
+        final InputStream in = Compression.toCompressedInputStream(definitions[advance()]);
+        int total = 0;
+        for (int read = in.read(buffer); read != -1; read = in.read(buffer)){
+            total += read;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public byte[] encode(){
+        return codec.encode(definitions[advance()]);
+    }
+
+    @Benchmark
+    public String decode(){
+        return codec.decode(encoded[advance()]);
+    }
+
+    private int advance(){
+        return next++ & (Fixture.SAMPLE_SIZE - 1);
+    }
+}
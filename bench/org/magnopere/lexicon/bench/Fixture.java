@@ -0,0 +1,257 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.bench;
+
+import org.magnopere.lexicon.latin.LexiconEntry;
+import org.magnopere.lexicon.latin.MorphologyAnalysis;
+import org.magnopere.lexicon.sql.BinaryRepository;
+import org.magnopere.lexicon.sql.DefinitionCodec;
+import org.magnopere.lexicon.sql.PersistenceStrategy;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data shared by the benchmarks. Lookups run against an existing database, named by the system property
+ * <code>verba.bench.db</code> (the directory holding verba.db, by default <code>generated</code>), and
+ * <code>verba.bench.index</code> (a verba.idx, by default the one in that directory). Samples are drawn
+ * from the database at even intervals, so each run sees the same words.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+final class Fixture {
+
+    static final String DB_PROPERTY     = "verba.bench.db";
+    static final String DB_FILE_NAME    = "verba.db";
+    static final String INDEX_PROPERTY  = "verba.bench.index";
+    /** Words in each sample; a power of two, so that a cursor may wrap with a mask */
+    static final int    SAMPLE_SIZE     = 1024;
+
+    private static final String[] ENGLISH = {"sword", "weapon", "forbid", "to forbid by an unfavorable omen",
+            "arms", "war", "voice", "call", "ship", "law"};
+
+
+    /**
+     * Do not instantiate
+     */
+    private Fixture() { }
+
+    static String getDbDir(){
+        final String dir = System.getProperty(DB_PROPERTY, "generated");
+        if (!new File(dir, DB_FILE_NAME).isFile()){
+            throw new IllegalStateException(String.format("No %s in %s; build one with 'ant generate-db' or set -D%s",
+                    DB_FILE_NAME, new File(dir).getAbsolutePath(), DB_PROPERTY));
+        }
+        return dir;
+    }
+
+    static File getIndexFile(){
+        final String defaultIndex = new File(System.getProperty(DB_PROPERTY, "generated"), BinaryRepository.INDEX_FILE_NAME).getPath();
+        final File index = new File(System.getProperty(INDEX_PROPERTY, defaultIndex));
+        if (!index.isFile()){
+            throw new IllegalStateException(String.format("No index at %s; build one with 'ant generate-index' or set -D%s",
+                    index.getAbsolutePath(), INDEX_PROPERTY));
+        }
+        return index;
+    }
+
+    /**
+     * @return forms found in the database
+     */
+    static String[] sampleForms(){
+        return sample("SELECT form FROM forms ORDER BY form");
+    }
+
+    /**
+     * @return lemmas having lexicon entries
+     */
+    static String[] sampleLemmas(){
+        return sample("SELECT DISTINCT lemma FROM lexicon ORDER BY lemma");
+    }
+
+    /**
+     * @return decoded definitions from the lexicon
+     */
+    static String[] sampleDefinitions(){
+        final byte[] dictionary = readDictionary();
+        final DefinitionCodec codec = dictionary == null ? DefinitionCodec.GZIP : new DefinitionCodec(dictionary);
+        final List<String> definitions = new ArrayList<String>();
+        for (byte[] blob: sampleBlobs("SELECT definition FROM lexicon ORDER BY _id")){
+            definitions.add(codec.decode(blob));
+        }
+        return cycle(definitions);
+    }
+
+    /**
+     * @return English queries for reverse lookup
+     */
+    static String[] sampleEnglish(){
+        return ENGLISH.clone();
+    }
+
+    /**
+     * @return every form in the database, for building indexes
+     */
+    static List<String> allForms(){
+        return query("SELECT form FROM forms");
+    }
+
+    /**
+     * @return every form and lemma in the database, as completion reads them
+     */
+    static List<String> allWords(){
+        return query("SELECT form FROM forms UNION SELECT lemma FROM lemmas");
+    }
+
+    /**
+     * @return the preset dictionary of the database's definitions, or null if they are gzipped
+     */
+    static byte[] readDictionary(){
+        if (query("SELECT name FROM sqlite_master WHERE type = 'table' AND name = 'definition_dictionary'").isEmpty()){
+            return null;
+        }
+        final List<byte[]> rows = sampleBlobs("SELECT dictionary FROM definition_dictionary WHERE _id = 1");
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static String[] sample(String sql){
+        final List<String> rows = query(sql);
+        final List<String> sample = new ArrayList<String>();
+        final int step = Math.max(1, rows.size() / SAMPLE_SIZE);
+        for (int i = 0; i < rows.size() && sample.size() < SAMPLE_SIZE; i += step){
+            sample.add(rows.get(i));
+        }
+        return cycle(sample);
+    }
+
+    /**
+     * Repeats the values, in order, to fill {@link #SAMPLE_SIZE} slots
+     */
+    private static String[] cycle(List<String> values){
+        if (values.isEmpty()) throw new IllegalStateException("The benchmark database is empty");
+        final String[] filled = new String[SAMPLE_SIZE];
+        for (int i = 0; i < filled.length; i++){
+            filled[i] = values.get(i % values.size());
+        }
+        return filled;
+    }
+
+    private static List<String> query(String sql){
+        final List<String> rows = new ArrayList<String>();
+        try {
+            final Connection conn = connect();
+            try {
+                final Statement stat = conn.createStatement();
+                final ResultSet result = stat.executeQuery(sql);
+                while (result.next()){
+                    rows.add(result.getString(1));
+                }
+                result.close();
+                stat.close();
+            } finally {
+                conn.close();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return rows;
+    }
+
+    private static List<byte[]> sampleBlobs(String sql){
+        final List<byte[]> rows = new ArrayList<byte[]>();
+        try {
+            final Connection conn = connect();
+            try {
+                final Statement stat = conn.createStatement();
+                final ResultSet result = stat.executeQuery(sql);
+                while (result.next() && rows.size() < SAMPLE_SIZE){
+                    rows.add(result.getBytes(1));
+                }
+                result.close();
+                stat.close();
+            } finally {
+                conn.close();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return rows;
+    }
+
+    private static Connection connect() throws SQLException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        return DriverManager.getConnection(String.format("jdbc:sqlite:%s", new File(getDbDir(), DB_FILE_NAME).getPath()));
+    }
+
+
+    /**
+     * Accepts records and drops them, so that a parser may be timed without the database
+     */
+    static class NullPersister implements PersistenceStrategy {
+        private long analyses;
+        private long entries;
+
+        @Override
+        public void buildLexiconTable() { }
+
+        @Override
+        public void buildMorphologyTable() { }
+
+        @Override
+        public void buildIndexes() { }
+
+        @Override
+        public void close() { }
+
+        @Override
+        public void writeAnalysis(MorphologyAnalysis analysis) {
+            analyses++;
+        }
+
+        @Override
+        public void writeLexiconEntry(LexiconEntry entry) {
+            entries++;
+        }
+
+        long getRecordCount(){
+            return analyses + entries;
+        }
+    }
+}
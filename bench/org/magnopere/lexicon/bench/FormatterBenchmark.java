@@ -0,0 +1,172 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.bench;
+
+import org.magnopere.lexicon.ConsoleFormatter;
+import org.magnopere.lexicon.JsonFormatter;
+import org.magnopere.lexicon.TsvFormatter;
+import org.magnopere.lexicon.sql.DataRepository;
+import org.magnopere.lexicon.sql.QueryResult;
+import org.magnopere.lexicon.sql.ResultFormatter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting of results looked up beforehand, so that only the formatter is timed. The results are
+ * rendered into a reused StringBuilder, and encoded as UTF-8 the way Verba writes them out; the counters
+ * report the characters and bytes written per second.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FormatterBenchmark {
+
+    @Param({"console", "json", "tsv"})
+    public String format;
+
+    private ResultFormatter formatter;
+    private String[] words;
+    private QueryResult[] results;
+
+
+    /**
+     * Where output goes, and how much of it, for each thread
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Output {
+        public long chars;
+        public long bytes;
+
+        private final StringBuilder builder = new StringBuilder(4096);
+        private Writer writer;
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void reset() throws IOException {
+            chars = 0;
+            bytes = 0;
+            writer = new BufferedWriter(new OutputStreamWriter(new OutputStream() {
+                @Override
+                public void write(int b) {
+                    bytes++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    bytes += len;
+                }
+            }, "UTF-8"));
+        }
+
+        int advance(){
+            return next++ & (Fixture.SAMPLE_SIZE - 1);
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        formatter = "json".equals(format) ? new JsonFormatter() : "tsv".equals(format) ? new TsvFormatter() : new ConsoleFormatter();
+        final DataRepository repo = new DataRepository(Fixture.getDbDir());
+        try {
+            // words with no analysis would time only the formatter's framing
+            final List<String> found = new ArrayList<String>();
+            final List<QueryResult> foundResults = new ArrayList<QueryResult>();
+            for (String word: Fixture.sampleForms()){
+                final QueryResult result = repo.lookup(word);
+                if (!result.getUniqueLemmas().isEmpty()){
+                    found.add(word);
+                    foundResults.add(result);
+                }
+            }
+            if (found.isEmpty()) throw new IllegalStateException("No sampled form has an analysis");
+            words = new String[Fixture.SAMPLE_SIZE];
+            results = new QueryResult[Fixture.SAMPLE_SIZE];
+            for (int i = 0; i < Fixture.SAMPLE_SIZE; i++){
+                words[i] = found.get(i % found.size());
+                results[i] = foundResults.get(i % found.size());
+            }
+        } finally {
+            repo.close();
+        }
+    }
+
+    @Benchmark
+    public int formatResult(Output output) throws IOException {
+        final int i = output.advance();
+        final StringBuilder sb = output.builder;
+        sb.setLength(0);
+        results[i].formatResult(words[i], formatter, sb);
+        output.chars += sb.length();
+        return sb.length();
+    }
+
+    @Benchmark
+    public void formatLemma(Output output) throws IOException {
+        final int i = output.advance();
+        final StringBuilder sb = output.builder;
+        final String lemma = results[i].getUniqueLemmas().iterator().next();
+        sb.setLength(0);
+        formatter.formatLemma(words[i], 0, results[i].getAnalyses(lemma), results[i].getEntries(lemma), sb);
+        output.chars += sb.length();
+    }
+
+    @Benchmark
+    public void writeResult(Output output) throws IOException {
+        final int i = output.advance();
+        results[i].formatResult(words[i], formatter, output.writer);
+        output.writer.flush();
+    }
+}
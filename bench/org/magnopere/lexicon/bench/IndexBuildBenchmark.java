@@ -0,0 +1,104 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.bench;
+
+import org.magnopere.lexicon.sql.DataRepository;
+import org.magnopere.lexicon.sql.FormIndex;
+import org.magnopere.lexicon.sql.FuzzyIndex;
+import org.magnopere.lexicon.sql.PrefixIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to build the in-memory indexes, each of which is built once per session. The prefix and fuzzy indexes
+ * are built from words already read, so the database is not timed; the form index is loaded from the database
+ * as Verba loads it. The size of each index is printed once built.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class IndexBuildBenchmark {
+
+    private DataRepository repo;
+    private List<String> words;
+    private List<String> forms;
+
+
+    @Setup
+    public void setUp(){
+        repo = new DataRepository(Fixture.getDbDir());
+        words = Fixture.allWords();
+        forms = Fixture.allForms();
+        final PrefixIndex prefixes = PrefixIndex.build(words);
+        final FuzzyIndex fuzzy = FuzzyIndex.build(forms);
+        final FormIndex formIndex = repo.preloadFormIndex();
+        System.out.printf("%nPrefix index: %d words in %d KiB; fuzzy index: %d forms in %d KiB; form index: %d forms in %d KiB%n",
+                prefixes.getCount(), prefixes.getHeapBytes() >> 10,
+                fuzzy.getFormCount(), fuzzy.getHeapBytes() >> 10,
+                formIndex.getFormCount(), formIndex.getHeapBytes() >> 10);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        repo.close();
+    }
+
+    @Benchmark
+    public PrefixIndex buildPrefixIndex(){
+        return PrefixIndex.build(words);
+    }
+
+    @Benchmark
+    public FuzzyIndex buildFuzzyIndex(){
+        return FuzzyIndex.build(forms);
+    }
+
+    @Benchmark
+    public FormIndex preloadFormIndex(){
+        return repo.preloadFormIndex();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.bench;
+
+import org.magnopere.lexicon.Lemmatizer;
+import org.magnopere.lexicon.sql.DataRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lemmatization of a text made of sampled forms, with punctuation and a few enclitics, scored in tokens per
+ * second. The output is discarded. Forms repeat, so after the first pass most words are answered by the caches,
+ * as in a long text.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LemmatizerBenchmark {
+
+    static final int TOKENS = 8192;
+
+    private static final Writer DISCARD = new Writer() {
+        @Override
+        public void write(char[] buffer, int off, int len) { }
+
+        @Override
+        public void flush() { }
+
+        @Override
+        public void close() { }
+    };
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private DataRepository repo;
+    private String text;
+
+
+    @Setup
+    public void setUp(){
+        repo = new DataRepository(Fixture.getDbDir());
+        repo.setReadConnections(threads);
+        final String[] forms = Fixture.sampleForms();
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < TOKENS; i++){
+            sb.append(forms[(i * 7) & (Fixture.SAMPLE_SIZE - 1)]);
+            if (i % 11 == 0) sb.append("que");
+            sb.append(i % 13 == 12 ? ". " : i % 5 == 4 ? ", " : " ");
+        }
+        text = sb.toString();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        repo.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOKENS)
+    public long lemmatize() throws IOException {
+        final Lemmatizer lemmatizer = new Lemmatizer(repo, threads, Lemmatizer.DEFAULT_WINDOW);
+        lemmatizer.lemmatize(new StringReader(text), DISCARD);
+        return lemmatizer.getTokens();
+    }
+}
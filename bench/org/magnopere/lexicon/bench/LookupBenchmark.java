@@ -0,0 +1,156 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.bench;
+
+import org.magnopere.lexicon.latin.LexiconEntry;
+import org.magnopere.lexicon.latin.MorphologyAnalysis;
+import org.magnopere.lexicon.sql.BinaryRepository;
+import org.magnopere.lexicon.sql.DataRepository;
+import org.magnopere.lexicon.sql.LookupStrategy;
+import org.magnopere.lexicon.sql.QueryResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups against the benchmark database, cycling through forms and lemmas sampled from it. The source is
+ * the database itself, the database with its morphology preloaded into a FormIndex, or the memory-mapped
+ * verba.idx; run the last with <code>-p source=binary</code> once the index has been generated. With the
+ * caches off every lookup goes to the store.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LookupBenchmark {
+
+    static final int THREADS    = 4;
+    static final int BATCH      = 64;
+
+    @Param({"sqlite", "preloaded"})
+    public String source;
+
+    @Param({"on", "off"})
+    public String cache;
+
+    private LookupStrategy lookup;
+    private String[] forms;
+    private String[] lemmas;
+
+
+    /**
+     * Where each thread is in the samples
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int advance(){
+            return next++ & (Fixture.SAMPLE_SIZE - 1);
+        }
+
+        int advance(int count){
+            final int at = next & (Fixture.SAMPLE_SIZE - 1);
+            next += count;
+            return at;
+        }
+    }
+
+    @Setup
+    public void setUp(){
+        forms = Fixture.sampleForms();
+        lemmas = Fixture.sampleLemmas();
+        if ("binary".equals(source)){
+            lookup = new BinaryRepository(Fixture.getIndexFile());
+            return;
+        }
+        final DataRepository repo = new DataRepository(Fixture.getDbDir());
+        repo.setReadConnections(THREADS);
+        if ("off".equals(cache)){
+            repo.setCacheWeights(0, 0);
+        }
+        if ("preloaded".equals(source)){
+            repo.preloadFormIndex();
+        }
+        lookup = repo;
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        lookup.close();
+    }
+
+    @Benchmark
+    public List<MorphologyAnalysis> findAnalysis(Cursor cursor){
+        return lookup.findAnalysis(forms[cursor.advance()]);
+    }
+
+    @Benchmark
+    public List<LexiconEntry> findLexiconEntry(Cursor cursor){
+        return lookup.findLexiconEntry(lemmas[cursor.advance()]);
+    }
+
+    @Benchmark
+    public QueryResult lookup(Cursor cursor){
+        return lookup.lookup(forms[cursor.advance()]);
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public QueryResult lookupConcurrent(Cursor cursor){
+        return lookup.lookup(forms[cursor.advance()]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<QueryResult> lookupAll(Cursor cursor){
+        final int from = cursor.advance(BATCH) & ~(BATCH - 1);
+        return lookup.lookupAll(Arrays.asList(forms).subList(from, from + BATCH));
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.bench;
+
+import org.magnopere.lexicon.latin.LexiconParser;
+import org.magnopere.lexicon.latin.MappedMorphologyParser;
+import org.magnopere.lexicon.latin.MorphologyParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The per-record cost of the importers' element handlers, over generated documents shaped like lewis.xml and
+ * latin.morph.xml. Records go to a persister which drops them, so neither the database nor the source files
+ * are involved; the scores are per record.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParserBenchmark {
+
+    static final int RECORDS = 2000;
+
+    private static final String[] FEATURES = {
+            "<pos>noun</pos><number>sg</number><gender>masc</gender><case>nom</case>",
+            "<pos>noun</pos><number>pl</number><gender>neut</gender><case>acc</case>",
+            "<pos>verb</pos><person>3rd</person><number>sg</number><tense>pres</tense><mood>ind</mood><voice>act</voice>",
+            "<pos>verb</pos><person>1st</person><number>pl</number><tense>perf</tense><mood>subj</mood><voice>pass</voice>",
+            "<pos>adj</pos><number>sg</number><gender>fem</gender><case>abl</case><degree>comp</degree>",
+    };
+
+    /** The parsers' progress messages, held so that the level set on them sticks */
+    private static final Logger[] PARSER_LOGS = {
+            Logger.getLogger(LexiconParser.class.getName()),
+            Logger.getLogger(MorphologyParser.class.getName()),
+            Logger.getLogger(MappedMorphologyParser.class.getName()),
+    };
+
+    private byte[] lexicon;
+    private byte[] morphology;
+    private File morphologyFile;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        for (Logger log: PARSER_LOGS){
+            log.setLevel(Level.WARNING);
+        }
+        lexicon = generateLexicon().getBytes("UTF-8");
+        morphology = generateMorphology().getBytes("UTF-8");
+        morphologyFile = File.createTempFile("verba-bench", ".morph.xml");
+        final OutputStream out = new FileOutputStream(morphologyFile);
+        try {
+            out.write(morphology);
+        } finally {
+            out.close();
+        }
+        // the parsers log rather than throw, so make sure every record comes through
+        check("lexicon", lexiconParser());
+        check("morphology", morphologyParser());
+        check("mapped morphology", mappedMorphologyParser());
+    }
+
+    @TearDown
+    public void tearDown(){
+        if (morphologyFile != null && !morphologyFile.delete()){
+            morphologyFile.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long lexiconParser(){
+        final Fixture.NullPersister persister = new Fixture.NullPersister();
+        new LexiconParser(persister, new ByteArrayInputStream(lexicon)).parse();
+        return persister.getRecordCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long morphologyParser(){
+        final Fixture.NullPersister persister = new Fixture.NullPersister();
+        new MorphologyParser(persister, new ByteArrayInputStream(morphology)).parse();
+        return persister.getRecordCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long mappedMorphologyParser(){
+        final Fixture.NullPersister persister = new Fixture.NullPersister();
+        new MappedMorphologyParser(persister, morphologyFile).parse();
+        return persister.getRecordCount();
+    }
+
+    private static void check(String name, long records){
+        if (records != RECORDS){
+            throw new IllegalStateException(String.format("The %s parser read %d of %d records", name, records, RECORDS));
+        }
+    }
+
+    static String generateLexicon(){
+        final StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<TEI.2><text><body><div0>\n");
+        for (int i = 0; i < RECORDS; i++){
+            final String word = word(i);
+            final int ordinality = i % 3 + 1;
+            sb.append(String.format("<entry id=\"n%d\" type=\"main\" key=\"%so%d\">", i, word, ordinality))
+              .append(String.format("<form><orth extent=\"full\" lang=\"la\">ab-%s\u014d</orth></form>", word))
+              .append("<gramGrp><itype> d\u012bx\u012b, \u2014, ere, </itype><pos>verb</pos></gramGrp>")
+              .append(String.format("<sense id=\"n%d.0\" level=\"0\" n=\"0\"><etym lang=\"la\">P. of %sus</etym>, ", i, word))
+              .append("<trans><tr>to forbid by an unfavorable omen, reject</tr></trans> (opp. <foreign lang=\"la\">addico</foreign>), C.</sense>")
+              .append(String.format("<sense id=\"n%d.1\" level=\"1\" n=\"1\"><usg>Fig.</usg>, <trans><tr>to renounce, abdicate</tr></trans>: ", i))
+              .append("<emph>magistratum</emph>, S.: <emph>se consulatu</emph>, C.</sense></entry>\n");
+        }
+        return sb.append("</div0></body></text></TEI.2>\n").toString();
+    }
+
+    static String generateMorphology(){
+        final StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<analyses>\n");
+        for (int i = 0; i < RECORDS; i++){
+            sb.append(String.format("<analysis><form>%sis</form><lemma>%so#%d</lemma>%s<dialect></dialect></analysis>%n",
+                    word(i / 4), word(i / 4), i % 2 + 1, FEATURES[i % FEATURES.length]));
+        }
+        return sb.append("</analyses>\n").toString();
+    }
+
+    /**
+     * @return a distinct run of letters for each number
+     */
+    private static String word(int n){
+        final StringBuilder sb = new StringBuilder("ab");
+        do {
+            sb.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return sb.toString();
+    }
+}
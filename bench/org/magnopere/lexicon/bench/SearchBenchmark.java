@@ -0,0 +1,137 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.bench;
+
+import org.magnopere.lexicon.sql.DataRepository;
+import org.magnopere.lexicon.sql.FuzzyIndex;
+import org.magnopere.lexicon.sql.PrefixIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The console's searches other than lookup: completion of a prefix, suggestions for a misspelled form at
+ * one and two edits, and reverse lookup of English. Limits are those the console asks for.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SearchBenchmark {
+
+    static final int COMPLETIONS    = 50;
+    static final int SUGGESTIONS    = 8;
+    static final int ENGLISH        = 10;
+
+    private DataRepository repo;
+    private PrefixIndex prefixes;
+    private FuzzyIndex fuzzy;
+    private String[] forms;
+    private String[] oneEdit;
+    private String[] twoEdits;
+    private String[] english;
+    private int next;
+
+
+    @Setup
+    public void setUp(){
+        repo = new DataRepository(Fixture.getDbDir());
+        prefixes = repo.loadPrefixIndex();
+        fuzzy = repo.loadFuzzyIndex();
+        forms = Fixture.sampleForms();
+        oneEdit = new String[forms.length];
+        twoEdits = new String[forms.length];
+        for (int i = 0; i < forms.length; i++){
+            oneEdit[i] = misspell(forms[i], i);
+            twoEdits[i] = misspell(oneEdit[i], i + 2);
+        }
+        english = Fixture.sampleEnglish();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        repo.close();
+    }
+
+    @Benchmark
+    public List<String> completeOneLetter(){
+        return prefixes.complete(forms[advance()].substring(0, 1), COMPLETIONS);
+    }
+
+    @Benchmark
+    public List<String> completeThreeLetters(){
+        final String form = forms[advance()];
+        return prefixes.complete(form.substring(0, Math.min(3, form.length())), COMPLETIONS);
+    }
+
+    @Benchmark
+    public List<String> suggestOneEdit(){
+        return fuzzy.suggest(oneEdit[advance()], 1, SUGGESTIONS);
+    }
+
+    @Benchmark
+    public List<String> suggestTwoEdits(){
+        return fuzzy.suggest(twoEdits[advance()], 2, SUGGESTIONS);
+    }
+
+    @Benchmark
+    public List<String> reverseLookup(){
+        return repo.reverseLookup(english[advance() % english.length], ENGLISH);
+    }
+
+    private int advance(){
+        return next++ & (Fixture.SAMPLE_SIZE - 1);
+    }
+
+    /**
+     * @return the word with one letter changed
+     */
+    private static String misspell(String word, int seed){
+        final char[] letters = word.toCharArray();
+        final int at = seed % letters.length;
+        letters[at] = letters[at] == 'z' ? 'a' : (char) (letters[at] + 1);
+        return new String(letters);
+    }
+}
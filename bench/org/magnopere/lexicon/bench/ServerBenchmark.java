@@ -0,0 +1,138 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.bench;
+
+import org.magnopere.lexicon.LookupServer;
+import org.magnopere.lexicon.sql.DataRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips to the HTTP lookup server on the loopback interface, each a GET of one word answered in JSON.
+ * Connections are kept alive between requests, as a client library would keep them.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ServerBenchmark {
+
+    private DataRepository repo;
+    private LookupServer server;
+    private URL[] urls;
+
+
+    /**
+     * Where each thread is in the words, and a buffer for the responses
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        private final byte[] buffer = new byte[8192];
+        private int next;
+
+        int advance(){
+            return next++ & (Fixture.SAMPLE_SIZE - 1);
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        repo = new DataRepository(Fixture.getDbDir());
+        repo.setReadConnections(LookupBenchmark.THREADS);
+        server = new LookupServer(repo, 0);
+        server.start();
+        final String base = String.format("http://%s:%d%s?q=", InetAddress.getLoopbackAddress().getHostAddress(),
+                server.getPort(), LookupServer.LOOKUP_PATH);
+        final String[] forms = Fixture.sampleForms();
+        urls = new URL[forms.length];
+        for (int i = 0; i < forms.length; i++){
+            urls[i] = new URL(base + URLEncoder.encode(forms[i], "UTF-8"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        server.stop(0);
+        repo.close();
+    }
+
+    @Benchmark
+    public int roundTrip(Client client) throws IOException {
+        return get(urls[client.advance()], client.buffer);
+    }
+
+    @Benchmark
+    @Threads(LookupBenchmark.THREADS)
+    public int roundTripConcurrent(Client client) throws IOException {
+        return get(urls[client.advance()], client.buffer);
+    }
+
+    /**
+     * @return the length of the response body, read to the end so that the connection may be reused
+     */
+    private static int get(URL url, byte[] buffer) throws IOException {
+        final HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        if (conn.getResponseCode() != HttpURLConnection.HTTP_OK){
+            throw new IOException("Lookup failed with status " + conn.getResponseCode() + ": " + url);
+        }
+        final InputStream in = conn.getInputStream();
+        int total = 0;
+        try {
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)){
+                total += read;
+            }
+        } finally {
+            in.close();
+        }
+        return total;
+    }
+}
@@ -29,6 +29,7 @@
 
 package org.magnopere.lexicon;
 
+import java.io.IOException;
 import java.util.List;
 
 import org.magnopere.lexicon.latin.LexiconEntry;
@@ -42,70 +43,78 @@ import org.magnopere.lexicon.sql.ResultFormatter;
 public class ConsoleFormatter implements ResultFormatter {
 
 	private static final String ENDL = System.getProperty("line.separator");
-	
+    private static final Template HEADING   = Template.compile("{0} ({1}):" + ENDL);
+    private static final Template ENTRY     = Template.compile("{0}. {1}, {2}; {3} {4}" + ENDL + "\t");
+    private static final String EMPHASIS    = "<em>";
+    private static final String END_EMPHASIS = "</em>";
+
     @Override
-    public String format(List<MorphologyAnalysis> analyses, List<LexiconEntry> entries) {
-        final StringBuilder sb = new StringBuilder();
-        sb.append(formatAnalyses(analyses));
-        sb.append(formatEntries(entries));
-        sb.append(ENDL);
-        return sb.toString();
+    public void beginResult(String word, Appendable out) throws IOException {
+        out.append(ENDL);
     }
 
-    private String formatAnalyses(List<MorphologyAnalysis> analyses){
-        final StringBuilder sb = new StringBuilder();
-        if (analyses.size() > 0){
-            final String form = analyses.get(0).getForm();
-            final String lemma = analyses.get(0).getLemma();
-            sb.append(String.format("%s (%s):%n", form, lemma));
-            for (MorphologyAnalysis analysis: analyses){
+    @Override
+    public void formatLemma(String word, int index, List<MorphologyAnalysis> analyses, List<LexiconEntry> entries,
+                            Appendable out) throws IOException {
+        formatAnalyses(analyses, out);
+        formatEntries(entries, out);
+        out.append(ENDL);
+    }
 
-                final String pos        = analysis.getPos();
-                final String  person    = analysis.getPerson();
-                final String gramCase   = analysis.getGrammaticalCase();
-                final String gender     = analysis.getGender();
-                final String degree     = analysis.getDegree();
-                final String number     = analysis.getNumber();
-                final String tense      = analysis.getTense();
-                final String mood       = analysis.getMood();
-                final String voice      = analysis.getVoice();
+    @Override
+    public void endResult(String word, Appendable out) throws IOException {
+        out.append(ENDL);
+    }
 
-                sb.append(String.format(
-                        "\t- %s%s%s%s%s%s%s%s%s%n",
-                        pos.isEmpty() ? pos : pos + " ",
-                        person.isEmpty() ? person : person + " person ",
-                        gramCase.isEmpty() ? gramCase : gramCase + " ",
-                        gender.isEmpty() ? gender : gender + " ",
-                        degree.isEmpty() ? degree : degree + " ",
-                        number.isEmpty() ? number : number + " ",
-                        tense.isEmpty() ? tense : tense + " ",
-                        mood.isEmpty() ? mood : mood + " ",
-                        voice.isEmpty() ? voice : voice + " "));
+    private void formatAnalyses(List<MorphologyAnalysis> analyses, Appendable out) throws IOException {
+        if (analyses.size() > 0){
+            HEADING.render(out, analyses.get(0).getForm(), analyses.get(0).getLemma());
+            for (MorphologyAnalysis analysis: analyses){
+                out.append("\t- ");
+                feature(analysis.getPos(), "", out);
+                feature(analysis.getPerson(), " person", out);
+                feature(analysis.getGrammaticalCase(), "", out);
+                feature(analysis.getGender(), "", out);
+                feature(analysis.getDegree(), "", out);
+                feature(analysis.getNumber(), "", out);
+                feature(analysis.getTense(), "", out);
+                feature(analysis.getMood(), "", out);
+                feature(analysis.getVoice(), "", out);
+                out.append(ENDL);
             }
         }
-        return sb.toString();
     }
 
-    private String formatEntries(List<LexiconEntry> entries){
-        final StringBuilder sb = new StringBuilder();
-        if (entries.size() > 0){
-            for (int i = 0; i < entries.size(); i++){
-                final LexiconEntry entry = entries.get(i);
-                sb.append(String.format("%d. %s, %s; %s %s%n\t%s%n",
-                        i + 1,
-                        entry.getKey(),
-                        entry.getiType(),
-                        entry.getPos(),
-                        entry.getGender(),
-                        formatDefinition(entry.getDefinition())));
-            }
+    private static void feature(String value, String suffix, Appendable out) throws IOException {
+        if (!value.isEmpty()){
+            out.append(value).append(suffix).append(' ');
+        }
+    }
+
+    private void formatEntries(List<LexiconEntry> entries, Appendable out) throws IOException {
+        for (int i = 0; i < entries.size(); i++){
+            final LexiconEntry entry = entries.get(i);
+            ENTRY.render(out, Integer.toString(i + 1), entry.getKey(), entry.getiType(), entry.getPos(), entry.getGender());
+            formatDefinition(entry.getDefinition(), out);
+            out.append(ENDL);
         }
-        return sb.toString();
     }
-    
-    private String formatDefinition(String def){
+
+    /**
+     * Writes the definition without its emphasis tags
+     */
+    static void formatDefinition(String def, Appendable out) throws IOException {
         // TODO: use ANSI escapes to set a color or style in the terminal?
-        return def.replaceAll("<em>", "").replaceAll("</em>", "");
+        int start = 0;
+        for (int tag = def.indexOf('<'); tag >= 0; tag = def.indexOf('<', tag + 1)){
+            final String skipped = def.startsWith(EMPHASIS, tag) ? EMPHASIS : def.startsWith(END_EMPHASIS, tag) ? END_EMPHASIS : null;
+            if (skipped != null){
+                out.append(def, start, tag);
+                start = tag + skipped.length();
+                tag = start - 1;
+            }
+        }
+        out.append(def, start, def.length());
     }
 
 }
@@ -30,7 +30,13 @@
 package org.magnopere.lexicon;
 
 import org.apache.commons.cli.*;
+import org.magnopere.lexicon.sql.DataRepository;
+import org.magnopere.lexicon.sql.ResultFormatter;
+import org.magnopere.lexicon.sql.SQLWriter;
+
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author Roger Grantham
@@ -43,6 +49,20 @@ public class GetOpts {
 
     private String dbDir;
     private String sqlDir;
+    private String batchSize;
+    private boolean bulkLoad;
+    private boolean concurrent;
+    private String morphFile;
+    private boolean incremental;
+    private String sqlFormat;
+    private String indexDir;
+    private String indexFile;
+    private boolean preload;
+    private String servePort;
+    private String readConnections;
+    private boolean lemmatize;
+    private String output;
+    private String[] files = new String[0];
 
     public GetOpts() {
         options.addOption("d", "buildDatabase", true, "Builds the SQLite database file from XML sources. The "
@@ -51,6 +71,148 @@ public class GetOpts {
         options.addOption("s", "buildSQL", true, "Builds the SQL scripts which can be used to import lexicographic "
                                                     + "and morphology data into a databse. The argument to this option "
                                                     + "is the directory to which these files are to be written");
+        options.addOption("b", "batchSize", true, "The number of rows written per transaction when building the "
+                                                    + "database with -d. Defaults to "
+                                                    + DataRepository.DEFAULT_BATCH_SIZE + ".");
+        options.addOption("B", "bulkLoad", false, "Used with -d or -s: creates the tables without indexes, loads "
+                                                    + "them with journaling and syncing turned off, then builds the "
+                                                    + "indexes and runs ANALYZE.");
+        options.addOption("c", "concurrent", false, "Used with -d or -s: parses the lexicon and morphology sources "
+                                                    + "on separate threads, feeding a single writer thread.");
+        options.addOption("m", "morphFile", true, "Used with -d or -s: reads latin.morph.xml from the given file, "
+                                                    + "memory-mapping it and scanning it on all processors, instead "
+                                                    + "of parsing the copy on the classpath.");
+        options.addOption("i", "incremental", false, "Used with -d: updates an existing database in place, writing "
+                                                    + "only the entries which changed in the sources and skipping "
+                                                    + "unchanged sources. The first update after a full build "
+                                                    + "rebuilds each table once to record content hashes.");
+        options.addOption("x", "buildIndex", true, "Builds the read-only binary lookup file, verba.idx, from XML "
+                                                    + "sources. The argument to this option is the directory to "
+                                                    + "which the file is written.");
+        options.addOption("I", "index", true, "Looks words up in the given verba.idx, memory-mapping it, instead "
+                                                    + "of in verba.db.");
+        options.addOption("p", "preload", false, "Loads the whole morphology table of verba.db into memory at "
+                                                    + "startup and looks forms up there rather than in SQLite.");
+        options.addOption("S", "serve", true, "Serves lookups as JSON over HTTP on the given port of the loopback "
+                                                    + "interface, at /lookup?q=words, instead of starting the console.");
+        options.addOption("L", "lemmatize", false, "Lemmatizes the Latin text of the files named after the options, "
+                                                    + "or of standard input if none are, writing a tab-separated "
+                                                    + "line per analysis of each word to standard output.");
+        options.addOption("o", "output", true, "How the console writes results: 'console' (the default), 'json', "
+                                                    + "an object per line, or 'tsv', a line per analysis and entry.");
+        options.addOption("r", "readConnections", true, "Used with -S or -L: the number of connections to verba.db "
+                                                    + "on which lookups run at once. Defaults to the number of "
+                                                    + "processors.");
+        options.addOption("f", "sqlFormat", true, "Used with -s: 'insert' (the default) writes rows as multi-row "
+                                                    + "INSERT statements; 'csv' writes them to CSV files which the "
+                                                    + "scripts load with .import, and needs sqlite3 3.41 or later.");
+    }
+
+    public File getIndexDir() {
+        return checkDirectory(indexDir);
+    }
+
+    public File getIndexFile() {
+        final File file = indexFile == null ? null : new File(indexFile);
+        if (file != null && !file.canRead()){
+            throw new RuntimeException(String.format("%s is not a readable file.", file.getAbsolutePath()));
+        }
+        return file;
+    }
+
+    public SQLWriter.Format getSqlFormat() {
+        if (sqlFormat == null) return SQLWriter.Format.INSERT;
+        try {
+            return SQLWriter.Format.valueOf(sqlFormat.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException(String.format("%s is not a SQL format; use insert or csv.", sqlFormat));
+        }
+    }
+
+    /**
+     * @return the port to serve lookups on, or null if not serving
+     */
+    public Integer getServePort() {
+        if (servePort == null) return null;
+        try {
+            final int port = Integer.parseInt(servePort.trim());
+            if (port < 0 || port > 0xffff) throw new NumberFormatException();
+            return port;
+        } catch (NumberFormatException e) {
+            throw new RuntimeException(String.format("%s is not a port.", servePort));
+        }
+    }
+
+    public int getReadConnections() {
+        if (readConnections == null) return Runtime.getRuntime().availableProcessors();
+        try {
+            final int count = Integer.parseInt(readConnections.trim());
+            if (count < 1) throw new NumberFormatException();
+            return count;
+        } catch (NumberFormatException e) {
+            throw new RuntimeException(String.format("%s is not a positive number of connections.", readConnections));
+        }
+    }
+
+    public ResultFormatter getFormatter() {
+        if (output == null || "console".equalsIgnoreCase(output.trim())) return new ConsoleFormatter();
+        if ("json".equalsIgnoreCase(output.trim())) return new JsonFormatter();
+        if ("tsv".equalsIgnoreCase(output.trim())) return new TsvFormatter();
+        throw new RuntimeException(String.format("%s is not an output format; use console, json or tsv.", output));
+    }
+
+    public boolean isLemmatize() {
+        return lemmatize;
+    }
+
+    /**
+     * @return the files to lemmatize, empty for standard input
+     */
+    public List<File> getFiles() {
+        final List<File> found = new ArrayList<File>();
+        for (String name: files){
+            final File file = new File(name);
+            if (!file.canRead()){
+                throw new RuntimeException(String.format("%s is not a readable file.", file.getAbsolutePath()));
+            }
+            found.add(file);
+        }
+        return found;
+    }
+
+    public boolean isPreload() {
+        return preload;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public File getMorphFile() {
+        final File file = morphFile == null ? null : new File(morphFile);
+        if (file != null && !file.canRead()){
+            throw new RuntimeException(String.format("%s is not a readable file.", file.getAbsolutePath()));
+        }
+        return file;
+    }
+
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    public boolean isBulkLoad() {
+        return bulkLoad;
+    }
+
+    public int getBatchSize() {
+        if (batchSize == null) return DataRepository.DEFAULT_BATCH_SIZE;
+        try {
+            final int size = Integer.parseInt(batchSize.trim());
+            if (size < 1) throw new NumberFormatException();
+            return size;
+        } catch (NumberFormatException e) {
+            throw new RuntimeException(String.format("%s is not a positive batch size.", batchSize));
+        }
     }
 
     public File getDbDir() {
@@ -74,6 +236,20 @@ public class GetOpts {
             final CommandLine cmd = parser.parse(options,  args);
             dbDir = cmd.getOptionValue("d");
             sqlDir = cmd.getOptionValue("s");
+            batchSize = cmd.getOptionValue("b");
+            bulkLoad = cmd.hasOption("B");
+            concurrent = cmd.hasOption("c");
+            morphFile = cmd.getOptionValue("m");
+            incremental = cmd.hasOption("i");
+            sqlFormat = cmd.getOptionValue("f");
+            indexDir = cmd.getOptionValue("x");
+            indexFile = cmd.getOptionValue("I");
+            preload = cmd.hasOption("p");
+            servePort = cmd.getOptionValue("S");
+            readConnections = cmd.getOptionValue("r");
+            lemmatize = cmd.hasOption("L");
+            output = cmd.getOptionValue("o");
+            files = cmd.getArgs();
         } catch (ParseException e) {
             formatter.printHelp(" ", options);
             throw new RuntimeException(e);
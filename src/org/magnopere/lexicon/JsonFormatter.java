@@ -0,0 +1,154 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.magnopere.lexicon.latin.LexiconEntry;
+import org.magnopere.lexicon.latin.MorphologyAnalysis;
+import org.magnopere.lexicon.sql.ResultFormatter;
+
+/**
+ * Renders a word as a JSON object holding an array of the objects of its lemmas, each with its analyses and
+ * entries; empty morphological features are left out.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class JsonFormatter implements ResultFormatter {
+
+    @Override
+    public void beginResult(String word, Appendable out) throws IOException {
+        out.append("{\"word\":");
+        quote(word, out);
+        out.append(",\"lemmas\":[");
+    }
+
+    @Override
+    public void formatLemma(String word, int index, List<MorphologyAnalysis> analyses, List<LexiconEntry> entries,
+                            Appendable out) throws IOException {
+        if (index > 0) out.append(',');
+        out.append("{\"lemma\":");
+        quote(!analyses.isEmpty() ? analyses.get(0).getLemma() : !entries.isEmpty() ? entries.get(0).getKey() : "", out);
+        out.append(",\"analyses\":[");
+        for (int i = 0; i < analyses.size(); i++){
+            final MorphologyAnalysis analysis = analyses.get(i);
+            if (i > 0) out.append(',');
+            out.append("{\"form\":");
+            quote(analysis.getForm(), out);
+            field("pos", analysis.getPos(), out);
+            field("person", analysis.getPerson(), out);
+            field("case", analysis.getGrammaticalCase(), out);
+            field("gender", analysis.getGender(), out);
+            field("degree", analysis.getDegree(), out);
+            field("number", analysis.getNumber(), out);
+            field("tense", analysis.getTense(), out);
+            field("mood", analysis.getMood(), out);
+            field("voice", analysis.getVoice(), out);
+            out.append('}');
+        }
+        out.append("],\"entries\":[");
+        for (int i = 0; i < entries.size(); i++){
+            final LexiconEntry entry = entries.get(i);
+            if (i > 0) out.append(',');
+            out.append("{\"lemma\":");
+            quote(entry.getKey(), out);
+            out.append(",\"ordinality\":").append(Integer.toString(entry.getOrdinality()));
+            out.append(",\"orthography\":");
+            quote(entry.getOrthography(), out);
+            out.append(",\"endings\":");
+            quote(entry.getiType(), out);
+            out.append(",\"pos\":");
+            quote(entry.getPos(), out);
+            out.append(",\"gender\":");
+            quote(entry.getGender(), out);
+            out.append(",\"definition\":");
+            quote(entry.getDefinition(), out);
+            out.append('}');
+        }
+        out.append("]}");
+    }
+
+    @Override
+    public void endResult(String word, Appendable out) throws IOException {
+        out.append("]}");
+    }
+
+    private static void field(String name, String value, Appendable out) throws IOException {
+        if (value != null && !value.isEmpty()){
+            out.append(",\"").append(name).append("\":");
+            quote(value, out);
+        }
+    }
+
+    /**
+     * @return the value as a JSON string, or null
+     */
+    public static String quote(String value){
+        final StringBuilder sb = new StringBuilder();
+        try {
+            quote(value, sb);
+        } catch (IOException e) {
+            // a StringBuilder does not throw
+            throw new RuntimeException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the value as a JSON string, or null, copying runs that need no escaping whole
+     */
+    public static void quote(String value, Appendable out) throws IOException {
+        if (value == null){
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++){
+            final char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') continue;
+            out.append(value, start, i);
+            start = i + 1;
+            switch (c){
+                case '"':  out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+            }
+        }
+        out.append(value, start, value.length()).append('"');
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+}
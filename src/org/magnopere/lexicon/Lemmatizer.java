@@ -0,0 +1,230 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.magnopere.lexicon.latin.LatinTokenizer;
+import org.magnopere.lexicon.latin.MorphologyAnalysis;
+import org.magnopere.lexicon.latin.Orthography;
+import org.magnopere.lexicon.sql.LookupStrategy;
+
+/**
+ * Runs whole texts through the morphology. Text is read a window of words at a time; the distinct words of
+ * each window are resolved in parallel and the window is then written in the original order, one
+ * tab-separated line per analysis:
+ * <pre>position  word  lemma  analysis  enclitic</pre>
+ * A word with no analysis gets a single line with the last three columns empty. A word not found as written
+ * which ends in -que, -ne or -ue is looked up again without it, and the enclitic noted. Memory is bounded by
+ * the window; words repeated across windows are answered by the lookup's own caches.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class Lemmatizer {
+
+    public static final int DEFAULT_WINDOW = 8192;
+    private static final String[] ENCLITICS = {"que", "ne", "ue"};
+    /** The shortest word left once an enclitic is taken off */
+    private static final int MIN_STEM = 2;
+    private static final Template LINE = Template.compile("{0}\t{1}\t{2}\t{3}\t{4}" + System.getProperty("line.separator"));
+
+    private final LookupStrategy    lookup;
+    private final int               threads;
+    private final int               window;
+
+    private long tokens;
+    private long unknown;
+    private long distinct;
+    private long nanos;
+
+
+    /**
+     * New instance
+     * @param lookup where words are looked up; must be safe for use by the given number of threads
+     * @param threads words resolved at once
+     * @param window words read before resolving them
+     */
+    public Lemmatizer(LookupStrategy lookup, int threads, int window) {
+        if (lookup == null) throw new IllegalArgumentException("null: lookup");
+        if (threads < 1) throw new IllegalArgumentException("threads must be positive: " + threads);
+        if (window < 1) throw new IllegalArgumentException("window must be positive: " + window);
+        this.lookup = lookup;
+        this.threads = threads;
+        this.window = window;
+    }
+
+    /**
+     * Lemmatizes the text, adding to the counts of earlier texts
+     * @param in text
+     * @param out where the analyses are written; flushed at each window
+     * @throws IOException on failure to read or write
+     */
+    public void lemmatize(Reader in, Writer out) throws IOException {
+        final long start = System.nanoTime();
+        final LatinTokenizer tokenizer = new LatinTokenizer(in);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<String> words = new ArrayList<String>(window);
+            String word;
+            do {
+                word = tokenizer.next();
+                if (word != null) words.add(word);
+                if (words.size() == window || (word == null && !words.isEmpty())){
+                    write(words, resolve(words, executor), out);
+                    words.clear();
+                }
+            } while (word != null);
+        } finally {
+            executor.shutdownNow();
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * @return the resolution of each distinct rectified word of the window
+     */
+    private Map<String, Resolution> resolve(List<String> words, ExecutorService executor) throws IOException {
+        final Map<String, Resolution> resolved = new LinkedHashMap<String, Resolution>();
+        for (String word: words){
+            resolved.put(Orthography.normalize(word), null);
+        }
+        distinct += resolved.size();
+        final List<String> forms = new ArrayList<String>(resolved.keySet());
+        final int slice = (forms.size() + threads - 1) / threads;
+        final List<Future<List<Resolution>>> futures = new ArrayList<Future<List<Resolution>>>();
+        for (int from = 0; from < forms.size(); from += slice){
+            final List<String> part = forms.subList(from, Math.min(forms.size(), from + slice));
+            futures.add(executor.submit(new Callable<List<Resolution>>() {
+                @Override
+                public List<Resolution> call() {
+                    final List<Resolution> found = new ArrayList<Resolution>(part.size());
+                    for (String form: part){
+                        found.add(resolve(form));
+                    }
+                    return found;
+                }
+            }));
+        }
+        try {
+            int i = 0;
+            for (Future<List<Resolution>> future: futures){
+                for (Resolution resolution: future.get()){
+                    resolved.put(forms.get(i++), resolution);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return resolved;
+    }
+
+    private Resolution resolve(String form){
+        final List<MorphologyAnalysis> analyses = lookup.findAnalysis(form);
+        if (!analyses.isEmpty()) return new Resolution(analyses, "");
+        for (String enclitic: ENCLITICS){
+            if (form.length() - enclitic.length() >= MIN_STEM && form.endsWith(enclitic)){
+                final List<MorphologyAnalysis> stem = lookup.findAnalysis(form.substring(0, form.length() - enclitic.length()));
+                if (!stem.isEmpty()) return new Resolution(stem, enclitic);
+            }
+        }
+        return new Resolution(Collections.<MorphologyAnalysis>emptyList(), "");
+    }
+
+    private void write(List<String> words, Map<String, Resolution> resolved, Writer out) throws IOException {
+        for (String word: words){
+            final long position = ++tokens;
+            final Resolution resolution = resolved.get(Orthography.normalize(word));
+            if (resolution.analyses.isEmpty()){
+                unknown++;
+                LINE.render(out, Long.toString(position), word, "", "", "");
+            }
+            for (MorphologyAnalysis analysis: resolution.analyses){
+                final StringBuilder features = new StringBuilder();
+                TsvFormatter.describe(analysis, features);
+                LINE.render(out, Long.toString(position), word, analysis.getLemma(), features, resolution.enclitic);
+            }
+        }
+        out.flush();
+    }
+
+    public long getTokens() {
+        return tokens;
+    }
+
+    public long getUnknown() {
+        return unknown;
+    }
+
+    /**
+     * @return distinct forms summed over windows, so the number of forms looked up, known or not
+     */
+    public long getDistinct() {
+        return distinct;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return a line reporting the counts and tokens per second
+     */
+    public String getSummary() {
+        final double seconds = nanos / 1e9;
+        return String.format("Lemmatized %d tokens (%d unknown; %d distinct forms looked up) in %.1f s: %.0f tokens/sec.",
+                tokens, unknown, distinct, seconds, seconds > 0 ? tokens / seconds : 0d);
+    }
+
+    /** The analyses of a word, and the enclitic taken off it to find them, if any */
+    private static class Resolution {
+        private final List<MorphologyAnalysis> analyses;
+        private final String enclitic;
+
+        private Resolution(List<MorphologyAnalysis> analyses, String enclitic) {
+            this.analyses = analyses;
+            this.enclitic = enclitic;
+        }
+    }
+}
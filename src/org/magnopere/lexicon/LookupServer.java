@@ -0,0 +1,208 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.magnopere.lexicon.sql.LookupStrategy;
+import org.magnopere.lexicon.sql.QueryResult;
+
+/**
+ * Serves lookups as JSON over HTTP on the loopback interface, using the JDK's HTTP server:
+ * <pre>GET /lookup?q=arma+virumque</pre>
+ * answers with an array holding the result of each word, as the console would look the line up. Requests
+ * are handled on a virtual thread each where the JVM has them, otherwise on a cached thread pool.
+ * Responses carry their length, so clients may keep connections alive between requests.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class LookupServer {
+    private static final Logger LOG = Logger.getLogger(LookupServer.class.getName());
+    public static final String LOOKUP_PATH = "/lookup";
+    /**
+     * Read by the JDK's server when it is first loaded. Unless it is set, Nagle's algorithm holds back each
+     * response on a kept-alive connection until the client's delayed ACK, some 40 ms.
+     */
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    static {
+        if (System.getProperty(NODELAY_PROPERTY) == null){
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+    }
+
+    private final LookupStrategy    lookup;
+    private final HttpServer        server;
+    private final ExecutorService   executor;
+    private final JsonFormatter     formatter = new JsonFormatter();
+
+
+    /**
+     * New instance, not yet started
+     * @param lookup where words are looked up; must be safe for use by many threads
+     * @param port port on the loopback interface, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public LookupServer(LookupStrategy lookup, int port) throws IOException {
+        if (lookup == null) throw new IllegalArgumentException("null: lookup");
+        this.lookup = lookup;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = newExecutor();
+        server.setExecutor(executor);
+        server.createContext(LOOKUP_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+    }
+
+    /**
+     * @return Executors.newVirtualThreadPerTaskExecutor() where the JVM has it, otherwise a cached thread pool
+     */
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            LOG.info("Virtual threads are not available; serving from a cached thread pool.");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to the delay for those under way, then stops their threads
+     * @param delaySeconds seconds to wait
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the bound port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try {
+            // contexts match by prefix, so /lookupfoo would reach here too
+            if (!LOOKUP_PATH.equals(exchange.getRequestURI().getPath())){
+                respond(exchange, 404, "{\"error\":\"not found\"}");
+                return;
+            }
+            final String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)){
+                respond(exchange, 405, "{\"error\":\"only GET is supported\"}");
+                return;
+            }
+            final String query;
+            try {
+                query = parameter(exchange.getRequestURI().getRawQuery(), "q");
+            } catch (IllegalArgumentException e){
+                respond(exchange, 400, "{\"error\":\"malformed query string\"}");
+                return;
+            }
+            if (query == null || query.trim().isEmpty()){
+                respond(exchange, 400, "{\"error\":\"no words given; use ?q=\"}");
+                return;
+            }
+            final List<String> words = new ArrayList<String>();
+            for (String word: query.trim().split("\\s+")){
+                words.add(word);
+            }
+            final List<QueryResult> results = lookup.lookupAll(words);
+            final StringBuilder json = new StringBuilder("[");
+            for (int i = 0; i < words.size(); i++){
+                if (i > 0) json.append(',');
+                results.get(i).formatResult(words.get(i), formatter, json);
+            }
+            respond(exchange, 200, json.append(']').toString());
+        } catch (RuntimeException e){
+            LOG.log(Level.WARNING, "Lookup failed: " + exchange.getRequestURI(), e);
+            respond(exchange, 500, "{\"error\":" + JsonFormatter.quote(String.valueOf(e.getMessage())) + "}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        final byte[] body = json.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        final boolean head = "HEAD".equals(exchange.getRequestMethod());
+        exchange.sendResponseHeaders(status, head ? -1 : body.length);
+        if (!head){
+            final OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+    }
+
+    /**
+     * @return the decoded value of the first occurrence of the parameter in the raw query string, or null
+     * @throws IllegalArgumentException if a name or value before it holds a malformed %-escape
+     */
+    static String parameter(String rawQuery, String name) throws UnsupportedEncodingException {
+        if (rawQuery == null) return null;
+        for (String pair: rawQuery.split("&")){
+            final int equals = pair.indexOf('=');
+            final String key = equals < 0 ? pair : pair.substring(0, equals);
+            if (name.equals(URLDecoder.decode(key, "UTF-8"))){
+                return equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+            }
+        }
+        return null;
+    }
+}
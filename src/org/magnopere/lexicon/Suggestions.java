@@ -0,0 +1,92 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon;
+
+import org.magnopere.lexicon.sql.DataRepository;
+import org.magnopere.lexicon.sql.FuzzyIndex;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Suggests forms near a word the console could not find, from a {@link FuzzyIndex}. The index is built on a
+ * thread of its own, so the console is ready at once; until the index is in, nothing is suggested.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+class Suggestions {
+    private static final Logger LOG = Logger.getLogger(Suggestions.class.getName());
+    private static final String ENDL = System.getProperty("line.separator");
+    /** The most forms suggested for one word */
+    static final int MAX_SUGGESTIONS = 8;
+
+    private volatile FuzzyIndex index;
+
+
+    /**
+     * Starts building the index from the repository in the background
+     * @param repo verba.db
+     */
+    void load(final DataRepository repo){
+        final Thread loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    index = repo.loadFuzzyIndex();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Suggestions are unavailable.", e);
+                }
+            }
+        }, "fuzzy-index");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Writes a line suggesting the forms nearest the word, if there are any within {@link FuzzyIndex#MAX_DISTANCE}
+     * @param word a word not found
+     * @param out written to
+     * @throws IOException on failure to write
+     */
+    void suggest(String word, Appendable out) throws IOException {
+        final FuzzyIndex loaded = index;
+        if (loaded == null) return;
+        final List<String> forms = loaded.suggest(word, FuzzyIndex.MAX_DISTANCE, MAX_SUGGESTIONS);
+        if (forms.isEmpty()) return;
+        out.append("Did you mean: ");
+        for (int i = 0; i < forms.size(); i++){
+            if (i > 0) out.append(", ");
+            out.append(forms.get(i));
+        }
+        out.append('?').append(ENDL);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A text with numbered holes, <code>{0}</code>, <code>{1}</code> and so on, split once into its literal
+ * parts so that rendering only appends: no format string is parsed and no intermediate string is built.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+final class Template {
+
+    private final String[]  literals;
+    private final int[]     holes;
+
+
+    private Template(String[] literals, int[] holes) {
+        this.literals = literals;
+        this.holes = holes;
+    }
+
+    /**
+     * @param pattern text with holes numbered from 0; braces not forming a hole are kept as they are
+     * @return the compiled template
+     */
+    static Template compile(String pattern){
+        final List<String> literals = new ArrayList<String>();
+        final List<Integer> holes = new ArrayList<Integer>();
+        int start = 0;
+        for (int i = 0; i < pattern.length(); i++){
+            if (pattern.charAt(i) != '{') continue;
+            int end = i + 1;
+            while (end < pattern.length() && Character.isDigit(pattern.charAt(end))) end++;
+            if (end > i + 1 && end < pattern.length() && pattern.charAt(end) == '}'){
+                literals.add(pattern.substring(start, i));
+                holes.add(Integer.valueOf(pattern.substring(i + 1, end)));
+                start = end + 1;
+                i = end;
+            }
+        }
+        literals.add(pattern.substring(start));
+        final int[] numbers = new int[holes.size()];
+        for (int i = 0; i < numbers.length; i++){
+            numbers[i] = holes.get(i);
+        }
+        return new Template(literals.toArray(new String[literals.size()]), numbers);
+    }
+
+    /**
+     * Appends the template with its holes filled
+     * @param out where to write
+     * @param values filling hole 0, 1 and so on; null is written as "null"
+     * @throws IOException on failure to write
+     */
+    void render(Appendable out, CharSequence... values) throws IOException {
+        for (int i = 0; i < holes.length; i++){
+            out.append(literals[i]);
+            out.append(values[holes[i]]);
+        }
+        out.append(literals[holes.length]);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.magnopere.lexicon.latin.LexiconEntry;
+import org.magnopere.lexicon.latin.MorphologyAnalysis;
+import org.magnopere.lexicon.sql.ResultFormatter;
+
+/**
+ * Renders a word as tab-separated lines, one per analysis and one per entry:
+ * <pre>word  lemma  analysis  features
+ *word  lemma  entry  n. orthography, endings; pos gender  definition</pre>
+ * Tabs and line breaks within values become spaces, and definitions lose their emphasis tags.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class TsvFormatter implements ResultFormatter {
+
+    private static final String ENDL = System.getProperty("line.separator");
+    private static final Template ENTRY = Template.compile("{0}. {1}, {2}; {3} {4}");
+
+    @Override
+    public void beginResult(String word, Appendable out) throws IOException {
+    }
+
+    @Override
+    public void formatLemma(String word, int index, List<MorphologyAnalysis> analyses, List<LexiconEntry> entries,
+                            Appendable out) throws IOException {
+        for (MorphologyAnalysis analysis: analyses){
+            cell(word, out);
+            out.append('\t');
+            cell(analysis.getLemma(), out);
+            out.append("\tanalysis\t");
+            describe(analysis, out);
+            out.append('\t').append(ENDL);
+        }
+        for (LexiconEntry entry: entries){
+            cell(word, out);
+            out.append('\t');
+            cell(entry.getKey(), out);
+            out.append("\tentry\t");
+            final StringBuilder heading = new StringBuilder();
+            ENTRY.render(heading, Integer.toString(entry.getOrdinality()), entry.getOrthography(), entry.getiType(),
+                    entry.getPos(), entry.getGender());
+            cell(heading, out);
+            out.append('\t');
+            final StringBuilder definition = new StringBuilder();
+            ConsoleFormatter.formatDefinition(entry.getDefinition(), definition);
+            cell(definition, out);
+            out.append(ENDL);
+        }
+    }
+
+    @Override
+    public void endResult(String word, Appendable out) throws IOException {
+    }
+
+    private static void cell(CharSequence value, Appendable out) throws IOException {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++){
+            final char c = value.charAt(i);
+            if (c == '\t' || c == '\n' || c == '\r'){
+                out.append(value, start, i).append(' ');
+                start = i + 1;
+            }
+        }
+        out.append(value, start, value.length());
+    }
+
+    /**
+     * Writes the features of the analysis, space separated, as the console lists them
+     */
+    static void describe(MorphologyAnalysis analysis, Appendable out) throws IOException {
+        boolean first = true;
+        first = feature(analysis.getPos(), "", first, out);
+        first = feature(analysis.getPerson(), " person", first, out);
+        first = feature(analysis.getGrammaticalCase(), "", first, out);
+        first = feature(analysis.getGender(), "", first, out);
+        first = feature(analysis.getDegree(), "", first, out);
+        first = feature(analysis.getNumber(), "", first, out);
+        first = feature(analysis.getTense(), "", first, out);
+        first = feature(analysis.getMood(), "", first, out);
+        feature(analysis.getVoice(), "", first, out);
+    }
+
+    private static boolean feature(String value, String suffix, boolean first, Appendable out) throws IOException {
+        if (value.isEmpty()) return first;
+        if (!first) out.append(' ');
+        out.append(value).append(suffix);
+        return false;
+    }
+}
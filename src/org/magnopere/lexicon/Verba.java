@@ -29,17 +29,39 @@
 
 package org.magnopere.lexicon;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+import jline.ArgumentCompletor;
 import jline.ConsoleReader;
 
 import org.magnopere.lexicon.latin.LexiconParser;
+import org.magnopere.lexicon.latin.MappedMorphologyParser;
+import org.magnopere.lexicon.latin.MorphologyAnalysis;
 import org.magnopere.lexicon.latin.MorphologyParser;
 import org.magnopere.lexicon.latin.Slurper;
+import org.magnopere.lexicon.sql.BinaryIndexWriter;
+import org.magnopere.lexicon.sql.BinaryRepository;
 import org.magnopere.lexicon.sql.DataRepository;
+import org.magnopere.lexicon.sql.FormIndex;
+import org.magnopere.lexicon.sql.ImportTelemetry;
+import org.magnopere.lexicon.sql.IncrementalBuild;
+import org.magnopere.lexicon.sql.LookupStrategy;
 import org.magnopere.lexicon.sql.PersistenceStrategy;
 import org.magnopere.lexicon.sql.QueryResult;
+import org.magnopere.lexicon.sql.ResultFormatter;
+import org.magnopere.lexicon.sql.QueuedPersister;
 import org.magnopere.lexicon.sql.SQLWriter;
 
 /**
@@ -50,19 +72,39 @@ public class Verba {
 
     private static final String NOTICE_PATH = "/org/magnopere/lexicon/notice.txt";
     private static final String PROMPT      = "uerba> ";
+    private static final String ENDL        = System.getProperty("line.separator");
+    private static final String ENGLISH     = ":en";
+    /** The most lemmas a search in English shows */
+    private static final int MAX_ENGLISH_RESULTS = 10;
 
     private final DataRepository    repo;
+    private final LookupStrategy    lookup;
     private final String            notice;
-    private final ConsoleFormatter  formatter;
+    private ResultFormatter         formatter;
     private final ConsoleReader     consoleReader;
 
     public Verba(File dbDir) throws IOException {
-        if (dbDir == null) dbDir = new File(".");
-        repo        = new DataRepository(dbDir.getAbsolutePath());
+        this(dbDir, null);
+    }
+
+    /**
+     * New instance
+     * @param dbDir directory holding verba.db, or null for the working directory
+     * @param indexFile verba.idx to look words up in, or null to use verba.db
+     * @throws IOException if the console cannot be opened
+     */
+    public Verba(File dbDir, File indexFile) throws IOException {
+        if (indexFile != null){
+            repo    = null;
+            lookup  = new BinaryRepository(indexFile);
+        } else {
+            if (dbDir == null) dbDir = new File(".");
+            repo    = new DataRepository(dbDir.getAbsolutePath());
+            lookup  = repo;
+        }
         notice      = Slurper.slurp(getClass().getResourceAsStream(NOTICE_PATH));
         formatter   = new ConsoleFormatter();
         consoleReader = new ConsoleReader();
-        printNotice();
     }
 
     public static void main(String[] args) throws Exception {
@@ -70,21 +112,129 @@ public class Verba {
         opts.parse(args);
         final File sqlDir = opts.getSqlDir();
         final File dbDir = opts.getDbDir();
-        final Verba verba = new Verba(dbDir);
+        final File indexDir = opts.getIndexDir();
+        final Verba verba = new Verba(dbDir, opts.getIndexFile());
+        verba.setFormatter(opts.getFormatter());
+        // standard output carries the analyses when lemmatizing, so status goes to standard error
+        final PrintStream status = opts.isLemmatize() ? System.err : System.out;
+        if (!opts.isLemmatize()) verba.printNotice();
         if (dbDir != null){
-            verba.parseXMLSource(verba.repo);
+            final ImportTelemetry telemetry = new ImportTelemetry();
+            verba.repo.setBatchSize(opts.getBatchSize());
+            verba.repo.setBulkLoad(opts.isBulkLoad());
+            verba.repo.setTelemetry(telemetry);
+            telemetry.start();
+            if (opts.isIncremental()){
+                verba.updateDatabase(opts.getMorphFile(), telemetry);
+            } else {
+                verba.parseXMLSource(verba.repo, opts.isConcurrent(), opts.getMorphFile(), telemetry);
+            }
+            reportImport(telemetry, dbDir);
         } else if (sqlDir != null){
-            verba.parseXMLSource(new SQLWriter(sqlDir));
+            final ImportTelemetry telemetry = new ImportTelemetry();
+            final SQLWriter writer = new SQLWriter(sqlDir, opts.isBulkLoad(), opts.getSqlFormat());
+            writer.setTelemetry(telemetry);
+            telemetry.start();
+            verba.parseXMLSource(writer, opts.isConcurrent(), opts.getMorphFile(), telemetry);
+            reportImport(telemetry, sqlDir);
+        } else if (indexDir != null){
+            final ImportTelemetry telemetry = new ImportTelemetry();
+            final BinaryIndexWriter writer = new BinaryIndexWriter(indexDir);
+            writer.setTelemetry(telemetry);
+            telemetry.start();
+            verba.parseXMLSource(writer, opts.isConcurrent(), opts.getMorphFile(), telemetry);
+            reportImport(telemetry, indexDir);
         } else {
-            verba.consoleLoop();
+            if (opts.isPreload() && verba.repo != null){
+                final FormIndex index = verba.repo.preloadFormIndex();
+                status.println(String.format("Preloaded %d forms and %d analyses in %.1f s, holding about %.1f MB.",
+                        index.getFormCount(), index.getAnalysisCount(), index.getLoadNanos() / 1e9,
+                        index.getHeapBytes() / (double) (1 << 20)));
+            }
+            final Integer port = opts.getServePort();
+            if (port != null){
+                verba.serve(port, opts.getReadConnections());
+            } else if (opts.isLemmatize()){
+                verba.lemmatize(opts.getFiles(), opts.getReadConnections());
+            } else {
+                verba.consoleLoop();
+            }
+        }
+    }
+
+    /**
+     * Lemmatizes the files in turn, or standard input, to standard output, reporting throughput on standard error
+     * @param files UTF-8 texts, or none for standard input
+     * @param threads words looked up at once
+     * @throws Exception on failure to read, write or close
+     */
+    private void lemmatize(List<File> files, int threads) throws Exception {
+        if (repo != null) repo.setReadConnections(threads);
+        final Lemmatizer lemmatizer = new Lemmatizer(lookup, threads, Lemmatizer.DEFAULT_WINDOW);
+        final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, "UTF-8"), 1 << 16);
+        if (files.isEmpty()){
+            lemmatizer.lemmatize(new InputStreamReader(System.in, "UTF-8"), out);
+        }
+        for (File file: files){
+            final Reader in = new InputStreamReader(new FileInputStream(file), "UTF-8");
+            try {
+                lemmatizer.lemmatize(in, out);
+            } finally {
+                in.close();
+            }
         }
+        out.flush();
+        System.err.println(lemmatizer.getSummary());
+        lookup.close();
     }
 
-    private void parseXMLSource(PersistenceStrategy persister){
-        new LexiconParser(persister).parse();
-        System.out.println("Finished writing lexicographic information.");
-        new MorphologyParser(persister).parse();
-        System.out.println("Finished writing morphology information.");
+    /**
+     * Serves lookups over HTTP until the JVM is shut down
+     * @param port port on the loopback interface
+     * @param readConnections connections to verba.db used at once
+     * @throws IOException if the port cannot be bound
+     */
+    private void serve(int port, int readConnections) throws IOException {
+        if (repo != null) repo.setReadConnections(readConnections);
+        final LookupServer server = new LookupServer(lookup, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                server.stop(1);
+                try {
+                    lookup.close();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }, "lookup-server-shutdown"));
+        server.start();
+        System.out.println(String.format("Serving lookups at http://localhost:%d%s?q=", server.getPort(), LookupServer.LOOKUP_PATH));
+    }
+
+    /**
+     * Stops the telemetry of a build, writes its report to the directory built and prints its summary
+     */
+    private static void reportImport(ImportTelemetry telemetry, File dir){
+        telemetry.finish();
+        telemetry.writeReport(dir);
+        System.out.println(telemetry.getSummary());
+    }
+
+    private void parseXMLSource(PersistenceStrategy persister, boolean concurrent, File morphFile, ImportTelemetry telemetry){
+        persister = telemetry.instrument(persister);
+        if (concurrent){
+            persister = parseConcurrently(persister, morphFile, telemetry);
+        } else {
+            final LexiconParser parser = new LexiconParser(persister);
+            parser.setTelemetry(telemetry);
+            parser.parse();
+            System.out.println("Finished writing lexicographic information.");
+            parseMorphology(persister, morphFile, telemetry);
+            System.out.println("Finished writing morphology information.");
+        }
+        persister.buildIndexes();
+        System.out.println("Finished building indexes.");
         try {
             persister.close();
         } catch (Exception e) {
@@ -92,21 +242,143 @@ public class Verba {
         }
     }
 
+    private void updateDatabase(File morphFile, ImportTelemetry telemetry) throws Exception {
+        final IncrementalBuild build = new IncrementalBuild(repo, morphFile);
+        build.setTelemetry(telemetry);
+        build.run();
+        final PersistenceStrategy persister = telemetry.instrument(repo);
+        persister.buildIndexes();
+        persister.close();
+        System.out.println("Finished updating the database.");
+    }
+
+    /**
+     * Parses the morphology from the classpath or, if given, memory-maps the file and scans it in parallel
+     */
+    private static void parseMorphology(PersistenceStrategy persister, File morphFile, ImportTelemetry telemetry){
+        if (morphFile == null){
+            final MorphologyParser parser = new MorphologyParser(persister);
+            parser.setTelemetry(telemetry);
+            parser.parse();
+        } else {
+            final MappedMorphologyParser parser = new MappedMorphologyParser(persister, morphFile);
+            parser.setTelemetry(telemetry);
+            parser.parse();
+        }
+    }
+
+    /**
+     * Runs both parsers on their own threads, handing their records to a single writer thread
+     * @param persister strategy to be fed by the writer thread
+     * @param morphFile latin.morph.xml on disk, or null to parse the copy on the classpath
+     * @param telemetry times the parsers and samples the queues
+     * @return the queued strategy, for the remainder of the build
+     */
+    private PersistenceStrategy parseConcurrently(PersistenceStrategy persister, final File morphFile,
+                                                  final ImportTelemetry telemetry){
+        final QueuedPersister queued = new QueuedPersister(persister);
+        queued.setTelemetry(telemetry);
+        // the first failure; the other parser then fails only because the build was aborted
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread lexicon = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final LexiconParser parser = new LexiconParser(queued);
+                    parser.setTelemetry(telemetry);
+                    parser.parse();
+                    System.out.println("Finished parsing lexicographic information.");
+                } catch (Throwable t){
+                    failure.compareAndSet(null, t);
+                    queued.abort();
+                }
+            }
+        }, "lexicon-parser");
+        final Thread morphology = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    parseMorphology(queued, morphFile, telemetry);
+                    System.out.println("Finished parsing morphology information.");
+                } catch (Throwable t){
+                    failure.compareAndSet(null, t);
+                    queued.abort();
+                }
+            }
+        }, "morphology-parser");
+        queued.start();
+        lexicon.start();
+        morphology.start();
+        try {
+            lexicon.join();
+            morphology.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        if (failure.get() != null) throw new RuntimeException(failure.get());
+        return queued;
+    }
+
     private void printNotice(){
         System.out.printf("%s%n", notice);
     }
 
+    /**
+     * @param formatter renders the results of the console
+     */
+    public void setFormatter(ResultFormatter formatter) {
+        if (formatter == null) throw new IllegalArgumentException("null: formatter");
+        this.formatter = formatter;
+    }
+
+    /**
+     * Writes the lexicon entries of the lemmas whose definitions best match the English, best first
+     */
+    private void reverseLookup(String english, Writer out) throws IOException {
+        if (repo == null){
+            out.write("Searching in English needs verba.db." + ENDL);
+            return;
+        }
+        final List<String> lemmas = repo.reverseLookup(english, MAX_ENGLISH_RESULTS);
+        formatter.beginResult(english, out);
+        for (int i = 0; i < lemmas.size(); i++){
+            formatter.formatLemma(english, i, Collections.<MorphologyAnalysis>emptyList(),
+                    repo.findLexiconEntry(lemmas.get(i)), out);
+        }
+        formatter.endResult(english, out);
+    }
+
     public void consoleLoop() throws IOException {
+        // near misses are suggested only to a reader, not in json or tsv
+        final Suggestions suggestions = repo != null && formatter instanceof ConsoleFormatter ? new Suggestions() : null;
+        if (repo != null){
+            final WordCompletor words = new WordCompletor();
+            final ArgumentCompletor completor = new ArgumentCompletor(words);
+            completor.setStrict(false);
+            consoleReader.addCompletor(completor);
+            words.load(repo);
+            if (suggestions != null) suggestions.load(repo);
+        }
+        final Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 13);
         while (true){
             final String input = consoleReader.readLine(PROMPT);
             if (":quit".equalsIgnoreCase(input) || ":q".equalsIgnoreCase(input)){
                 break;
+            } else if (ENGLISH.equalsIgnoreCase(input) || input.regionMatches(true, 0, ENGLISH + ' ', 0, ENGLISH.length() + 1)){
+                reverseLookup(input.substring(ENGLISH.length()).trim(), out);
+                out.write(ENDL);
+                out.flush();
             } else {
                 //dispatch query
                 final String[] words = input.split("\\s+");
-                for (String form: words){
-                    QueryResult result = repo.lookup(form);
-                    System.out.printf("%n%s%n%n", result.formatResult(formatter));
+                final List<QueryResult> results = lookup.lookupAll(Arrays.asList(words));
+                for (int i = 0; i < words.length; i++){
+                    results.get(i).formatResult(words[i], formatter, out);
+                    if (suggestions != null && results.get(i).getUniqueLemmas().isEmpty()){
+                        suggestions.suggest(words[i], out);
+                    }
+                    out.write(ENDL);
+                    out.flush();
                 }
             }
         }
@@ -0,0 +1,83 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon;
+
+import jline.Completor;
+import org.magnopere.lexicon.sql.DataRepository;
+import org.magnopere.lexicon.sql.PrefixIndex;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Completes a word of console input from the forms and lemmas of a {@link PrefixIndex}. The index is loaded on
+ * a thread of its own, so the console is ready at once; until the index is in, nothing is completed.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+class WordCompletor implements Completor {
+    private static final Logger LOG = Logger.getLogger(WordCompletor.class.getName());
+    /** The most completions offered for one prefix */
+    static final int MAX_COMPLETIONS = 50;
+
+    private volatile PrefixIndex index;
+
+
+    /**
+     * Starts loading the index from the repository in the background
+     * @param repo verba.db
+     */
+    void load(final DataRepository repo){
+        final Thread loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    index = repo.loadPrefixIndex();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Word completion is unavailable.", e);
+                }
+            }
+        }, "prefix-index");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /* jline 1.0's Completor interface takes a raw List */
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public int complete(String buffer, int cursor, List candidates) {
+        final PrefixIndex loaded = index;
+        if (loaded == null) return -1;
+        final String prefix = buffer == null ? "" : buffer.substring(0, cursor);
+        candidates.addAll(loaded.complete(prefix, MAX_COMPLETIONS));
+        return candidates.isEmpty() ? -1 : 0;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.latin;
+
+/**
+ * The open elements of a single parse, each with its own buffer for character data. Buffers are kept
+ * and reused as the stack grows and shrinks, so a parse only allocates one per level of nesting.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+final class ElementStack<E> {
+
+    private Object[]        elements    = new Object[16];
+    private StringBuilder[] pcData      = new StringBuilder[16];
+    private int             depth;
+
+
+    void push(E element){
+        if (depth == elements.length){
+            final Object[] grownElements = new Object[depth * 2];
+            final StringBuilder[] grownPcData = new StringBuilder[depth * 2];
+            System.arraycopy(elements, 0, grownElements, 0, depth);
+            System.arraycopy(pcData, 0, grownPcData, 0, depth);
+            elements = grownElements;
+            pcData = grownPcData;
+        }
+        if (pcData[depth] == null){
+            pcData[depth] = new StringBuilder();
+        } else {
+            pcData[depth].setLength(0);
+        }
+        elements[depth++] = element;
+    }
+
+    @SuppressWarnings("unchecked")
+    E peek(){
+        if (depth == 0) throw new IllegalStateException("No open element");
+        return (E) elements[depth - 1];
+    }
+
+    E pop(){
+        final E element = peek();
+        elements[--depth] = null;
+        return element;
+    }
+
+    boolean isEmpty(){
+        return depth == 0;
+    }
+
+    /**
+     * Appends character data to the innermost open element
+     */
+    void pcData(char[] ch, int start, int length){
+        if (depth > 0){
+            pcData[depth - 1].append(ch, start, length);
+        }
+    }
+
+    /**
+     * @return the character data collected for the innermost open element since it was opened or last
+     * read, clearing it
+     */
+    String getPcData(){
+        if (depth == 0) return "";
+        final StringBuilder sb = pcData[depth - 1];
+        final String pcd = sb.toString();
+        sb.setLength(0);
+        return pcd;
+    }
+}
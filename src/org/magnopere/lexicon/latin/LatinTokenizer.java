@@ -0,0 +1,89 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.latin;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits running Latin text into words: runs of letters, digits and combining marks. Everything else,
+ * punctuation, whitespace, apostrophes and hyphens included, separates words. Words are returned as written;
+ * case and orthography are left to {@link Orthography#normalize(CharSequence)}.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class LatinTokenizer {
+
+    private final Reader        in;
+    private final char[]        buffer = new char[1 << 13];
+    private final StringBuilder word = new StringBuilder();
+    private int position;
+    private int limit;
+
+
+    /**
+     * @param in text to split; buffered here, so it need not be
+     */
+    public LatinTokenizer(Reader in) {
+        if (in == null) throw new IllegalArgumentException("null: in");
+        this.in = in;
+    }
+
+    /**
+     * @return the next word, or null at the end of the text
+     * @throws IOException on failure to read
+     */
+    public String next() throws IOException {
+        word.setLength(0);
+        while (true){
+            if (position == limit){
+                limit = in.read(buffer);
+                position = 0;
+                if (limit <= 0){
+                    limit = 0;
+                    return word.length() > 0 ? word.toString() : null;
+                }
+            }
+            final char c = buffer[position++];
+            if (isWordChar(c)){
+                word.append(c);
+            } else if (word.length() > 0){
+                return word.toString();
+            }
+        }
+    }
+
+    private static boolean isWordChar(char c){
+        if (c < 0x80){
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+        }
+        return Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK;
+    }
+}
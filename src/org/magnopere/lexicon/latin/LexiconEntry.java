@@ -39,6 +39,14 @@ import static org.magnopere.lexicon.latin.Orthography.*;
 public class LexiconEntry implements Comparable {
     private static final String NOUN = "noun";
 
+    /** Turns a stored definition back into text */
+    public static interface DefinitionDecoder {
+        String decode(byte[] encoded);
+
+        /** @return the length of the decoded definition in UTF-8 bytes, or -1 if the encoding does not record it */
+        int decodedSize(byte[] encoded);
+    }
+
     private String key         = "";
     private int    ordinality  = 0;
     private String orthography = "";
@@ -46,6 +54,11 @@ public class LexiconEntry implements Comparable {
     private String iType       = "";
     private String pos         = "";
     private String gender      = "";
+    /** The stored definition, until first asked for */
+    private byte[] encodedDefinition;
+    private DefinitionDecoder decoder;
+    /** The length of the stored definition in UTF-8 bytes, while it is held encoded */
+    private int decodedSize;
 
     @Override
     public int compareTo(Object o) {
@@ -77,9 +90,44 @@ public class LexiconEntry implements Comparable {
     }
 
     public String getDefinition() {
+        decodeDefinition();
         return definition.toString().replaceAll("\\s\\s+", " ");
     }
 
+    /**
+     * Holds the stored definition as it is, to be decoded the first time it is asked for. Entries are shared
+     * between threads by the lookup caches, so decoding is synchronized. A definition whose encoding does not
+     * record its length is decoded at once, so that {@link #getDefinitionSize()} never grows.
+     * @param encoded the definition as stored
+     * @param decoder decodes it
+     */
+    public synchronized void setEncodedDefinition(byte[] encoded, DefinitionDecoder decoder) {
+        if (encoded == null) throw new IllegalArgumentException("null: encoded");
+        if (decoder == null) throw new IllegalArgumentException("null: decoder");
+        decodeDefinition();
+        this.encodedDefinition = encoded;
+        this.decoder = decoder;
+        this.decodedSize = decoder.decodedSize(encoded);
+        if (decodedSize < 0) decodeDefinition();
+    }
+
+    private synchronized void decodeDefinition() {
+        if (encodedDefinition != null){
+            final String decoded = decoder.decode(encodedDefinition);
+            encodedDefinition = null;
+            decoder = null;
+            setDefinition(decoded);
+        }
+    }
+
+    /**
+     * @return roughly the bytes the definition holds as text, whether or not it has been decoded yet; decoding
+     * never makes it larger, so a cache may weigh the entry once
+     */
+    public synchronized int getDefinitionSize() {
+        return encodedDefinition != null ? 2 * decodedSize : 2 * definition.length();
+    }
+
     public String getGender() {
         return gender;
     }
@@ -121,6 +169,7 @@ public class LexiconEntry implements Comparable {
     }
 
     public void setDefinition(String definition) {
+        decodeDefinition();
         if (this.definition.length() == 0){
             this.definition.append(prune(definition));
         } else {
@@ -129,6 +178,7 @@ public class LexiconEntry implements Comparable {
     }
     
     public LexiconEntry appendToDefinition(String def){
+        decodeDefinition();
         this.definition.append(def);
         return this;
     }
@@ -171,7 +221,7 @@ public class LexiconEntry implements Comparable {
     }
 
     public void setKey(String key) {
-        this.key = rectify(key);
+        this.key = normalize(key);
     }
 
     public void setOrthography(String orthography) {
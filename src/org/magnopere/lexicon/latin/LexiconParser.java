@@ -29,20 +29,15 @@
 
 package org.magnopere.lexicon.latin;
 
-import org.magnopere.lexicon.sql.DataRepository;
-import org.magnopere.lexicon.sql.PersistenceStrategy;
-import org.xml.sax.Attributes;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
-
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+import org.magnopere.lexicon.sql.ImportTelemetry;
+import org.magnopere.lexicon.sql.LexiconSink;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 import java.io.InputStream;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.Stack;
-import java.util.logging.Logger;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  *
@@ -59,63 +54,105 @@ import java.util.logging.Logger;
  *       </trans>, C.
  *     </sense>
  * </entry>
+ * <p/>
+ * All parse state belongs to the instance, so any number of parsers may run at once.
  * @author Roger Grantham
  * @since May 29, 2011
  */
-public class LexiconParser extends DefaultHandler implements RecordStack.RepositoryListener<LexiconEntry> {
-    private static final String LEXICON_PATH = "/org/perseus/lexicon/lewis.xml";
-    private static final Logger LOG = Logger.getLogger(LexiconParser.class.getName());
-    
+public class LexiconParser implements RecordStack.RepositoryListener<LexiconEntry> {
+    public static final String LEXICON_PATH = "/org/perseus/lexicon/lewis.xml";
+
     private final InputStream lexicon;
 
-    private final Stack<Elements> elementStack = new Stack<Elements>();
+    private final ElementStack<Elements> elementStack = new ElementStack<Elements>();
 
     private final RecordStack<LexiconEntry> recordStack;
 
-    private final PersistenceStrategy persister;
+    private final LexiconSink persister;
 
     private int recordCount = 0;
 
+    private ImportTelemetry telemetry = ImportTelemetry.NONE;
+
+    private ImportTelemetry.ParseMeter meter;
+
+
+    /**
+     * New Instance reading the lexicon from the classpath
+     * @param persister persistent data repository
+     */
+    public LexiconParser(LexiconSink persister) {
+        this(persister, LexiconParser.class.getResourceAsStream(LEXICON_PATH));
+    }
 
     /**
      * New Instance
      * @param persister persistent data repository
+     * @param lexicon UTF-8 encoded lexicon XML
      */
-    public LexiconParser(PersistenceStrategy persister) {
+    public LexiconParser(LexiconSink persister, InputStream lexicon) {
         if (persister == null) throw new IllegalArgumentException("null: persister");
+        if (lexicon == null) throw new IllegalArgumentException("null: lexicon");
         this.persister = persister;
         persister.buildLexiconTable();
-        lexicon = getClass().getResourceAsStream(LEXICON_PATH);
+        this.lexicon = lexicon;
         recordStack = new RecordStack<LexiconEntry>();
         recordStack.addListener(this);
     }
 
+    /**
+     * @param telemetry where the parse is measured; must be set before {@link #parse()}
+     */
+    public void setTelemetry(ImportTelemetry telemetry) {
+        if (telemetry == null) throw new IllegalArgumentException("null: telemetry");
+        this.telemetry = telemetry;
+    }
 
     /**
      * Performs the actual lexicon parsing
      */
     public void parse(){
-        final SAXParserFactory factory = SAXParserFactory.newInstance();
-        factory.setValidating(false);
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+        meter = telemetry.newParseMeter();
         try {
-            final SAXParser saxParser = factory.newSAXParser();
-            final InputSource source = new InputSource(lexicon);
-            source.setEncoding("UTF-8");
-            saxParser.parse(source, this);
+            final XMLStreamReader reader = factory.createXMLStreamReader(meter.count(lexicon), "UTF-8");
+            try {
+                while (reader.hasNext()){
+                    switch (reader.next()){
+                        case XMLStreamConstants.START_ELEMENT:
+                            startElement(reader);
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.CDATA:
+                            elementStack.pcData(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            endElement();
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } finally {
+                reader.close();
+                meter.publish();
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    @Override
-    public void characters(char[] ch, int start, int length) throws SAXException {
-        elementStack.peek().pcData(ch, start, length);
-    }
-
-    @Override
-    public void endElement(String uri, String localName, String qName) throws SAXException {
-        final Elements handler = elementStack.pop();
-        handler.close(recordStack);
+    private void endElement() {
+        final Elements handler = elementStack.peek();
+        if (handler.normalizesOnClose()){
+            final long start = System.nanoTime();
+            handler.close(recordStack, elementStack.getPcData());
+            meter.normalized(start);
+        } else {
+            handler.close(recordStack, elementStack.getPcData());
+        }
+        elementStack.pop();
     }
 
     public int getRecordCount() {
@@ -130,10 +167,9 @@ public class LexiconParser extends DefaultHandler implements RecordStack.Reposit
     @Override
     public void popCalled(LexiconEntry rec) {
         recordCount++;
-        if (recordCount % 2000 == 0){
-            LOG.info(String.format("Wrote %d lexicon records. Last record: %n%s", recordCount, rec));
-        }
+        final long start = System.nanoTime();
         persister.writeLexiconEntry(rec);
+        meter.handedOff(start);
     }
 
     @Override
@@ -141,27 +177,41 @@ public class LexiconParser extends DefaultHandler implements RecordStack.Reposit
 
     }
 
-    @Override
-    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
-        final Elements handler = Elements.fromName(qName);
+    private void startElement(XMLStreamReader reader) {
+        final Elements handler = Elements.fromName(reader.getLocalName());
         if (handler.flushBeforeOpen()){
-            recordStack.peek().appendToDefinition(elementStack.peek().getPcData());
+            recordStack.peek().appendToDefinition(elementStack.getPcData());
         }
         elementStack.push(handler);
-        handler.open(recordStack, attributes);
+        if (handler.normalizesOnOpen()){
+            final long start = System.nanoTime();
+            handler.open(recordStack, reader);
+            meter.normalized(start);
+        } else {
+            handler.open(recordStack, reader);
+        }
     }
 
 
+    /**
+     * Handlers for the elements of interest. These hold no state; the character data of each open element
+     * is kept by the parser's ElementStack and handed to {@link #close(RecordStack, String)}.
+     */
     private static enum Elements {
         ENTRY("entry", false){
             @Override
-            void open(RecordStack<LexiconEntry> stack, Attributes attributes) {
+            boolean normalizesOnOpen() {
+                return true;
+            }
+
+            @Override
+            void open(RecordStack<LexiconEntry> stack, XMLStreamReader attributes) {
                 final LexiconEntry rec = new LexiconEntry();
-                final String keyVal = attributes.getValue("key");
+                final String keyVal = attributes.getAttributeValue(null, "key");
                 if (keyVal == null){
                    final StringBuilder sb = new StringBuilder();
-                    for (int i = 0; i < attributes.getLength(); i++){
-                        sb.append(String.format("%s (qname %s): %s; ", attributes.getLocalName(i), attributes.getQName(i), attributes.getValue(i)));
+                    for (int i = 0; i < attributes.getAttributeCount(); i++){
+                        sb.append(String.format("%s (qname %s): %s; ", attributes.getAttributeLocalName(i), attributes.getAttributeName(i), attributes.getAttributeValue(i)));
                     }
                     throw new IllegalArgumentException("Bad entry record: " + sb.toString());
                 } else {
@@ -176,141 +226,141 @@ public class LexiconParser extends DefaultHandler implements RecordStack.Reposit
             }
 
             @Override
-            void close(RecordStack<LexiconEntry> stack) {
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
                 stack.pop();
             }},
         ORTH("orth", false){
             @Override
-            void close(RecordStack<LexiconEntry> stack) {
-                stack.peek().setOrthography(getPcData());
+            boolean normalizesOnClose() {
+                return true;
+            }
+
+            @Override
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
+                stack.peek().setOrthography(pcData);
             }},
         ITYPE("itype", false){
             @Override
-            void close(RecordStack<LexiconEntry> stack) {
-                stack.peek().setiType(getPcData());
+            boolean normalizesOnClose() {
+                return true;
+            }
+
+            @Override
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
+                stack.peek().setiType(pcData);
             }},
         POS("pos", false){
             @Override
-            void close(RecordStack<LexiconEntry> stack) {
-                stack.peek().setPos(getPcData());
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
+                stack.peek().setPos(pcData);
             }},
         GEN("gen", false){
             @Override
-            void close(RecordStack<LexiconEntry> stack) {
-                stack.peek().setGender(getPcData());
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
+                stack.peek().setGender(pcData);
             }},
         //<trans><tr>from, away from, out of</tr></trans>  
         TRANS("trans", true){
             @Override
-            void open(RecordStack<LexiconEntry> stack, Attributes attributes){
-                stack.peek().appendToDefinition(getPcData());
-            }
-            @Override
-            void close(RecordStack<LexiconEntry> stack) {
-                stack.peek().appendToDefinition(getPcData());
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
+                stack.peek().appendToDefinition(pcData);
             }},
         TR("tr", true){
             @Override
-            void close(RecordStack<LexiconEntry> stack) {
-                stack.peek().appendToDefinition(getPcData());
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
+                stack.peek().appendToDefinition(pcData);
             }},
         //emph   <emph>pron</emph>
         EM("emph", true){
             @Override
-            void open(RecordStack<LexiconEntry> stack, Attributes attributes){
-                stack.peek().appendToDefinition(getPcData()).appendToDefinition("<em>");
+            void open(RecordStack<LexiconEntry> stack, XMLStreamReader attributes){
+                stack.peek().appendToDefinition("<em>");
             }
             @Override
-            void close(RecordStack<LexiconEntry> stack) {
-                 stack.peek().appendToDefinition(getPcData()).appendToDefinition("</em>");
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
+                 stack.peek().appendToDefinition(pcData).appendToDefinition("</em>");
             }
         },
 
         //etym  <etym lang="la">P. of abigo</etym>
         ETYM("etym", true){
             @Override
-            void open(RecordStack<LexiconEntry> stack, Attributes attributes){
-                stack.peek().appendToDefinition(getPcData()).appendToDefinition("<em>");
+            void open(RecordStack<LexiconEntry> stack, XMLStreamReader attributes){
+                stack.peek().appendToDefinition("<em>");
 
             }
             @Override
-            void close(RecordStack<LexiconEntry> stack) {
-                stack.peek().appendToDefinition(getPcData()).appendToDefinition("</em>");
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
+                stack.peek().appendToDefinition(pcData).appendToDefinition("</em>");
             }
 
         },
         //foreign <foreign lang="la">laborare ab re frumentari&amacr;</foreign>
         FOREIGN("foreign", true){
             @Override
-            void open(RecordStack<LexiconEntry> stack, Attributes attributes){
-                stack.peek().appendToDefinition(getPcData()).appendToDefinition("<em>");
+            void open(RecordStack<LexiconEntry> stack, XMLStreamReader attributes){
+                stack.peek().appendToDefinition("<em>");
             }
             @Override
-            void close(RecordStack<LexiconEntry> stack) {
-                stack.peek().appendToDefinition(getPcData()).appendToDefinition("</em>");
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
+                stack.peek().appendToDefinition(pcData).appendToDefinition("</em>");
             }
 
         },
         //form  <form><orth extent="full" lang="la"> A. a.</orth></form>
         FORM("form", false){
             @Override
-            void open(RecordStack<LexiconEntry> stack, Attributes attributes){
-
-            }
-            @Override
-            void close(RecordStack<LexiconEntry> stack) {
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
 
             }
         },
         //gramGrp  <gramGrp><itype> as an abbreviation, </itype></gramGrp>
         GRAM_GRP("gramGrp", false){
             @Override
-            void open(RecordStack<LexiconEntry> stack, Attributes attributes){
-
-            }
-            @Override
-            void close(RecordStack<LexiconEntry> stack) {
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
 
             }
         },
         //sense  <sense id="n0.0" level="3" n="1"> for the praenomen Aulus. </sense>
         SENSE("sense", false){
             @Override
-            void open(RecordStack<LexiconEntry> stack, Attributes attributes){
-                final String senseID = attributes.getValue("n");
+            void open(RecordStack<LexiconEntry> stack, XMLStreamReader attributes){
+                final String senseID = attributes.getAttributeValue(null, "n");
                 if (!senseID.equals("0")){
-                    stack.peek().appendToDefinition(getPcData()).appendToDefinition(String.format("(%s)", attributes.getValue("n")));
+                    stack.peek().appendToDefinition(String.format("(%s)", senseID));
                 }
             }
             @Override
-            void close(RecordStack<LexiconEntry> stack) {
-                stack.peek().appendToDefinition(getPcData());
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
+                stack.peek().appendToDefinition(pcData);
             }
         },
         //usg   <usg>V.</usg>
         USG("usg", true){
             @Override
-            void open(RecordStack<LexiconEntry> stack, Attributes attributes){
-               stack.peek().appendToDefinition(getPcData()).appendToDefinition("<em>");
+            void open(RecordStack<LexiconEntry> stack, XMLStreamReader attributes){
+               stack.peek().appendToDefinition("<em>");
             }
             @Override
-            void close(RecordStack<LexiconEntry> stack) {
-                stack.peek().appendToDefinition(getPcData()).appendToDefinition("</em>");
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
+                stack.peek().appendToDefinition(pcData).appendToDefinition("</em>");
             }
         },
         UNHANDLED("unhandled", false){
             @Override
-            void open(RecordStack<LexiconEntry> stack, Attributes attributes){
-
-            }
-            @Override
-            void close(RecordStack<LexiconEntry> stack) {
+            void close(RecordStack<LexiconEntry> stack, String pcData) {
 
             }};
 
 
+        private static final Map<String, Elements> BY_NAME = new HashMap<String, Elements>();
+        static {
+            for (Elements elem: values()){
+                BY_NAME.put(elem.getName(), elem);
+            }
+        }
+
         private final String        name;
-        private StringBuilder       pcData = new StringBuilder();
         private final boolean       flushBeforeOpen;
 
         Elements(String name, boolean flushBeforeOpen){
@@ -318,12 +368,23 @@ public class LexiconParser extends DefaultHandler implements RecordStack.Reposit
             this.flushBeforeOpen = flushBeforeOpen;
         }
 
-        void open(RecordStack<LexiconEntry> stack, Attributes attributes){}
+        void open(RecordStack<LexiconEntry> stack, XMLStreamReader attributes){}
 
-        abstract void close(RecordStack<LexiconEntry> stack);
+        abstract void close(RecordStack<LexiconEntry> stack, String pcData);
 
-        void pcData(char[] ch, int start, int length){
-            pcData.append(ch, start, length);
+        /**
+         * @return true if {@link #open(RecordStack, XMLStreamReader)} sets text through {@link Orthography},
+         * so that the parser times it as normalization
+         */
+        boolean normalizesOnOpen(){
+            return false;
+        }
+
+        /**
+         * @return true if {@link #close(RecordStack, String)} sets text through {@link Orthography}
+         */
+        boolean normalizesOnClose(){
+            return false;
         }
 
         public boolean flushBeforeOpen(){
@@ -334,19 +395,9 @@ public class LexiconParser extends DefaultHandler implements RecordStack.Reposit
             return name;
         }
 
-        public String getPcData() {
-            final String pcd = pcData.toString();
-            pcData.delete(0, pcData.length());
-            return pcd;
-        }
-
         public static Elements fromName(String name){
-            for (Elements elem: Elements.values()){
-                if (elem.getName().equals(name)){
-                    return elem;
-                }
-            }
-            return UNHANDLED;
+            final Elements elem = BY_NAME.get(name);
+            return elem == null ? UNHANDLED : elem;
         }
     }
 }
@@ -0,0 +1,455 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.latin;
+
+import org.magnopere.lexicon.sql.ImportTelemetry;
+import org.magnopere.lexicon.sql.MorphologySink;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * An alternative to {@link MorphologyParser} for latin.morph.xml on disk. The file is memory-mapped and cut
+ * into chunks at &lt;analysis&gt; boundaries; the chunks are scanned on a fork-join pool by a byte-level
+ * scanner which knows only this file's flat schema, and their records are handed to the persister in file
+ * order, so the output is the same whatever the parallelism.
+ * <p/>
+ * The scanner understands the predefined XML entities and character references only. Sources needing a
+ * DTD should go through {@link MorphologyParser}.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class MappedMorphologyParser {
+    private static final Logger LOG = Logger.getLogger(MappedMorphologyParser.class.getName());
+
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final byte[] ANALYSIS_OPEN   = ascii("<analysis");
+    private static final byte[] ANALYSIS_CLOSE  = ascii("</analysis>");
+
+    private final MorphologySink        persister;
+    private final File                  source;
+    private final int                   parallelism;
+
+    private int recordCount;
+
+    private ImportTelemetry telemetry = ImportTelemetry.NONE;
+
+
+    /**
+     * New instance using one thread per available processor
+     * @param persister persistent data repository
+     * @param source latin.morph.xml
+     */
+    public MappedMorphologyParser(MorphologySink persister, File source) {
+        this(persister, source, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * New instance
+     * @param persister persistent data repository
+     * @param source latin.morph.xml
+     * @param parallelism number of scanning threads
+     */
+    public MappedMorphologyParser(MorphologySink persister, File source, int parallelism) {
+        if (persister == null) throw new IllegalArgumentException("null: persister");
+        if (source == null || !source.isFile()) throw new IllegalArgumentException("Not a file: " + source);
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        this.persister = persister;
+        this.source = source;
+        this.parallelism = parallelism;
+        persister.buildMorphologyTable();
+    }
+
+    /**
+     * @param telemetry where the scan is measured; must be set before {@link #parse()}
+     */
+    public void setTelemetry(ImportTelemetry telemetry) {
+        if (telemetry == null) throw new IllegalArgumentException("null: telemetry");
+        this.telemetry = telemetry;
+    }
+
+    /**
+     * Scans the whole file, writing every analysis to the persister in file order
+     */
+    public void parse(){
+        final long start = System.nanoTime();
+        final RandomAccessFile file;
+        try {
+            file = new RandomAccessFile(source, "r");
+        } catch (IOException e){
+            throw new RuntimeException(e);
+        }
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            final FileChannel channel = file.getChannel();
+            if (channel.size() > Integer.MAX_VALUE){
+                throw new IllegalArgumentException(source + " is too large to map");
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final List<int[]> chunks = split(buffer);
+            // keep a bounded window of chunks in flight, collecting them in order
+            final LinkedList<Future<List<MorphologyAnalysis>>> pending = new LinkedList<Future<List<MorphologyAnalysis>>>();
+            for (final int[] chunk: chunks){
+                pending.add(pool.submit(new Callable<List<MorphologyAnalysis>>() {
+                    @Override
+                    public List<MorphologyAnalysis> call() {
+                        final ImportTelemetry.ParseMeter meter = telemetry.newParseMeter();
+                        final List<MorphologyAnalysis> analyses = new Scanner(buffer, meter).scan(chunk[0], chunk[1]);
+                        meter.addBytes(chunk[1] - chunk[0]);
+                        meter.publish();
+                        return analyses;
+                    }
+                }));
+                if (pending.size() >= parallelism * 2){
+                    write(pending.removeFirst().get());
+                }
+            }
+            while (!pending.isEmpty()){
+                write(pending.removeFirst().get());
+            }
+            final double seconds = (System.nanoTime() - start) / 1e9;
+            LOG.info(String.format("Scanned %d morphology records from %s in %d chunks on %d threads: %.1f s, %.1f MB/s.",
+                    recordCount, source, chunks.size(), parallelism, seconds, channel.size() / 1048576d / seconds));
+        } catch (RuntimeException e){
+            throw e;
+        } catch (Exception e){
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdownNow();
+            try {
+                file.close();
+            } catch (IOException e) {
+                // give up
+            }
+        }
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    private void write(List<MorphologyAnalysis> analyses){
+        for (MorphologyAnalysis analysis: analyses){
+            persister.writeAnalysis(analysis);
+        }
+        recordCount += analyses.size();
+    }
+
+    /**
+     * Cuts the buffer into chunks of roughly equal size, each starting at an &lt;analysis&gt; tag
+     * @return {start, end} offsets
+     */
+    private List<int[]> split(MappedByteBuffer buffer){
+        final int size = buffer.limit();
+        final int chunkSize = Math.max(MIN_CHUNK_SIZE, size / (parallelism * 8));
+        final List<int[]> chunks = new ArrayList<int[]>();
+        int start = indexOfAnalysis(buffer, 0, size);
+        while (start >= 0){
+            final int next = start + chunkSize >= size ? -1 : indexOfAnalysis(buffer, start + chunkSize, size);
+            chunks.add(new int[]{start, next < 0 ? size : next});
+            start = next;
+        }
+        return chunks;
+    }
+
+    private static int indexOfAnalysis(MappedByteBuffer buffer, int from, int to){
+        for (int i = indexOf(buffer, ANALYSIS_OPEN, from, to); i >= 0; i = indexOf(buffer, ANALYSIS_OPEN, i + 1, to)){
+            final int after = i + ANALYSIS_OPEN.length;
+            if (after < to){
+                final byte b = buffer.get(after);
+                if (b == '>' || b == ' ' || b == '\t' || b == '\r' || b == '\n') return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(MappedByteBuffer buffer, byte[] pattern, int from, int to){
+        final int last = to - pattern.length;
+        outer:
+        for (int i = from; i <= last; i++){
+            for (int j = 0; j < pattern.length; j++){
+                if (buffer.get(i + j) != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int indexOf(MappedByteBuffer buffer, byte b, int from){
+        for (int i = from; i < buffer.limit(); i++){
+            if (buffer.get(i) == b) return i;
+        }
+        return -1;
+    }
+
+    private static byte[] ascii(String s){
+        final byte[] bytes = new byte[s.length()];
+        for (int i = 0; i < bytes.length; i++){
+            bytes[i] = (byte) s.charAt(i);
+        }
+        return bytes;
+    }
+
+
+    /**
+     * The child elements of &lt;analysis&gt;, matched against the raw bytes of a tag name
+     */
+    private static enum Field {
+        CASE("case"){
+            @Override
+            void set(MorphologyAnalysis analysis, String value) { analysis.setGrammaticalCase(value); }
+        },
+        DEGREE("degree"){
+            @Override
+            void set(MorphologyAnalysis analysis, String value) { analysis.setDegree(value); }
+        },
+        FORM("form"){
+            @Override
+            void set(MorphologyAnalysis analysis, String value) { analysis.setForm(value); }
+
+            @Override
+            boolean normalizes() { return true; }
+        },
+        GENDER("gender"){
+            @Override
+            void set(MorphologyAnalysis analysis, String value) { analysis.setGender(value); }
+        },
+        LEMMA("lemma"){
+            @Override
+            void set(MorphologyAnalysis analysis, String value) { analysis.setLemma(value); }
+
+            @Override
+            boolean normalizes() { return true; }
+        },
+        MOOD("mood"){
+            @Override
+            void set(MorphologyAnalysis analysis, String value) { analysis.setMood(value); }
+        },
+        NUMBER("number"){
+            @Override
+            void set(MorphologyAnalysis analysis, String value) { analysis.setNumber(value); }
+        },
+        PERSON("person"){
+            @Override
+            void set(MorphologyAnalysis analysis, String value) { analysis.setPerson(value); }
+        },
+        POS("pos"){
+            @Override
+            void set(MorphologyAnalysis analysis, String value) { analysis.setPos(value); }
+        },
+        TENSE("tense"){
+            @Override
+            void set(MorphologyAnalysis analysis, String value) { analysis.setTense(value); }
+        },
+        VOICE("voice"){
+            @Override
+            void set(MorphologyAnalysis analysis, String value) { analysis.setVoice(value); }
+        };
+
+        private final byte[] name;
+
+        Field(String name){
+            this.name = ascii(name);
+        }
+
+        abstract void set(MorphologyAnalysis analysis, String value);
+
+        /**
+         * @return true if {@link #set(MorphologyAnalysis, String)} passes the value through {@link Orthography},
+         * so that the scanner times it as normalization
+         */
+        boolean normalizes() { return false; }
+
+        static Field fromName(MappedByteBuffer buffer, int start, int length){
+            for (Field field: values()){
+                if (field.name.length == length && matches(buffer, start, field.name)) return field;
+            }
+            return null;
+        }
+
+        private static boolean matches(MappedByteBuffer buffer, int start, byte[] name){
+            for (int i = 0; i < name.length; i++){
+                if (buffer.get(start + i) != name[i]) return false;
+            }
+            return true;
+        }
+    }
+
+
+    /**
+     * Scans one chunk. Each task has its own instance, as the decoding buffer is reused between values.
+     */
+    private static final class Scanner {
+        private final MappedByteBuffer  buffer;
+        private final StringBuilder     text = new StringBuilder();
+        private final ImportTelemetry.ParseMeter meter;
+
+        Scanner(MappedByteBuffer buffer, ImportTelemetry.ParseMeter meter){
+            this.buffer = buffer;
+            this.meter = meter;
+        }
+
+        List<MorphologyAnalysis> scan(int start, int end){
+            final List<MorphologyAnalysis> analyses = new ArrayList<MorphologyAnalysis>();
+            for (int pos = indexOfAnalysis(buffer, start, end); pos >= 0; pos = indexOfAnalysis(buffer, pos, end)){
+                final int bodyStart = indexOf(buffer, (byte) '>', pos) + 1;
+                final int bodyEnd = indexOf(buffer, ANALYSIS_CLOSE, bodyStart, buffer.limit());
+                if (bodyStart == 0 || bodyEnd < 0){
+                    throw new IllegalArgumentException("Unterminated <analysis> at byte " + pos);
+                }
+                analyses.add(scanAnalysis(bodyStart, bodyEnd));
+                meter.record();
+                pos = bodyEnd + ANALYSIS_CLOSE.length;
+            }
+            return analyses;
+        }
+
+        private MorphologyAnalysis scanAnalysis(int start, int end){
+            final MorphologyAnalysis analysis = new MorphologyAnalysis();
+            int pos = start;
+            while ((pos = indexOf(buffer, (byte) '<', pos)) >= 0 && pos < end){
+                final byte next = buffer.get(pos + 1);
+                if (next == '!' || next == '?'){
+                    // comment or processing instruction
+                    pos = next == '!' && buffer.get(pos + 2) == '-'
+                            ? indexOf(buffer, new byte[]{'-', '-', '>'}, pos, end) + 3
+                            : indexOf(buffer, (byte) '>', pos) + 1;
+                    continue;
+                }
+                final int nameStart = pos + 1;
+                int nameEnd = nameStart;
+                for (byte b = buffer.get(nameEnd); b != '>' && b != '/' && b > ' '; b = buffer.get(++nameEnd)){ }
+                final int tagEnd = indexOf(buffer, (byte) '>', nameEnd);
+                final Field field = Field.fromName(buffer, nameStart, nameEnd - nameStart);
+                if (buffer.get(tagEnd - 1) == '/'){
+                    // <gender/>: empty value
+                    if (field != null) set(field, analysis, "");
+                    pos = tagEnd + 1;
+                    continue;
+                }
+                final byte[] close = closingTag(nameStart, nameEnd);
+                final int valueEnd = indexOf(buffer, close, tagEnd + 1, end);
+                if (valueEnd < 0){
+                    throw new IllegalArgumentException("Unterminated element at byte " + pos);
+                }
+                if (field != null) set(field, analysis, decode(tagEnd + 1, valueEnd));
+                pos = valueEnd + close.length;
+            }
+            return analysis;
+        }
+
+        private void set(Field field, MorphologyAnalysis analysis, String value){
+            if (field.normalizes()){
+                final long start = System.nanoTime();
+                field.set(analysis, value);
+                meter.normalized(start);
+            } else {
+                field.set(analysis, value);
+            }
+        }
+
+        private byte[] closingTag(int nameStart, int nameEnd){
+            final byte[] close = new byte[nameEnd - nameStart + 3];
+            close[0] = '<';
+            close[1] = '/';
+            for (int i = nameStart; i < nameEnd; i++){
+                close[i - nameStart + 2] = buffer.get(i);
+            }
+            close[close.length - 1] = '>';
+            return close;
+        }
+
+        /**
+         * Decodes UTF-8 character data, resolving the predefined entities and character references
+         */
+        private String decode(int start, int end){
+            text.setLength(0);
+            int i = start;
+            while (i < end){
+                final int b = buffer.get(i) & 0xFF;
+                if (b == '&'){
+                    final int semi = indexOf(buffer, (byte) ';', i);
+                    if (semi < 0 || semi >= end) throw new IllegalArgumentException("Unterminated entity at byte " + i);
+                    appendEntity(i + 1, semi);
+                    i = semi + 1;
+                } else if (b < 0x80){
+                    text.append((char) b);
+                    i++;
+                } else if (b < 0xE0){
+                    text.append((char) (((b & 0x1F) << 6) | (buffer.get(i + 1) & 0x3F)));
+                    i += 2;
+                } else if (b < 0xF0){
+                    text.append((char) (((b & 0x0F) << 12) | ((buffer.get(i + 1) & 0x3F) << 6) | (buffer.get(i + 2) & 0x3F)));
+                    i += 3;
+                } else {
+                    text.appendCodePoint(((b & 0x07) << 18) | ((buffer.get(i + 1) & 0x3F) << 12)
+                            | ((buffer.get(i + 2) & 0x3F) << 6) | (buffer.get(i + 3) & 0x3F));
+                    i += 4;
+                }
+            }
+            return text.toString();
+        }
+
+        private void appendEntity(int start, int end){
+            final StringBuilder name = new StringBuilder(end - start);
+            for (int i = start; i < end; i++){
+                name.append((char) buffer.get(i));
+            }
+            final String entity = name.toString();
+            if ("amp".equals(entity)){
+                text.append('&');
+            } else if ("lt".equals(entity)){
+                text.append('<');
+            } else if ("gt".equals(entity)){
+                text.append('>');
+            } else if ("quot".equals(entity)){
+                text.append('"');
+            } else if ("apos".equals(entity)){
+                text.append('\'');
+            } else if (entity.startsWith("#x") || entity.startsWith("#X")){
+                text.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+            } else if (entity.startsWith("#")){
+                text.appendCodePoint(Integer.parseInt(entity.substring(1)));
+            } else {
+                throw new IllegalArgumentException("Unsupported entity &" + entity + "; use MorphologyParser for this source");
+            }
+        }
+    }
+}
@@ -38,6 +38,30 @@ import static org.magnopere.lexicon.latin.Orthography.*;
  */
 
 public class MorphologyAnalysis {
+    /*
+     * Bit layout of getFeatures(). Each field holds the ordinal of its value plus one, zero meaning the feature
+     * is absent; the enums below may therefore only ever be appended to.
+     */
+    private static final int CASE_SHIFT     = 0;
+    private static final int DEGREE_SHIFT   = 3;
+    private static final int GENDER_SHIFT   = 5;
+    private static final int MOOD_SHIFT     = 7;
+    private static final int NUMBER_SHIFT   = 10;
+    private static final int PERSON_SHIFT   = 12;
+    private static final int POS_SHIFT      = 14;
+    private static final int TENSE_SHIFT    = 18;
+    private static final int VOICE_SHIFT    = 21;
+
+    private static final Case[]     CASES   = Case.values();
+    private static final Degree[]   DEGREES = Degree.values();
+    private static final Gender[]   GENDERS = Gender.values();
+    private static final Mood[]     MOODS   = Mood.values();
+    private static final Number[]   NUMBERS = Number.values();
+    private static final Person[]   PERSONS = Person.values();
+    private static final POS[]      POSES   = POS.values();
+    private static final Tense[]    TENSES  = Tense.values();
+    private static final Voice[]    VOICES  = Voice.values();
+
     private String form = "";
     private String lemma = "";
 
@@ -106,7 +130,7 @@ public class MorphologyAnalysis {
     }
 
     public void setForm(String form) {
-        this.form = rectify(form);
+        this.form = normalize(form);
     }
 
     public void setGender(String gender) {
@@ -122,7 +146,8 @@ public class MorphologyAnalysis {
     }
 
     public void setLemma(String lemma) {
-        this.lemma = rectify(lemma.replaceAll("#.*?$", ""));
+        final int homonym = lemma.indexOf('#');
+        this.lemma = normalize(homonym < 0 ? lemma : lemma.substring(0, homonym));
     }
 
     public void setMood(String mood) {
@@ -161,6 +186,47 @@ public class MorphologyAnalysis {
         }
     }
 
+    /**
+     * @return all nine features packed into the low 23 bits of an int
+     */
+    public int getFeatures() {
+        return pack(grammaticalCase, CASE_SHIFT)
+                | pack(degree, DEGREE_SHIFT)
+                | pack(gender, GENDER_SHIFT)
+                | pack(mood, MOOD_SHIFT)
+                | pack(number, NUMBER_SHIFT)
+                | pack(person, PERSON_SHIFT)
+                | pack(pos, POS_SHIFT)
+                | pack(tense, TENSE_SHIFT)
+                | pack(voice, VOICE_SHIFT);
+    }
+
+    /**
+     * Sets all nine features from the value of {@link #getFeatures()}
+     * @param features packed features
+     */
+    public void setFeatures(int features) {
+        grammaticalCase = unpack(features, CASE_SHIFT, DEGREE_SHIFT, CASES);
+        degree          = unpack(features, DEGREE_SHIFT, GENDER_SHIFT, DEGREES);
+        gender          = unpack(features, GENDER_SHIFT, MOOD_SHIFT, GENDERS);
+        mood            = unpack(features, MOOD_SHIFT, NUMBER_SHIFT, MOODS);
+        number          = unpack(features, NUMBER_SHIFT, PERSON_SHIFT, NUMBERS);
+        person          = unpack(features, PERSON_SHIFT, POS_SHIFT, PERSONS);
+        pos             = unpack(features, POS_SHIFT, TENSE_SHIFT, POSES);
+        tense           = unpack(features, TENSE_SHIFT, VOICE_SHIFT, TENSES);
+        voice           = unpack(features, VOICE_SHIFT, VOICE_SHIFT + 2, VOICES);
+    }
+
+    private static int pack(Enum<?> value, int shift){
+        return value == null ? 0 : (value.ordinal() + 1) << shift;
+    }
+
+    private static <E extends Enum<E>> E unpack(int features, int shift, int nextShift, E[] values){
+        final int code = (features >>> shift) & ((1 << (nextShift - shift)) - 1);
+        if (code > values.length) throw new IllegalArgumentException(String.format("Bad features: %x", features));
+        return code == 0 ? null : values[code - 1];
+    }
+
     @Override
     public String toString() {
         return "MorphologyAnalysis{" +
@@ -29,76 +29,114 @@
 
 package org.magnopere.lexicon.latin;
 
-import org.magnopere.lexicon.sql.DataRepository;
-import org.magnopere.lexicon.sql.PersistenceStrategy;
-import org.xml.sax.Attributes;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
-
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+import org.magnopere.lexicon.sql.ImportTelemetry;
+import org.magnopere.lexicon.sql.MorphologySink;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 import java.io.InputStream;
-import java.util.Stack;
-import java.util.logging.Logger;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
+ * All parse state belongs to the instance, so any number of parsers may run at once.
  * @author Roger Grantham
  * @since May 29, 2011
  */
-public class MorphologyParser  extends DefaultHandler implements RecordStack.RepositoryListener<MorphologyAnalysis> {
-    private static final String LEXICON_PATH = "/org/perseus/lexicon/latin.morph.xml";
-    private static final Logger LOG = Logger.getLogger(MorphologyParser.class.getName());
-    
+public class MorphologyParser implements RecordStack.RepositoryListener<MorphologyAnalysis> {
+    public static final String LEXICON_PATH = "/org/perseus/lexicon/latin.morph.xml";
+
     private final InputStream lexicon;
 
-    private final Stack<Elements> elementStack = new Stack<Elements>();
+    private final ElementStack<Elements> elementStack = new ElementStack<Elements>();
 
     private final RecordStack<MorphologyAnalysis> recordStack;
 
-    private final PersistenceStrategy persister;
+    private final MorphologySink persister;
 
     private int recordCount;
 
+    private ImportTelemetry telemetry = ImportTelemetry.NONE;
+
+    private ImportTelemetry.ParseMeter meter;
+
+
+    /**
+     * New Instance reading the analyses from the classpath
+     * @param persister persistent data repository
+     */
+    public MorphologyParser(MorphologySink persister) {
+        this(persister, MorphologyParser.class.getResourceAsStream(LEXICON_PATH));
+    }
 
     /**
      * New Instance
      * @param persister persistent data repository
+     * @param lexicon UTF-8 encoded morphological analyses XML
      */
-    public MorphologyParser(PersistenceStrategy persister) {
+    public MorphologyParser(MorphologySink persister, InputStream lexicon) {
         if (persister == null) throw new IllegalArgumentException("null: persister");
+        if (lexicon == null) throw new IllegalArgumentException("null: lexicon");
         this.persister = persister;
         persister.buildMorphologyTable();
-        lexicon = getClass().getResourceAsStream(LEXICON_PATH);
+        this.lexicon = lexicon;
         recordStack = new RecordStack<MorphologyAnalysis>();
         recordStack.addListener(this);
     }
 
+    /**
+     * @param telemetry where the parse is measured; must be set before {@link #parse()}
+     */
+    public void setTelemetry(ImportTelemetry telemetry) {
+        if (telemetry == null) throw new IllegalArgumentException("null: telemetry");
+        this.telemetry = telemetry;
+    }
 
     /**
      * Performs the actual lexicon parsing
      */
     public void parse(){
-        final SAXParserFactory factory = SAXParserFactory.newInstance();
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        meter = telemetry.newParseMeter();
         try {
-            final SAXParser saxParser = factory.newSAXParser();
-            final InputSource source = new InputSource(lexicon);
-            source.setEncoding("UTF-8");
-            saxParser.parse(source, this);
+            final XMLStreamReader reader = factory.createXMLStreamReader(meter.count(lexicon), "UTF-8");
+            try {
+                while (reader.hasNext()){
+                    switch (reader.next()){
+                        case XMLStreamConstants.START_ELEMENT:
+                            startElement(reader);
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.CDATA:
+                            elementStack.pcData(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            endElement();
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } finally {
+                reader.close();
+                meter.publish();
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    @Override
-    public void characters(char[] ch, int start, int length) throws SAXException {
-        elementStack.peek().pcData(ch, start, length);
-    }
-
-    @Override
-    public void endElement(String uri, String localName, String qName) throws SAXException {
-        final Elements handler = elementStack.pop();
-        handler.close(recordStack);
+    private void endElement() {
+        final Elements handler = elementStack.peek();
+        if (handler.normalizes()){
+            final long start = System.nanoTime();
+            handler.close(recordStack, elementStack.getPcData());
+            meter.normalized(start);
+        } else {
+            handler.close(recordStack, elementStack.getPcData());
+        }
+        elementStack.pop();
     }
 
     public int getRecordCount() {
@@ -113,10 +151,9 @@ public class MorphologyParser  extends DefaultHandler implements RecordStack.Rep
     @Override
     public void popCalled(MorphologyAnalysis rec) {
         recordCount++;
-        if (recordCount % 2000 == 0){
-            LOG.info(String.format("Wrote %d morphology records. Last record: %n%s", recordCount, rec));
-        }
+        final long start = System.nanoTime();
         persister.writeAnalysis(rec);
+        meter.handedOff(start);
     }
 
     @Override
@@ -124,131 +161,144 @@ public class MorphologyParser  extends DefaultHandler implements RecordStack.Rep
 
     }
 
-    @Override
-    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
-        final Elements handler = Elements.fromName(qName);
+    private void startElement(XMLStreamReader reader) {
+        final Elements handler = Elements.fromName(reader.getLocalName());
         elementStack.push(handler);
-        handler.open(recordStack, attributes);
+        handler.open(recordStack);
     }
 
+    /**
+     * Handlers for the elements of interest. These hold no state; the character data of each open element
+     * is kept by the parser's ElementStack and handed to {@link #close(RecordStack, String)}.
+     */
     private enum Elements {
         ANALYSIS("analysis"){
             @Override
-            void open(RecordStack<MorphologyAnalysis> stack, Attributes attributes) {
+            void open(RecordStack<MorphologyAnalysis> stack) {
                 stack.push(new MorphologyAnalysis());
             }
 
             @Override
-            void close(RecordStack<MorphologyAnalysis> stack){
+            void close(RecordStack<MorphologyAnalysis> stack, String pcData){
                 stack.pop();
             }
         },
         CASE("case"){
             @Override
-            void close(RecordStack<MorphologyAnalysis> stack){
-                stack.peek().setGrammaticalCase(getPcData());
+            void close(RecordStack<MorphologyAnalysis> stack, String pcData){
+                stack.peek().setGrammaticalCase(pcData);
             }
         },
         DEGREE("degree"){
             @Override
-            void close(RecordStack<MorphologyAnalysis> stack){
-                stack.peek().setDegree(getPcData());
+            void close(RecordStack<MorphologyAnalysis> stack, String pcData){
+                stack.peek().setDegree(pcData);
             }
         },
         FORM("form"){
             @Override
-            void close(RecordStack<MorphologyAnalysis> stack){
-                stack.peek().setForm(getPcData());
+            boolean normalizes() {
+                return true;
+            }
+
+            @Override
+            void close(RecordStack<MorphologyAnalysis> stack, String pcData){
+                stack.peek().setForm(pcData);
             }
         },
         GENDER("gender"){
             @Override
-            void close(RecordStack<MorphologyAnalysis> stack){
-                stack.peek().setGender(getPcData());
+            void close(RecordStack<MorphologyAnalysis> stack, String pcData){
+                stack.peek().setGender(pcData);
             }
         },
         LEMMA("lemma"){
             @Override
-            void close(RecordStack<MorphologyAnalysis> stack){
-                stack.peek().setLemma(getPcData());
+            boolean normalizes() {
+                return true;
+            }
+
+            @Override
+            void close(RecordStack<MorphologyAnalysis> stack, String pcData){
+                stack.peek().setLemma(pcData);
             }
         },
         MOOD("mood"){
             @Override
-            void close(RecordStack<MorphologyAnalysis> stack){
-                stack.peek().setMood(getPcData());
+            void close(RecordStack<MorphologyAnalysis> stack, String pcData){
+                stack.peek().setMood(pcData);
             }
         },
         NUMBER("number"){
             @Override
-            void close(RecordStack<MorphologyAnalysis> stack){
-                stack.peek().setNumber(getPcData());
+            void close(RecordStack<MorphologyAnalysis> stack, String pcData){
+                stack.peek().setNumber(pcData);
             }
         },
         PERSON("person"){
             @Override
-            void close(RecordStack<MorphologyAnalysis> stack){
-                stack.peek().setPerson(getPcData());
+            void close(RecordStack<MorphologyAnalysis> stack, String pcData){
+                stack.peek().setPerson(pcData);
             }
         },
         POS("pos"){
             @Override
-            void close(RecordStack<MorphologyAnalysis> stack){
-                stack.peek().setPos(getPcData());
+            void close(RecordStack<MorphologyAnalysis> stack, String pcData){
+                stack.peek().setPos(pcData);
             }
         },
         TENSE("tense"){
             @Override
-            void close(RecordStack<MorphologyAnalysis> stack){
-                stack.peek().setTense(getPcData());
+            void close(RecordStack<MorphologyAnalysis> stack, String pcData){
+                stack.peek().setTense(pcData);
             }
         },
         VOICE("voice"){
             @Override
-            void close(RecordStack<MorphologyAnalysis> stack){
-                stack.peek().setVoice(getPcData());
+            void close(RecordStack<MorphologyAnalysis> stack, String pcData){
+                stack.peek().setVoice(pcData);
             }
         },
 
           UNHANDLED("unhandled"){
             @Override
-            void close(RecordStack<MorphologyAnalysis> stack) {
+            void close(RecordStack<MorphologyAnalysis> stack, String pcData) {
             }
           };
 
 
+        private static final Map<String, Elements> BY_NAME = new HashMap<String, Elements>();
+        static {
+            for (Elements elem: values()){
+                BY_NAME.put(elem.getName(), elem);
+            }
+        }
+
         private final String name;
-        private StringBuilder       pcData = new StringBuilder();
 
         Elements(String name){
             this.name = name;
         }
 
-        void open(RecordStack<MorphologyAnalysis> stack, Attributes attributes){};
+        void open(RecordStack<MorphologyAnalysis> stack){};
 
-        abstract void close(RecordStack<MorphologyAnalysis> stack);
+        abstract void close(RecordStack<MorphologyAnalysis> stack, String pcData);
 
-        void pcData(char[] ch, int start, int length){
-            pcData.append(ch, start, length);
+        /**
+         * @return true if {@link #close(RecordStack, String)} sets text through {@link Orthography}, so that
+         * the parser times it as normalization
+         */
+        boolean normalizes(){
+            return false;
         }
 
         public String getName() {
             return name;
         }
 
-        public String getPcData() {
-            final String pcd = pcData.toString();
-            pcData.delete(0, pcData.length());
-            return pcd;
-        }
-
         public static Elements fromName(String name){
-            for (Elements elem: Elements.values()){
-                if (elem.getName().equals(name)){
-                    return elem;
-                }
-            }
-            return UNHANDLED;
+            final Elements elem = BY_NAME.get(name);
+            return elem == null ? UNHANDLED : elem;
         }
     }
 }
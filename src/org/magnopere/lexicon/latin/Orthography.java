@@ -29,25 +29,111 @@
 
 package org.magnopere.lexicon.latin;
 
+import java.text.Normalizer;
+
 /**
- * Rectifies all latin input to u/i orthography
+ * Rectifies all latin input to u/i orthography. Both conversions are a single pass over a precomputed table
+ * and return the input itself, without copying, when it is a String already in the target orthography.
  * @author Roger Grantham
  * @since May 30, 2011
  */
 public class Orthography {
 
+    /** Characters below this, ASCII through Latin Extended-B, are converted by table */
+    private static final int TABLE_SIZE = 0x250;
+    private static final char[] RECTIFIED = new char[TABLE_SIZE];
+    private static final char[] FOLDED = new char[TABLE_SIZE];
+    /** Second letter of a ligature folded in two, e.g. the 'e' of \u00e6, otherwise 0 */
+    private static final char[] LIGATURES = new char[TABLE_SIZE];
+    static {
+        for (char c = 0; c < TABLE_SIZE; c++){
+            RECTIFIED[c] = rectify(c);
+        }
+        ligature('\u00e6', 'a', 'e');
+        ligature('\u00c6', 'a', 'e');
+        ligature('\u0153', 'o', 'e');
+        ligature('\u0152', 'o', 'e');
+        for (char c = 0; c < TABLE_SIZE; c++){
+            if (LIGATURES[c] != 0) continue;
+            // the base letter of a precomposed letter with macron, breve or any other mark
+            final char base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+            if (base >= TABLE_SIZE){
+                FOLDED[c] = RECTIFIED[c];
+            } else if (LIGATURES[base] != 0){
+                // a ligature with a mark, such as \u01e3, is written out as the bare one is
+                ligature(c, FOLDED[base], LIGATURES[base]);
+            } else {
+                FOLDED[c] = RECTIFIED[base];
+            }
+        }
+    }
+
     /**
      * Do not instantiate
      */
     private Orthography() { }
 
+    private static char rectify(char c){
+        final char lower = Character.toLowerCase(c);
+        switch (lower){
+            case 'v': return 'u';
+            case 'j': return 'i';
+            default:  return lower;
+        }
+    }
+
+    private static void ligature(char ligature, char first, char second){
+        FOLDED[ligature] = first;
+        LIGATURES[ligature] = second;
+    }
+
+    private static boolean isCombiningMark(char c){
+        return c >= '\u0300' && c <= '\u036f';
+    }
+
     /**
      * Enforces an orthography in which letters are lower case and consonantal "u" and "i" are used.
+     * Diacritics are kept, so this suits text that is displayed, such as a lexicon entry's orthography.
      * @param text to convert
      * @return rectified string
      */
-    public static String rectify(String text){
-        return text.toLowerCase().replaceAll("v", "u").replaceAll("j", "i");
+    public static String rectify(CharSequence text){
+        return convert(text, RECTIFIED, false);
     }
 
+    /**
+     * Rectifies the text as {@link #rectify(CharSequence)} does and further folds it to bare letters: macrons,
+     * breves and other diacritics are dropped and the ligatures \u00e6 and \u0153, marked or not, written out, so
+     * that "C\u00e6s\u0103r", "C\u01e3sar" and "caesar" normalize alike. Forms, lemmas and lexicon keys are compared
+     * in this form.
+     * @param text to convert
+     * @return normalized string
+     */
+    public static String normalize(CharSequence text){
+        return convert(text, FOLDED, true);
+    }
+
+    private static String convert(CharSequence text, char[] table, boolean fold){
+        final int length = text.length();
+        int i = 0;
+        while (i < length){
+            final char c = text.charAt(i);
+            if (c >= TABLE_SIZE || table[c] != c) break;
+            i++;
+        }
+        if (i == length) return text.toString();
+        final StringBuilder converted = new StringBuilder(length + 2).append(text, 0, i);
+        for (; i < length; i++){
+            final char c = text.charAt(i);
+            if (c < TABLE_SIZE){
+                converted.append(table[c]);
+                if (fold && LIGATURES[c] != 0){
+                    converted.append(LIGATURES[c]);
+                }
+            } else if (!(fold && isCombiningMark(c))){
+                converted.append(Character.toLowerCase(c));
+            }
+        }
+        return converted.toString();
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.logging.Logger;
+
+/**
+ * Wraps an insert statement so that rows are sent with addBatch/executeBatch and committed every
+ * <code>batchSize</code> rows rather than one auto-committed row at a time. The connection must
+ * not be in auto-commit mode.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+class BatchInserter {
+    private static final Logger LOG = Logger.getLogger(BatchInserter.class.getName());
+
+    private final Connection        conn;
+    private final PreparedStatement insert;
+    private final String            table;
+    private final int               batchSize;
+
+    private int     pending;
+    private long    rows;
+    private long    startNanos;
+    private long    lastNanos;
+
+
+    BatchInserter(Connection conn, String table, String sql, int batchSize) throws SQLException {
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        this.conn       = conn;
+        this.table      = table;
+        this.batchSize  = batchSize;
+        this.insert     = conn.prepareStatement(sql);
+    }
+
+    /**
+     * @return the statement whose parameters are to be bound before calling {@link #add()}
+     */
+    PreparedStatement getStatement() {
+        return insert;
+    }
+
+    /**
+     * Adds the currently bound parameters as a row, executing and committing the batch once it is full
+     * @throws SQLException on failure
+     */
+    void add() throws SQLException {
+        if (rows == 0){
+            startNanos = System.nanoTime();
+        }
+        insert.addBatch();
+        lastNanos = System.nanoTime();
+        rows++;
+        if (++pending >= batchSize){
+            flush();
+        }
+    }
+
+    /**
+     * Executes and commits any rows not yet sent
+     * @throws SQLException on failure
+     */
+    void flush() throws SQLException {
+        if (pending > 0){
+            insert.executeBatch();
+            conn.commit();
+            pending = 0;
+        }
+    }
+
+    /**
+     * Flushes outstanding rows, releases the statement and reports throughput for the table
+     * @throws SQLException on failure
+     */
+    void finish() throws SQLException {
+        flush();
+        insert.close();
+        final double seconds = (lastNanos - startNanos) / 1e9;
+        LOG.info(String.format("Wrote %d rows to %s in %.1f s (%.0f rows/sec, batch size %d).",
+                rows, table, seconds, seconds > 0 ? rows / seconds : 0d, batchSize));
+    }
+
+    long getRowCount() {
+        return rows;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+/**
+ * Layout of verba.idx, the read-only lookup file written by {@link BinaryIndexWriter} and read by
+ * {@link BinaryRepository}. All integers are big-endian; offsets are from the start of the file and string
+ * references are offsets into the string section.
+ * <pre>
+ * header       MAGIC, VERSION, then the counts and section offsets below, HEADER_SIZE bytes
+ * forms        per form, sorted by UTF-8 bytes:  string, first analysis, analysis count
+ * analyses     per analysis, grouped by form:    lemma index, packed features
+ * lemmas       per lemma, sorted by UTF-8 bytes: string, first entry, entry count
+ * entries      per entry, grouped by lemma:      ordinality, orthography, endings, gender, pos,
+ *                                                definition offset, definition length
+ * strings      each an unsigned 16 bit length followed by UTF-8 bytes, shared by equal values
+ * definitions  compressed by a DefinitionCodec, addressed from the definitions section
+ * dictionary   the codec's preset dictionary
+ * </pre>
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+final class BinaryIndexFormat {
+
+    static final int MAGIC          = 0x56524249; // "VRBI"
+    static final int VERSION        = 1;
+
+    static final int FORM_COUNT             = 8;
+    static final int LEMMA_COUNT            = 12;
+    static final int ENTRY_COUNT            = 16;
+    static final int FORMS_OFFSET           = 20;
+    static final int ANALYSES_OFFSET        = 24;
+    static final int LEMMAS_OFFSET          = 28;
+    static final int ENTRIES_OFFSET         = 32;
+    static final int STRINGS_OFFSET         = 36;
+    static final int DEFINITIONS_OFFSET     = 40;
+    static final int DICTIONARY_OFFSET      = 44;
+    static final int DICTIONARY_LENGTH      = 48;
+    static final int HEADER_SIZE            = 64;
+
+    static final int FORM_SIZE      = 12;
+    static final int ANALYSIS_SIZE  = 8;
+    static final int LEMMA_SIZE     = 12;
+    static final int ENTRY_SIZE     = 28;
+
+    static final int MAX_STRING_LENGTH = 0xffff;
+
+    /** Not to be implemented */
+    private BinaryIndexFormat() {
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import org.magnopere.lexicon.latin.LexiconEntry;
+import org.magnopere.lexicon.latin.MorphologyAnalysis;
+
+import java.io.*;
+import java.util.*;
+import java.util.logging.Logger;
+
+import static org.magnopere.lexicon.sql.BinaryIndexFormat.*;
+
+/**
+ * Writes verba.idx, a read-only file answering lookups by binary search over memory-mapped tables; see
+ * {@link BinaryIndexFormat}. Records are gathered in memory, with forms and lemmas interned, and the file is
+ * laid out once they are all in.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class BinaryIndexWriter implements PersistenceStrategy {
+    private static final Logger LOG = Logger.getLogger(BinaryIndexWriter.class.getName());
+
+    private final File                  file;
+    private final Map<String, Integer>  formIds     = new HashMap<String, Integer>();
+    private final List<String>          forms       = new ArrayList<String>();
+    private final Map<String, Integer>  lemmaIds    = new HashMap<String, Integer>();
+    private final List<String>          lemmas      = new ArrayList<String>();
+    private final List<LexiconEntry>    entries     = new ArrayList<LexiconEntry>();
+
+    private int[]   analysisForms       = new int[1 << 16];
+    private int[]   analysisLemmas      = new int[1 << 16];
+    private int[]   analysisFeatures    = new int[1 << 16];
+    private int     analysisCount;
+
+    private DefinitionCodec     codec;
+    /** Samples the first definitions for the codec's dictionary, null once it has been trained */
+    private DictionaryTrainer   trainer;
+    private ImportTelemetry     telemetry = ImportTelemetry.NONE;
+    private boolean             written;
+
+
+    /**
+     * New instance
+     * @param outputDir directory to which verba.idx is written
+     */
+    public BinaryIndexWriter(File outputDir) {
+        if (outputDir == null) throw new IllegalArgumentException("null: outputDir");
+        this.file = new File(outputDir, BinaryRepository.INDEX_FILE_NAME);
+    }
+
+    /**
+     * Times the compression of definitions, and the training of the codec, against the given telemetry
+     * @param telemetry telemetry for the import
+     */
+    public void setTelemetry(ImportTelemetry telemetry) {
+        if (telemetry == null) throw new IllegalArgumentException("null: telemetry");
+        this.telemetry = telemetry;
+    }
+
+    @Override
+    public void buildLexiconTable() {
+        trainer = new DictionaryTrainer();
+    }
+
+    @Override
+    public void buildMorphologyTable() {
+    }
+
+    @Override
+    public void writeAnalysis(MorphologyAnalysis analysis) {
+        if (analysisCount == analysisForms.length){
+            analysisForms = Arrays.copyOf(analysisForms, analysisCount * 2);
+            analysisLemmas = Arrays.copyOf(analysisLemmas, analysisCount * 2);
+            analysisFeatures = Arrays.copyOf(analysisFeatures, analysisCount * 2);
+        }
+        analysisForms[analysisCount] = intern(formIds, forms, analysis.getForm());
+        analysisLemmas[analysisCount] = intern(lemmaIds, lemmas, analysis.getLemma());
+        analysisFeatures[analysisCount] = analysis.getFeatures();
+        analysisCount++;
+    }
+
+    @Override
+    public void writeLexiconEntry(LexiconEntry entry) {
+        intern(lemmaIds, lemmas, entry.getKey());
+        entries.add(entry);
+        if (trainer != null && trainer.add(entry)){
+            codec = telemetry.train(trainer);
+            trainer = null;
+        }
+    }
+
+    private static int intern(Map<String, Integer> ids, List<String> values, String value){
+        Integer id = ids.get(value);
+        if (id == null){
+            id = values.size();
+            ids.put(value, id);
+            values.add(value);
+        }
+        return id;
+    }
+
+    /**
+     * Lays out and writes the file
+     */
+    @Override
+    public void buildIndexes() {
+        if (written) return;
+        final long start = System.nanoTime();
+        if (codec == null){
+            codec = trainer != null ? telemetry.train(trainer) : new DefinitionCodec(new byte[0]);
+            trainer = null;
+        }
+        try {
+            write();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        written = true;
+        LOG.info(String.format("Wrote %d forms, %d analyses, %d lemmas and %d entries to %s (%d bytes) in %.1f s.",
+                forms.size(), analysisCount, lemmas.size(), entries.size(), file, file.length(),
+                (System.nanoTime() - start) / 1e9));
+    }
+
+    private void write() throws IOException {
+        final StringHeap strings = new StringHeap();
+
+        // forms in byte order, each with its analyses in the order written
+        final int[] formOrder = sortedOrder(forms);
+        final int[] formRank = rank(formOrder);
+        final int[] firstAnalysis = new int[forms.size() + 1];
+        for (int i = 0; i < analysisCount; i++){
+            firstAnalysis[formRank[analysisForms[i]] + 1]++;
+        }
+        for (int i = 0; i < forms.size(); i++){
+            firstAnalysis[i + 1] += firstAnalysis[i];
+        }
+        final int[] analysisOrder = new int[analysisCount];
+        final int[] filled = new int[forms.size()];
+        for (int i = 0; i < analysisCount; i++){
+            final int rank = formRank[analysisForms[i]];
+            analysisOrder[firstAnalysis[rank] + filled[rank]++] = i;
+        }
+
+        // lemmas in byte order, each with its entries by ordinality
+        final int[] lemmaOrder = sortedOrder(lemmas);
+        final int[] lemmaRank = rank(lemmaOrder);
+        final List<Integer> entryOrder = new ArrayList<Integer>(entries.size());
+        for (int i = 0; i < entries.size(); i++){
+            entryOrder.add(i);
+        }
+        final int[] entryRank = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++){
+            entryRank[i] = lemmaRank[lemmaIds.get(entries.get(i).getKey())];
+        }
+        Collections.sort(entryOrder, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                if (entryRank[a] != entryRank[b]) return entryRank[a] < entryRank[b] ? -1 : 1;
+                final int ordinalityA = entries.get(a).getOrdinality(), ordinalityB = entries.get(b).getOrdinality();
+                return ordinalityA < ordinalityB ? -1 : ordinalityA > ordinalityB ? 1 : 0;
+            }
+        });
+        final int[] firstEntry = new int[lemmas.size() + 1];
+        for (int i = 0; i < entries.size(); i++){
+            firstEntry[entryRank[i] + 1]++;
+        }
+        for (int i = 0; i < lemmas.size(); i++){
+            firstEntry[i + 1] += firstEntry[i];
+        }
+
+        // string references and definitions, before the tables which point at them
+        final int[] formRefs = new int[forms.size()];
+        for (int i = 0; i < formOrder.length; i++){
+            formRefs[i] = strings.ref(forms.get(formOrder[i]));
+        }
+        final int[] lemmaRefs = new int[lemmas.size()];
+        for (int i = 0; i < lemmaOrder.length; i++){
+            lemmaRefs[i] = strings.ref(lemmas.get(lemmaOrder[i]));
+        }
+        final int[] entryFields = new int[entries.size() * (ENTRY_SIZE / 4)];
+        final ByteArrayOutputStream definitions = new ByteArrayOutputStream();
+        for (int i = 0, field = 0; i < entries.size(); i++){
+            final LexiconEntry entry = entries.get(entryOrder.get(i));
+            final byte[] definition = telemetry.encode(codec, entry.getDefinition());
+            entryFields[field++] = entry.getOrdinality();
+            entryFields[field++] = strings.ref(entry.getOrthography());
+            entryFields[field++] = strings.ref(entry.getiType());
+            entryFields[field++] = strings.ref(entry.getGender());
+            entryFields[field++] = strings.ref(entry.getPos());
+            entryFields[field++] = definitions.size();
+            entryFields[field++] = definition.length;
+            definitions.write(definition);
+        }
+        final byte[] dictionary = codec.getDictionary();
+
+        final long formsOffset = HEADER_SIZE;
+        final long analysesOffset = formsOffset + (long) FORM_SIZE * forms.size();
+        final long lemmasOffset = analysesOffset + (long) ANALYSIS_SIZE * analysisCount;
+        final long entriesOffset = lemmasOffset + (long) LEMMA_SIZE * lemmas.size();
+        final long stringsOffset = entriesOffset + (long) ENTRY_SIZE * entries.size();
+        final long definitionsOffset = stringsOffset + strings.size();
+        final long dictionaryOffset = definitionsOffset + definitions.size();
+        if (dictionaryOffset + dictionary.length > Integer.MAX_VALUE){
+            throw new IllegalStateException("Index exceeds 2 GiB: " + (dictionaryOffset + dictionary.length));
+        }
+
+        final File temp = new File(file.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(forms.size());
+            out.writeInt(lemmas.size());
+            out.writeInt(entries.size());
+            out.writeInt((int) formsOffset);
+            out.writeInt((int) analysesOffset);
+            out.writeInt((int) lemmasOffset);
+            out.writeInt((int) entriesOffset);
+            out.writeInt((int) stringsOffset);
+            out.writeInt((int) definitionsOffset);
+            out.writeInt((int) dictionaryOffset);
+            out.writeInt(dictionary.length);
+            while (out.size() < HEADER_SIZE){
+                out.writeByte(0);
+            }
+            for (int i = 0; i < forms.size(); i++){
+                out.writeInt(formRefs[i]);
+                out.writeInt(firstAnalysis[i]);
+                out.writeInt(firstAnalysis[i + 1] - firstAnalysis[i]);
+            }
+            for (int i = 0; i < analysisCount; i++){
+                out.writeInt(lemmaRank[analysisLemmas[analysisOrder[i]]]);
+                out.writeInt(analysisFeatures[analysisOrder[i]]);
+            }
+            for (int i = 0; i < lemmas.size(); i++){
+                out.writeInt(lemmaRefs[i]);
+                out.writeInt(firstEntry[i]);
+                out.writeInt(firstEntry[i + 1] - firstEntry[i]);
+            }
+            for (int field: entryFields){
+                out.writeInt(field);
+            }
+            strings.writeTo(out);
+            definitions.writeTo(out);
+            out.write(dictionary);
+        } finally {
+            out.close();
+        }
+        if (file.exists() && !file.delete()) throw new IOException("Cannot replace " + file);
+        if (!temp.renameTo(file)) throw new IOException(String.format("Cannot rename %s to %s", temp, file));
+    }
+
+    /**
+     * @return the indices of values, ordered by the unsigned bytes of their UTF-8 encoding
+     */
+    private static int[] sortedOrder(List<String> values) throws UnsupportedEncodingException {
+        final byte[][] keys = new byte[values.size()][];
+        final Integer[] order = new Integer[values.size()];
+        for (int i = 0; i < keys.length; i++){
+            keys[i] = values.get(i).getBytes("UTF-8");
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return compareBytes(keys[a], keys[b]);
+            }
+        });
+        final int[] sorted = new int[order.length];
+        for (int i = 0; i < order.length; i++){
+            sorted[i] = order[i];
+        }
+        return sorted;
+    }
+
+    /**
+     * @return for each index, its position in the given order
+     */
+    private static int[] rank(int[] order){
+        final int[] rank = new int[order.length];
+        for (int i = 0; i < order.length; i++){
+            rank[order[i]] = i;
+        }
+        return rank;
+    }
+
+    static int compareBytes(byte[] a, byte[] b){
+        final int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++){
+            final int diff = (a[i] & 0xff) - (b[i] & 0xff);
+            if (diff != 0) return diff;
+        }
+        return a.length - b.length;
+    }
+
+    @Override
+    public void close() throws Exception {
+        buildIndexes();
+    }
+
+
+    /**
+     * The string section: each distinct value once, as a 16 bit length and its UTF-8 bytes
+     */
+    private static final class StringHeap {
+        private final ByteArrayOutputStream bytes   = new ByteArrayOutputStream();
+        private final Map<String, Integer>  refs    = new HashMap<String, Integer>();
+
+        int ref(String value) throws UnsupportedEncodingException {
+            Integer ref = refs.get(value);
+            if (ref == null){
+                final byte[] utf8 = value.getBytes("UTF-8");
+                if (utf8.length > MAX_STRING_LENGTH) throw new IllegalArgumentException("String too long for the index: " + value);
+                ref = bytes.size();
+                bytes.write(utf8.length >>> 8);
+                bytes.write(utf8.length);
+                bytes.write(utf8, 0, utf8.length);
+                refs.put(value, ref);
+            }
+            return ref;
+        }
+
+        int size(){
+            return bytes.size();
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            bytes.writeTo(out);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import org.magnopere.lexicon.latin.LexiconEntry;
+import org.magnopere.lexicon.latin.MorphologyAnalysis;
+import org.magnopere.lexicon.latin.Orthography;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.magnopere.lexicon.sql.BinaryIndexFormat.*;
+
+/**
+ * Answers lookups from verba.idx, written by {@link BinaryIndexWriter}. The file is memory-mapped and searched
+ * in place, so nothing is held on the heap but the definition dictionary, and no per-query state is kept:
+ * instances may be shared between threads.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class BinaryRepository implements LookupStrategy {
+
+    public static final String INDEX_FILE_NAME = "verba.idx";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer        index;
+    private final int               formCount;
+    private final int               lemmaCount;
+    private final int               formsOffset;
+    private final int               analysesOffset;
+    private final int               lemmasOffset;
+    private final int               entriesOffset;
+    private final int               stringsOffset;
+    private final int               definitionsOffset;
+    private final DefinitionCodec   codec;
+
+
+    /**
+     * Maps the index file
+     * @param file verba.idx
+     */
+    public BinaryRepository(File file) {
+        if (file == null) throw new IllegalArgumentException("null: file");
+        try {
+            final RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                // the mapping outlives the channel
+                final FileChannel channel = raf.getChannel();
+                index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (index.capacity() < HEADER_SIZE || index.getInt(0) != MAGIC){
+            throw new IllegalArgumentException(String.format("%s is not a verba index.", file));
+        }
+        if (index.getInt(4) != VERSION){
+            throw new IllegalArgumentException(String.format("%s is index version %d; expected %d.", file, index.getInt(4), VERSION));
+        }
+        formCount           = index.getInt(FORM_COUNT);
+        lemmaCount          = index.getInt(LEMMA_COUNT);
+        formsOffset         = index.getInt(FORMS_OFFSET);
+        analysesOffset      = index.getInt(ANALYSES_OFFSET);
+        lemmasOffset        = index.getInt(LEMMAS_OFFSET);
+        entriesOffset       = index.getInt(ENTRIES_OFFSET);
+        stringsOffset       = index.getInt(STRINGS_OFFSET);
+        definitionsOffset   = index.getInt(DEFINITIONS_OFFSET);
+        codec = new DefinitionCodec(bytes(index.getInt(DICTIONARY_OFFSET), index.getInt(DICTIONARY_LENGTH)));
+    }
+
+    @Override
+    public QueryResult lookup(String word) {
+        final QueryResult result = new QueryResult();
+        result.addMorphologicalAnalysis(findAnalysis(word));
+        for (String lemma: result.getUniqueLemmas()){
+            result.addLexicographicalEntry(findLexiconEntry(lemma));
+        }
+        return result;
+    }
+
+    /**
+     * Each word is looked up in turn; the index is in memory, so there are no round-trips to save
+     */
+    @Override
+    public List<QueryResult> lookupAll(Collection<String> words) {
+        final List<QueryResult> results = new ArrayList<QueryResult>(words.size());
+        for (String word: words){
+            results.add(lookup(word));
+        }
+        return results;
+    }
+
+    @Override
+    public List<MorphologyAnalysis> findAnalysis(String form) {
+        final int found = search(formsOffset, formCount, FORM_SIZE, Orthography.normalize(form.trim()));
+        if (found < 0) return Collections.emptyList();
+        final int row = formsOffset + found * FORM_SIZE;
+        final String matched = string(index.getInt(row));
+        final int first = index.getInt(row + 4);
+        final int count = index.getInt(row + 8);
+        final List<MorphologyAnalysis> analyses = new ArrayList<MorphologyAnalysis>(count);
+        for (int i = first; i < first + count; i++){
+            final int analysis = analysesOffset + i * ANALYSIS_SIZE;
+            final MorphologyAnalysis result = new MorphologyAnalysis();
+            result.setForm(matched);
+            result.setLemma(string(index.getInt(lemmasOffset + index.getInt(analysis) * LEMMA_SIZE)));
+            result.setFeatures(index.getInt(analysis + 4));
+            analyses.add(result);
+        }
+        return analyses;
+    }
+
+    @Override
+    public List<LexiconEntry> findLexiconEntry(String lemma) {
+        final int found = search(lemmasOffset, lemmaCount, LEMMA_SIZE, Orthography.normalize(lemma.trim()));
+        if (found < 0) return Collections.emptyList();
+        final int row = lemmasOffset + found * LEMMA_SIZE;
+        final String key = string(index.getInt(row));
+        final int first = index.getInt(row + 4);
+        final int count = index.getInt(row + 8);
+        final List<LexiconEntry> entries = new ArrayList<LexiconEntry>(count);
+        for (int i = first; i < first + count; i++){
+            final int entry = entriesOffset + i * ENTRY_SIZE;
+            final LexiconEntry result = new LexiconEntry();
+            result.setKey(key);
+            result.setOrdinality(index.getInt(entry));
+            result.setOrthography(string(index.getInt(entry + 4)));
+            result.setiType(string(index.getInt(entry + 8)));
+            result.setGender(string(index.getInt(entry + 12)));
+            result.setPos(string(index.getInt(entry + 16)));
+            result.setEncodedDefinition(bytes(definitionsOffset + index.getInt(entry + 20), index.getInt(entry + 24)), codec);
+            entries.add(result);
+        }
+        return entries;
+    }
+
+    /**
+     * Binary search of a table sorted by the UTF-8 bytes of the string its rows begin with
+     * @return the row index, or -1 if the key is absent
+     */
+    private int search(int tableOffset, int count, int rowSize, String key){
+        final byte[] utf8 = key.getBytes(UTF_8);
+        int low = 0, high = count - 1;
+        while (low <= high){
+            final int mid = (low + high) >>> 1;
+            final int cmp = compare(index.getInt(tableOffset + mid * rowSize), utf8);
+            if (cmp < 0){
+                low = mid + 1;
+            } else if (cmp > 0){
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int ref, byte[] key){
+        final int start = stringsOffset + ref + 2;
+        final int length = index.getShort(start - 2) & 0xffff;
+        final int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++){
+            final int diff = (index.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (diff != 0) return diff;
+        }
+        return length - key.length;
+    }
+
+    private String string(int ref){
+        final int start = stringsOffset + ref;
+        return new String(bytes(start + 2, index.getShort(start) & 0xffff), UTF_8);
+    }
+
+    private byte[] bytes(int offset, int length){
+        final byte[] bytes = new byte[length];
+        final ByteBuffer view = index.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * The mapping is released when this instance is collected
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -30,11 +30,13 @@
 package org.magnopere.lexicon.sql;
 
 import java.io.*;
-import java.sql.Blob;
-import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
 
 /**
  * @author Roger Grantham
@@ -43,13 +45,24 @@ import java.util.zip.GZIPOutputStream;
 public class Compression {
 
     private static final int BUF_SIZE = 1024;
+    private static final int GZIP_HEADER_SIZE = 10;
+    private static final int GZIP_TRAILER_SIZE = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    /** Idle codecs kept for reuse; zlib state is large enough that allocating one per row or lookup shows */
+    private static final int POOL_SIZE = 16;
+    private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<Inflater>(POOL_SIZE);
+    private static final BlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<Deflater>(POOL_SIZE);
     
     /** Not to be implemented */
     private Compression() {
         // no op
     }
     
-    private static byte[] compress(String data){
+    static byte[] compress(String data){
         final ByteArrayOutputStream baos = new ByteArrayOutputStream();
         BestCompressionGZIPOutputStream gzipOut = null;
         try {
@@ -70,36 +83,165 @@ public class Compression {
 
 
     /**
-     * Accepts a Blob which is excepted to be a GZIPed string and deflates it.
+     * Accepts a Blob which is excepted to be a GZIPed string and deflates it. The gzip framing is read here
+     * and the body inflated with a pooled Inflater, so no streams or buffers are allocated beyond the result.
      * @param blob to deflated
      * @return deflated string
      */
     public static String deflateToString(byte[] blob){
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        final ByteArrayInputStream bais = new ByteArrayInputStream(blob);
-        GZIPInputStream gzipIn = null;
+        if (!isGzip(blob)) throw new IllegalArgumentException("Not a GZIP blob");
+        final int flags = blob[3] & 0xff;
+        int pos = GZIP_HEADER_SIZE;
+        if ((flags & FEXTRA) != 0){
+            pos += 2 + ((blob[pos] & 0xff) | (blob[pos + 1] & 0xff) << 8);
+        }
+        if ((flags & FNAME) != 0){
+            while (blob[pos++] != 0);
+        }
+        if ((flags & FCOMMENT) != 0){
+            while (blob[pos++] != 0);
+        }
+        if ((flags & FHCRC) != 0){
+            pos += 2;
+        }
+        return inflate(blob, pos, blob.length - GZIP_TRAILER_SIZE - pos, null, gzipSize(blob));
+    }
+
+    /**
+     * @param blob a GZIPed string
+     * @return the length of the string in UTF-8 bytes, from the gzip trailer
+     */
+    static int gzipSize(byte[] blob){
+        final int n = blob.length;
+        // ISIZE trailer: uncompressed length mod 2^32, little endian
+        return (blob[n - 4] & 0xff) | (blob[n - 3] & 0xff) << 8 | (blob[n - 2] & 0xff) << 16 | (blob[n - 1] & 0xff) << 24;
+    }
+
+    /**
+     * @param data a string
+     * @return its length encoded as UTF-8, without encoding it
+     */
+    static int utf8Length(String data){
+        int length = 0;
+        for (int i = 0; i < data.length(); i++){
+            final char c = data.charAt(i);
+            if (c < 0x80){
+                length++;
+            } else if (c < 0x800){
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < data.length() && Character.isLowSurrogate(data.charAt(i + 1))){
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @param blob a compressed definition
+     * @return true if the blob carries a gzip header
+     */
+    static boolean isGzip(byte[] blob){
+        return blob.length >= GZIP_HEADER_SIZE + GZIP_TRAILER_SIZE && (blob[0] & 0xff) == 0x1f && (blob[1] & 0xff) == 0x8b;
+    }
+
+    /**
+     * Inflates raw deflate data to a UTF-8 string
+     * @param data holding the deflate stream
+     * @param off offset of the stream in data
+     * @param len length of the stream
+     * @param dictionary preset dictionary the stream was written against, or null
+     * @param sizeHint expected length of the inflated bytes, or 0 if unknown
+     * @return the inflated string
+     */
+    static String inflate(byte[] data, int off, int len, byte[] dictionary, int sizeHint){
+        final Inflater inflater = borrowInflater();
         try {
-            final byte[] buf = new byte[BUF_SIZE];
-            gzipIn = new GZIPInputStream(bais);
-            for (int read = gzipIn.read(buf); read > 0; read = gzipIn.read(buf)){
-                baos.write(buf, 0, read);
+            if (dictionary != null && dictionary.length > 0){
+                // raw streams carry no dictionary id, so the inflater never asks for it
+                inflater.setDictionary(dictionary);
+            }
+            inflater.setInput(data, off, len);
+            byte[] out = new byte[sizeHint > 0 ? sizeHint : Math.max(BUF_SIZE, len * 4)];
+            int size = 0;
+            while (!inflater.finished()){
+                if (size == out.length){
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                final int read = inflater.inflate(out, size, out.length - size);
+                if (read == 0 && !inflater.finished() && inflater.needsInput()){
+                    throw new DataFormatException("Truncated deflate stream");
+                }
+                size += read;
             }
+            return new String(out, 0, size, "UTF-8");
         } catch (Exception e) {
             throw new RuntimeException(e);
         } finally {
-            try {
-                if (gzipIn != null) gzipIn.close();
-            } catch (IOException e) {
-                // give up
-            }
+            releaseInflater(inflater);
         }
-        final String deflated;
+    }
+
+    /**
+     * Compresses a string as raw deflate at BEST_COMPRESSION
+     * @param data to compress
+     * @param dictionary preset dictionary, or null
+     * @return raw deflate stream, without header or checksum
+     */
+    static byte[] deflate(String data, byte[] dictionary){
+        final Deflater deflater = borrowDeflater();
         try {
-            deflated = baos.toString("UTF-8");
+            if (dictionary != null && dictionary.length > 0){
+                deflater.setDictionary(dictionary);
+            }
+            final byte[] in = data.getBytes("UTF-8");
+            deflater.setInput(in);
+            deflater.finish();
+            byte[] out = new byte[in.length + 64];
+            int size = 0;
+            while (!deflater.finished()){
+                if (size == out.length){
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                size += deflater.deflate(out, size, out.length - size);
+            }
+            return Arrays.copyOf(out, size);
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(e);
+        } finally {
+            releaseDeflater(deflater);
+        }
+    }
+
+    private static Inflater borrowInflater(){
+        final Inflater inflater = INFLATERS.poll();
+        return inflater == null ? new Inflater(true) : inflater;
+    }
+
+    private static void releaseInflater(Inflater inflater){
+        inflater.reset();
+        if (!INFLATERS.offer(inflater)) inflater.end();
+    }
+
+    private static Deflater borrowDeflater(){
+        final Deflater deflater = DEFLATERS.poll();
+        return deflater == null ? new Deflater(Deflater.BEST_COMPRESSION, true) : deflater;
+    }
+
+    private static void releaseDeflater(Deflater deflater){
+        deflater.reset();
+        if (!DEFLATERS.offer(deflater)) deflater.end();
+    }
+
+    public static String toHex(byte[] data) {
+        final char[] hex = new char[data.length * 2];
+        for (int i = 0; i < data.length; i++){
+            hex[2 * i]     = HEX_DIGITS[(data[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[data[i] & 0xf];
         }
-        return deflated;
+        return new String(hex);
     }
     
     
@@ -112,15 +254,6 @@ public class Compression {
     }
     
 
-    private static String toHex(byte[] data) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : data) {
-            sb.append(String.format("%1$02X", b));
-        }
-        return sb.toString();
-    }
-
-
     private static final class BestCompressionGZIPOutputStream extends GZIPOutputStream {
 
         public BestCompressionGZIPOutputStream(final OutputStream out) throws IOException {
@@ -44,18 +44,88 @@ import static org.magnopere.lexicon.latin.Slurper.*;
  * @author Roger Grantham
  * @since May 29, 2011
  */
-public class DataRepository implements PersistenceStrategy {
+public class DataRepository implements PersistenceStrategy, LookupStrategy {
     private static final Logger LOG = Logger.getLogger(DataRepository.class.getName());
 
 
     private static final String DB_FILE_NAME = "verba.db";
     private static final String DB_DRIVER_NAME = "org.sqlite.JDBC";
+    /** Bytes of analyses cached by rectified form */
+    public static final long DEFAULT_ANALYSIS_CACHE_WEIGHT = 4L << 20;
+    /** Bytes of decompressed entries cached by lemma */
+    public static final long DEFAULT_ENTRY_CACHE_WEIGHT = 16L << 20;
+    private static final int CACHE_STRIPES = 16;
+    /** Sets the lemma id of every lexicon row from the lemmas table, once both are loaded */
+    static final String LINK_LEXICON_SQL =
+            "UPDATE lexicon SET lemma_id = (SELECT _id FROM lemmas WHERE lemmas.lemma = lexicon.lemma);";
+    private static final String FIND_ANALYSES_SQL = "SELECT f.form, l.lemma, m.features FROM forms f "
+            + "JOIN morphology m ON m.form_id = f._id JOIN lemmas l ON l._id = m.lemma_id "
+            + "WHERE f.form = ? ORDER BY m._id";
+    private static final String FIND_GLOSS_SQL = "SELECT lemma, ordinality, frequency, position FROM gloss_index WHERE term = ?";
+    private static final String FIND_ENTRIES_SQL = "SELECT lemma, ordinality, orthography, endings, gender, pos, "
+            + "definition FROM lexicon WHERE lemma = ? ORDER BY ordinality, _id";
+    /** The analyses of a form, then the entries of their lemmas, in the order the two lookups returned them */
+    private static final String LOOKUP_JOINED_SQL =
+            "SELECT 0, m._id, m._id, l.lemma, m.features, f.form, NULL, NULL, NULL, NULL FROM forms f "
+            + "JOIN morphology m ON m.form_id = f._id JOIN lemmas l ON l._id = m.lemma_id WHERE f.form = ? "
+            + "UNION ALL "
+            + "SELECT 1, x.ordinality, x._id, x.lemma, x.ordinality, x.orthography, x.endings, x.gender, x.pos, x.definition "
+            + "FROM lexicon x WHERE x.lemma_id IN (SELECT m.lemma_id FROM forms f JOIN morphology m ON m.form_id = f._id "
+            + "WHERE f.form = ?) "
+            + "ORDER BY 1, 2, 3";
+    /** The most parameters SQLite accepts in one statement */
+    private static final int MAX_PARAMETERS = 999;
+    private static final WeightedCache.Weigher<List<MorphologyAnalysis>> ANALYSES_WEIGHER = new WeightedCache.Weigher<List<MorphologyAnalysis>>() {
+        @Override
+        public int weigh(List<MorphologyAnalysis> analyses) {
+            int weight = 64;
+            for (MorphologyAnalysis analysis: analyses){
+                weight += 48 + 2 * (analysis.getForm().length() + analysis.getLemma().length());
+            }
+            return weight;
+        }
+    };
+    private static final WeightedCache.Weigher<List<LexiconEntry>> ENTRIES_WEIGHER = new WeightedCache.Weigher<List<LexiconEntry>>() {
+        @Override
+        public int weigh(List<LexiconEntry> entries) {
+            int weight = 64;
+            for (LexiconEntry entry: entries){
+                weight += 120 + 2 * (entry.getOrthography().length() + entry.getiType().length()) + entry.getDefinitionSize();
+            }
+            return weight;
+        }
+    };
+    /** Rows sent per executeBatch/commit when building the database */
+    public static final int DEFAULT_BATCH_SIZE = 5000;
     private final String createMorphologyTableScript;
     private final String createLexiconTableScript;
-    private PreparedStatement writeAnalysis;
-    private PreparedStatement findAnalyses;
-    private PreparedStatement writeLexiconEntry;
-    private PreparedStatement findLexiconEntries;
+    private final String createMorphologyIndexScript;
+    private final String createLexiconIndexScript;
+    private BatchInserter writeAnalysis;
+    private Interner forms;
+    private Interner lemmas;
+    private BatchInserter writeLexiconEntry;
+    private BatchInserter writeGloss;
+    /** Connections for lookups */
+    private volatile ReadConnectionPool readers;
+    /** Whether lexicon rows carry the id of their lemma, which databases built before they did lack */
+    private volatile boolean lexiconLinked;
+    /** Whether the database has the reverse index of English terms, which databases built before it lack */
+    private volatile boolean glossIndexed;
+    /** The number of lexicon entries, for weighting terms in reverse lookups; -1 until counted */
+    private volatile int lexiconSize = -1;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean bulkLoad;
+    private long loadStartNanos;
+    /** Compresses definitions; trained while the lexicon is built, otherwise read from the database */
+    private DefinitionCodec codec;
+    /** Holds the first lexicon entries while the codec is trained, null once it has been */
+    private DictionaryTrainer trainer;
+    private ImportTelemetry telemetry = ImportTelemetry.NONE;
+    private WeightedCache<String, List<MorphologyAnalysis>> analysisCache;
+    private WeightedCache<String, List<LexiconEntry>> entryCache;
+    /** The whole morphology table in memory, if preloaded */
+    private volatile FormIndex formIndex;
 
     private final Connection conn;
     private final String dbDir;
@@ -69,52 +139,432 @@ public class DataRepository implements PersistenceStrategy {
         try {
             Class.forName(DB_DRIVER_NAME);
             conn = DriverManager.getConnection(String.format("jdbc:sqlite:%s", dbPath));
+            readers = new ReadConnectionPool(conn, String.format("jdbc:sqlite:%s", dbPath), 1);
             createMorphologyTableScript = slurp(getClass().getClassLoader(), MORPH_TABLE_SQL);
             createLexiconTableScript = slurp(getClass().getClassLoader(), LEXICON_TABLE_SQL);
+            createMorphologyIndexScript = slurp(getClass().getClassLoader(), MORPH_INDEX_SQL);
+            createLexiconIndexScript = slurp(getClass().getClassLoader(), LEXICON_INDEX_SQL);
+            codec = loadCodec();
+            lexiconLinked = hasColumn("lexicon", "lemma_id");
+            glossIndexed = hasColumn("gloss_index", "term");
+            setCacheWeights(DEFAULT_ANALYSIS_CACHE_WEIGHT, DEFAULT_ENTRY_CACHE_WEIGHT);
         } catch (Exception e){
             throw new RuntimeException(e);
         }
     }
 
 
+    /**
+     * Sets the number of rows written per batch and transaction while building tables.
+     * Must be called before the tables are built.
+     * @param batchSize rows per commit, at least 1
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        this.batchSize = batchSize;
+    }
+
+
+    /**
+     * Sets how many connections lookups may use at once. Lookups on any number of threads are safe whatever
+     * the count, but with one they run one at a time. Must not be called while lookups are under way.
+     * @param count connections, at least 1; the first is the repository's own, the rest are opened as needed
+     */
+    public void setReadConnections(int count) {
+        final ReadConnectionPool old = readers;
+        readers = new ReadConnectionPool(conn, String.format("jdbc:sqlite:%s", dbPath), count);
+        try {
+            old.close();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Replaces the lookup caches. The first tier holds the analyses of each rectified form; the second the
+     * decompressed entries of each lemma, which are shared by every form of that lemma. Cached lists and the
+     * records in them are shared between lookups and must not be modified.
+     * @param analysisWeight bytes of analyses to hold, 0 for none
+     * @param entryWeight bytes of entries to hold, 0 for none
+     */
+    public void setCacheWeights(long analysisWeight, long entryWeight) {
+        analysisCache = new WeightedCache<String, List<MorphologyAnalysis>>(analysisWeight, CACHE_STRIPES, ANALYSES_WEIGHER);
+        entryCache = new WeightedCache<String, List<LexiconEntry>>(entryWeight, CACHE_STRIPES, ENTRIES_WEIGHER);
+    }
+
+    /**
+     * Loads the forms, lemmas and morphology tables into a {@link FormIndex}, from which
+     * {@link #findAnalysis(String)} is then answered without querying the database or the analysis cache.
+     * The index is dropped if the morphology table is written again.
+     * @return the index loaded
+     */
+    public FormIndex preloadFormIndex() {
+        try {
+            formIndex = FormIndex.load(conn);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return formIndex;
+    }
+
+    /**
+     * Reads every form and lemma into a {@link PrefixIndex} for completion, on a connection of its own
+     * so that lookups may go on meanwhile
+     * @return the index loaded
+     */
+    public PrefixIndex loadPrefixIndex() {
+        try {
+            final Connection scan = openScanConnection();
+            try {
+                return PrefixIndex.load(scan);
+            } finally {
+                scan.close();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Builds a {@link FuzzyIndex} of every form for suggesting near misses, on a connection of its own
+     * so that lookups may go on meanwhile
+     * @return the index built
+     */
+    public FuzzyIndex loadFuzzyIndex() {
+        try {
+            final Connection scan = openScanConnection();
+            try {
+                return FuzzyIndex.load(scan);
+            } finally {
+                scan.close();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Opens a read-only connection outside the read pool, so that a scan of a whole table holds none of the
+     * pool's connections while lookups go on
+     * @return the connection, to be closed by the caller
+     */
+    private Connection openScanConnection() throws SQLException {
+        final Connection scan = DriverManager.getConnection(String.format("jdbc:sqlite:%s", dbPath));
+        scan.setReadOnly(true);
+        return scan;
+    }
+
+    /**
+     * @return the first tier cache, of analyses by rectified form, for its counters
+     */
+    public WeightedCache<String, List<MorphologyAnalysis>> getAnalysisCache() {
+        return analysisCache;
+    }
+
+    /**
+     * @return the second tier cache, of entries by lemma, for its counters
+     */
+    public WeightedCache<String, List<LexiconEntry>> getEntryCache() {
+        return entryCache;
+    }
+
+
+    /**
+     * Selects the bulk-load profile for building the database: tables are created bare, rows are loaded with
+     * journaling and syncing turned off, and the indexes are built and ANALYZEd in {@link #buildIndexes()}.
+     * Must be called before the tables are built.
+     * @param bulkLoad true for the bulk-load profile
+     */
+    public void setBulkLoad(boolean bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+
+
+    /**
+     * Times the compression of definitions, and the training of the codec, against the given telemetry
+     * @param telemetry telemetry for the import
+     */
+    public void setTelemetry(ImportTelemetry telemetry) {
+        if (telemetry == null) throw new IllegalArgumentException("null: telemetry");
+        this.telemetry = telemetry;
+    }
+
+
     @Override
     public void buildLexiconTable()  {
         try {
-            Statement stat = conn.createStatement();
-            stat.executeUpdate("drop table if exists lexicon;");
-            stat.executeUpdate(createLexiconTableScript);
-            stat.close();
-            writeLexiconEntry = conn.prepareStatement(
-             "insert into lexicon (lemma, ordinality, orthography, endings, gender, pos, definition) values (?, ?, ?, ?, ?, ?, ?);");
+            beginBatchWrites();
+            final long start = System.nanoTime();
+            executeScript("drop table if exists lexicon;");
+            executeScript("drop table if exists definition_dictionary;");
+            executeScript("drop table if exists gloss_index;");
+            executeScript(createLexiconTableScript);
+            if (!bulkLoad) executeScript(createLexiconIndexScript);
+            conn.commit();
+            logPhase("create lexicon table", start);
+            prepareLexiconInsert();
+            trainer = new DictionaryTrainer();
         } catch (Exception e){
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Readies {@link #writeLexiconEntry(LexiconEntry)} against the existing lexicon table
+     * @throws SQLException on failure
+     */
+    void prepareLexiconInsert() throws SQLException {
+        beginBatchWrites();
+        entryCache.clear();
+        lexiconSize = -1;
+        if (writeLexiconEntry != null) writeLexiconEntry.finish();
+        if (writeGloss != null) writeGloss.finish();
+        writeLexiconEntry = new BatchInserter(conn, "lexicon",
+         "insert into lexicon (lemma, ordinality, orthography, endings, gender, pos, definition) values (?, ?, ?, ?, ?, ?, ?);",
+         batchSize);
+        writeGloss = new BatchInserter(conn, "gloss_index",
+         "insert into gloss_index (term, lemma, ordinality, frequency, position) values (?, ?, ?, ?, ?);",
+         batchSize);
+        glossIndexed = true;
+    }
+
 
     @Override
     public void buildMorphologyTable()  {
         try {
-            Statement stat = conn.createStatement();
-            stat.executeUpdate("drop table if exists morphology;");
-            stat.executeUpdate(createMorphologyTableScript);
-            stat.close();
-            writeAnalysis = conn.prepareStatement(
-             "insert into morphology (form, lemma, grammaticalCase, degree, gender, mood, number, person, pos, tense, voice) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);");
+            beginBatchWrites();
+            final long start = System.nanoTime();
+            executeScript("drop table if exists morphology;");
+            executeScript("drop table if exists forms;");
+            executeScript("drop table if exists lemmas;");
+            executeScript(createMorphologyTableScript);
+            if (!bulkLoad) executeScript(createMorphologyIndexScript);
+            conn.commit();
+            logPhase("create morphology table", start);
+            prepareMorphologyInsert();
         } catch (Exception e){
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Readies {@link #writeAnalysis(MorphologyAnalysis)} against the existing morphology table
+     * @throws SQLException on failure
+     */
+    void prepareMorphologyInsert() throws SQLException {
+        beginBatchWrites();
+        formIndex = null;
+        analysisCache.clear();
+        if (writeAnalysis != null) writeAnalysis.finish();
+        if (forms != null) forms.finish();
+        if (lemmas != null) lemmas.finish();
+        writeAnalysis = new BatchInserter(conn, "morphology",
+         "insert into morphology (form_id, lemma_id, features) values (?, ?, ?);",
+         batchSize);
+        forms = new Interner(conn, "forms", "form", batchSize);
+        lemmas = new Interner(conn, "lemmas", "lemma", batchSize);
+    }
+
+    /**
+     * Deletes the forms and lemmas which no morphology row references any more, as an incremental update
+     * leaves them when it removes analyses. Pending analyses are written first, and the interners reloaded after.
+     * @throws SQLException on failure
+     */
+    void pruneUnreferencedIds() throws SQLException {
+        if (writeAnalysis == null) return;
+        final long start = System.nanoTime();
+        writeAnalysis.flush();
+        forms.flush();
+        lemmas.flush();
+        final Statement stat = conn.createStatement();
+        try {
+            final int formCount = stat.executeUpdate("DELETE FROM forms WHERE _id NOT IN (SELECT form_id FROM morphology)");
+            final int lemmaCount = stat.executeUpdate("DELETE FROM lemmas WHERE _id NOT IN (SELECT lemma_id FROM morphology)");
+            conn.commit();
+            LOG.info(String.format("Deleted %d unreferenced forms and %d unreferenced lemmas.", formCount, lemmaCount));
+        } finally {
+            stat.close();
+        }
+        prepareMorphologyInsert();
+        logPhase("prune forms and lemmas", start);
+    }
+
+    /**
+     * Reads the definition dictionary of an existing database. Databases built before definitions were
+     * compressed against a dictionary have no such table and hold gzipped definitions.
+     */
+    private DefinitionCodec loadCodec() throws SQLException {
+        final Statement stat = conn.createStatement();
+        try {
+            ResultSet result = stat.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name = 'definition_dictionary'");
+            final boolean exists = result.next();
+            result.close();
+            if (!exists) return DefinitionCodec.GZIP;
+            result = stat.executeQuery("SELECT dictionary FROM definition_dictionary WHERE _id = 1");
+            final DefinitionCodec loaded = result.next() ? new DefinitionCodec(result.getBytes(1)) : DefinitionCodec.GZIP;
+            result.close();
+            return loaded;
+        } finally {
+            stat.close();
+        }
+    }
+
+    /**
+     * Trains the definition codec on the entries held back so far, stores its dictionary, and writes the entries
+     */
+    private void trainCodec() throws SQLException {
+        final DictionaryTrainer training = trainer;
+        trainer = null;
+        codec = telemetry.train(training);
+        final PreparedStatement insert = conn.prepareStatement("insert into definition_dictionary (_id, dictionary) values (1, ?);");
+        try {
+            insert.setBytes(1, codec.getDictionary());
+            insert.executeUpdate();
+        } finally {
+            insert.close();
+        }
+        for (LexiconEntry entry: training.getBuffered()){
+            insertLexiconEntry(entry);
+        }
+    }
+
+    /**
+     * @return the connection, for classes in this package which maintain the database alongside the repository
+     */
+    Connection getConnection() {
+        return conn;
+    }
+
+    /**
+     * Writes are grouped into explicit transactions by the BatchInserters, so auto-commit is turned off
+     * once the first table is built. A bulk load also relaxes journaling and syncing, which SQLite only
+     * allows outside a transaction; neither setting outlives the connection.
+     * @throws SQLException on failure
+     */
+    void beginBatchWrites() throws SQLException {
+        if (conn.getAutoCommit()){
+            if (bulkLoad){
+                executeScript("PRAGMA journal_mode = OFF;");
+                executeScript("PRAGMA synchronous = OFF;");
+                executeScript("PRAGMA temp_store = MEMORY;");
+                executeScript("PRAGMA cache_size = 100000;");
+            }
+            conn.setAutoCommit(false);
+            loadStartNanos = System.nanoTime();
+        }
+    }
+
+    void executeScript(String script) throws SQLException {
+        final Statement stat = conn.createStatement();
+        try {
+            for (String sql: SqlScript.split(script)){
+                stat.execute(sql);
+            }
+        } finally {
+            stat.close();
+        }
+    }
+
+    private static void logPhase(String phase, long startNanos){
+        LOG.info(String.format("Build phase '%s' took %.1f s.", phase, (System.nanoTime() - startNanos) / 1e9));
+    }
+
+
+    @Override
+    public void buildIndexes() {
+        try {
+            if (trainer != null) trainCodec();
+            if (writeLexiconEntry != null){
+                writeLexiconEntry.flush();
+                writeGloss.flush();
+            }
+            if (writeAnalysis != null){
+                writeAnalysis.flush();
+                forms.flush();
+                lemmas.flush();
+            }
+            logPhase("load", loadStartNanos);
+            if (bulkLoad){
+                final long start = System.nanoTime();
+                if (writeLexiconEntry != null) executeScript(createLexiconIndexScript);
+                if (writeAnalysis != null) executeScript(createMorphologyIndexScript);
+                conn.commit();
+                logPhase("create indexes", start);
+            }
+            if (writeLexiconEntry != null || writeAnalysis != null){
+                linkLexicon();
+            }
+            if (bulkLoad){
+                final long start = System.nanoTime();
+                executeScript("ANALYZE;");
+                conn.commit();
+                logPhase("analyze", start);
+            }
+        } catch (SQLException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    /**
+     * Sets the lemma id of each lexicon row, adding the column to a lexicon table built before there was one
+     */
+    private void linkLexicon() throws SQLException {
+        if (!hasColumn("lexicon", "lemma") || !hasColumn("lemmas", "lemma")) return;
+        final long start = System.nanoTime();
+        if (!hasColumn("lexicon", "lemma_id")){
+            executeScript("ALTER TABLE lexicon ADD COLUMN lemma_id INTEGER;");
+        }
+        executeScript(LINK_LEXICON_SQL);
+        executeScript(createLexiconIndexScript);
+        conn.commit();
+        entryCache.clear();
+        lexiconLinked = true;
+        logPhase("link lexicon to lemmas", start);
+    }
+
+    /**
+     * @return whether the table exists and has the column
+     */
+    boolean hasColumn(String table, String column) throws SQLException {
+        final Statement statement = conn.createStatement();
+        try {
+            final ResultSet exists = statement.executeQuery(
+                    String.format("SELECT count(*) FROM sqlite_master WHERE type = 'table' AND name = '%s'", table));
+            final boolean tableFound = exists.next() && exists.getInt(1) > 0;
+            exists.close();
+            if (!tableFound) return false;
+            final ResultSet result = statement.executeQuery(String.format("PRAGMA table_info(%s)", table));
+            boolean found = false;
+            while (result.next()){
+                found |= column.equals(result.getString("name"));
+            }
+            result.close();
+            return found;
+        } finally {
+            statement.close();
+        }
+    }
 
     @Override
     public void close() throws Exception {
-        writeAnalysis.execute();
-        writeLexiconEntry.execute();
         try {
-            conn.close();
+            if (trainer != null) trainCodec();
+            if (writeLexiconEntry != null){
+                writeLexiconEntry.finish();
+                writeGloss.finish();
+            }
+            if (writeAnalysis != null){
+                writeAnalysis.finish();
+                forms.finish();
+                lemmas.finish();
+            }
         } finally {
-            conn.close();
+            try {
+                readers.close();
+            } finally {
+                conn.close();
+            }
         }
     }
 
@@ -130,11 +580,15 @@ public class DataRepository implements PersistenceStrategy {
      * @param word a word form, e.g. monebantur will find the lexicon entry or "moneo, monere, monui, monitus"
      * @return QueryResult
      */
+    @Override
     public QueryResult lookup(String word){
-        final String normalized = Orthography.rectify(word.trim());
+        final String normalized = Orthography.normalize(word.trim());
+        final FormIndex index = formIndex;
+        final List<MorphologyAnalysis> known = index != null ? index.findAnalysis(normalized) : analysisCache.get(normalized);
+        if (known == null && lexiconLinked) return lookupJoined(normalized);
         final QueryResult result = new QueryResult();
         // first find all matching morphological forms.
-        final List<MorphologyAnalysis> analyses = findAnalysis(normalized);
+        final List<MorphologyAnalysis> analyses = known != null ? known : findAnalysis(normalized);
         result.addMorphologicalAnalysis(analyses);
         // then look up each unique lemma.
         for (String lemma: result.getUniqueLemmas()){
@@ -145,36 +599,86 @@ public class DataRepository implements PersistenceStrategy {
         return result;
     }
 
-    public List<MorphologyAnalysis> findAnalysis(String form) {
-        final String normalized = Orthography.rectify(form.trim());
+    /**
+     * Looks a form up with a single query, joining its analyses to the lexicon rows of their lemmas by
+     * lemma id, and caches both
+     */
+    private QueryResult lookupJoined(String normalized){
         final List<MorphologyAnalysis> analyses = new ArrayList<MorphologyAnalysis>();
+        final Map<String, List<LexiconEntry>> entries = new HashMap<String, List<LexiconEntry>>();
+        final ReadConnectionPool pool = readers;
+        final ReadConnectionPool.Reader reader = pool.acquire();
         try {
-
-            if (findAnalyses == null){
-                findAnalyses = conn.prepareStatement("SELECT form, lemma, grammaticalCase, degree, gender, mood, number, person, pos, tense, voice FROM morphology WHERE form = ?");
+            final PreparedStatement lookupJoined = reader.prepare(LOOKUP_JOINED_SQL);
+            lookupJoined.setString(1, normalized);
+            lookupJoined.setString(2, normalized);
+            final ResultSet result = lookupJoined.executeQuery();
+            while (result.next()){
+                if (result.getInt(1) == 0){
+                    final MorphologyAnalysis analysis = new MorphologyAnalysis();
+                    analysis.setForm(result.getString(6));
+                    analysis.setLemma(result.getString(4));
+                    analysis.setFeatures(result.getInt(5));
+                    analyses.add(analysis);
+                } else {
+                    final LexiconEntry entry = new LexiconEntry();
+                    entry.setKey(result.getString(4));
+                    entry.setOrdinality(result.getInt(5));
+                    entry.setOrthography(result.getString(6));
+                    entry.setiType(result.getString(7));
+                    entry.setGender(result.getString(8));
+                    entry.setPos(result.getString(9));
+                    entry.setEncodedDefinition(result.getBytes(10), codec);
+                    group(entries, entry.getKey()).add(entry);
+                }
             }
+            result.close();
+        } catch (SQLException se){
+            throw new RuntimeException(se);
+        } finally {
+            pool.release(reader);
+        }
+        final QueryResult result = new QueryResult();
+        final List<MorphologyAnalysis> found = Collections.unmodifiableList(analyses);
+        analysisCache.put(normalized, found);
+        result.addMorphologicalAnalysis(found);
+        for (String lemma: result.getUniqueLemmas()){
+            final List<LexiconEntry> group = entries.get(lemma);
+            final List<LexiconEntry> read = group == null
+                    ? Collections.<LexiconEntry>emptyList()
+                    : Collections.unmodifiableList(group);
+            entryCache.put(Orthography.normalize(lemma.trim()), read);
+            result.addLexicographicalEntry(read);
+        }
+        return result;
+    }
+
+    @Override
+    public List<MorphologyAnalysis> findAnalysis(String form) {
+        final String normalized = Orthography.normalize(form.trim());
+        final FormIndex index = formIndex;
+        if (index != null) return index.findAnalysis(normalized);
+        final List<MorphologyAnalysis> cached = analysisCache.get(normalized);
+        if (cached != null) return cached;
+        final List<MorphologyAnalysis> analyses = new ArrayList<MorphologyAnalysis>();
+        final ReadConnectionPool pool = readers;
+        final ReadConnectionPool.Reader reader = pool.acquire();
+        try {
+            final PreparedStatement findAnalyses = reader.prepare(FIND_ANALYSES_SQL);
             findAnalyses.setString(1, normalized);
             final ResultSet result = findAnalyses.executeQuery();
             while (result.next()){
-                final MorphologyAnalysis analysis = new MorphologyAnalysis();
-                analysis.setForm(result.getString(1));
-                analysis.setLemma(result.getString(2));
-                analysis.setGrammaticalCase(result.getString(3));
-                analysis.setDegree(result.getString(4));
-                analysis.setGender(result.getString(5));
-                analysis.setMood(result.getString(6));
-                analysis.setNumber(result.getString(7));
-                analysis.setPerson(result.getString(8));
-                analysis.setPos(result.getString(9));
-                analysis.setTense(result.getString(10));
-                analysis.setVoice(result.getString(11));
-                analyses.add(analysis);
+                analyses.add(readAnalysis(result));
             }
             result.close();
         } catch (SQLException se){
             throw new RuntimeException(se);
+        } finally {
+            pool.release(reader);
         }
-        return analyses;
+        final List<MorphologyAnalysis> found = Collections.unmodifiableList(analyses);
+        analysisCache.put(normalized, found);
+        return found;
     }
 
     /**
@@ -182,31 +686,283 @@ public class DataRepository implements PersistenceStrategy {
      * @param lemma the lemmatized form of a word lemma or any form of the word
      * @return (possibly empty) list of entries found
      */
+    @Override
     public List<LexiconEntry> findLexiconEntry(String lemma){
-        final String normalized = Orthography.rectify(lemma.trim());
+        final String normalized = Orthography.normalize(lemma.trim());
+        final List<LexiconEntry> cached = entryCache.get(normalized);
+        if (cached != null) return cached;
         final List<LexiconEntry> entries = new ArrayList<LexiconEntry>();
+        final ReadConnectionPool pool = readers;
+        final ReadConnectionPool.Reader reader = pool.acquire();
         try {
-            if (findLexiconEntries == null){
-                findLexiconEntries = conn.prepareStatement("SELECT lemma, ordinality, orthography, endings, gender, pos, definition FROM lexicon WHERE lemma = ?");
-            }
+            final PreparedStatement findLexiconEntries = reader.prepare(FIND_ENTRIES_SQL);
             findLexiconEntries.setString(1, normalized);
             final ResultSet result = findLexiconEntries.executeQuery();
             while (result.next()){
-                final LexiconEntry entry = new LexiconEntry();
-                entry.setKey(result.getString("lemma"));
-                entry.setOrdinality(result.getInt("ordinality"));
-                entry.setOrthography(result.getString("orthography"));
-                entry.setiType(result.getString("endings"));
-                entry.setGender(result.getString("gender"));
-                entry.setPos(result.getString("pos"));
-                entry.setDefinition(Compression.deflateToString(result.getBytes("definition")));
-                entries.add(entry);
+                entries.add(readEntry(result));
             }
             result.close();
         } catch (SQLException se){
             throw new RuntimeException(se);
+        } finally {
+            pool.release(reader);
         }
-        return entries;
+        final List<LexiconEntry> found = Collections.unmodifiableList(entries);
+        entryCache.put(normalized, found);
+        return found;
+    }
+
+    /**
+     * Finds the lemmas whose definitions use the given English words, best first. An entry scores for each
+     * term it uses by tf-idf, the more the earlier the term first appears in it; entries using every term come
+     * before those using only some, and a lemma ranks by its best entry.
+     * @param english English words, e.g. "weapon" or "to forbid"
+     * @param limit the most lemmas wanted
+     * @return (possibly empty) list of lemmas; empty too if the database predates the reverse index
+     */
+    public List<String> reverseLookup(String english, int limit){
+        final List<String> terms = GlossTerms.query(english);
+        if (terms.isEmpty() || !glossIndexed) return Collections.emptyList();
+        // score, number of terms used and the last term counted, by lemma and ordinality
+        final Map<String, double[]> scores = new HashMap<String, double[]>();
+        final ReadConnectionPool pool = readers;
+        final ReadConnectionPool.Reader reader = pool.acquire();
+        try {
+            final double entries = countLexicon(reader);
+            final PreparedStatement findGloss = reader.prepare(FIND_GLOSS_SQL);
+            for (int t = 0; t < terms.size(); t++){
+                final String term = terms.get(t);
+                final List<Posting> postings = new ArrayList<Posting>();
+                findGloss.setString(1, term);
+                final ResultSet result = findGloss.executeQuery();
+                while (result.next()){
+                    postings.add(new Posting(result.getString(1) + '\t' + result.getInt(2), result.getInt(3), result.getInt(4)));
+                }
+                result.close();
+                final double idf = Math.log(1 + entries / Math.max(1, postings.size()));
+                for (Posting posting: postings){
+                    final double tf = 1 + Math.log(posting.frequency);
+                    final double prominence = 1 / (1 + Math.log(1 + posting.position));
+                    double[] score = scores.get(posting.entry);
+                    if (score == null){
+                        score = new double[]{0, 0, -1};
+                        scores.put(posting.entry, score);
+                    }
+                    score[0] += idf * tf * prominence;
+                    if (score[2] != t){
+                        score[1]++;
+                        score[2] = t;
+                    }
+                }
+            }
+        } catch (SQLException se){
+            throw new RuntimeException(se);
+        } finally {
+            pool.release(reader);
+        }
+        final Map<String, double[]> best = new HashMap<String, double[]>();
+        for (Map.Entry<String, double[]> scored: scores.entrySet()){
+            final String lemma = scored.getKey().substring(0, scored.getKey().indexOf('\t'));
+            final double[] score = scored.getValue();
+            final double[] was = best.get(lemma);
+            if (was == null || score[1] > was[1] || (score[1] == was[1] && score[0] > was[0])){
+                best.put(lemma, score);
+            }
+        }
+        final List<String> lemmas = new ArrayList<String>(best.keySet());
+        Collections.sort(lemmas, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                final double[] x = best.get(a), y = best.get(b);
+                if (x[1] != y[1]) return x[1] > y[1] ? -1 : 1;
+                if (x[0] != y[0]) return x[0] > y[0] ? -1 : 1;
+                return a.compareTo(b);
+            }
+        });
+        return lemmas.size() > limit ? new ArrayList<String>(lemmas.subList(0, limit)) : lemmas;
+    }
+
+    /**
+     * A row of the reverse index: an entry, as lemma and ordinality, using a term
+     */
+    private static final class Posting {
+        final String    entry;
+        final int       frequency;
+        final int       position;
+
+        Posting(String entry, int frequency, int position) {
+            this.entry = entry;
+            this.frequency = frequency;
+            this.position = position;
+        }
+    }
+
+    private int countLexicon(ReadConnectionPool.Reader reader) throws SQLException {
+        int size = lexiconSize;
+        if (size < 0){
+            final ResultSet result = reader.prepare("SELECT count(*) FROM lexicon").executeQuery();
+            size = result.next() ? result.getInt(1) : 0;
+            result.close();
+            lexiconSize = size;
+        }
+        return size;
+    }
+
+    private static MorphologyAnalysis readAnalysis(ResultSet result) throws SQLException {
+        final MorphologyAnalysis analysis = new MorphologyAnalysis();
+        analysis.setForm(result.getString(1));
+        analysis.setLemma(result.getString(2));
+        analysis.setFeatures(result.getInt(3));
+        return analysis;
+    }
+
+    private LexiconEntry readEntry(ResultSet result) throws SQLException {
+        final LexiconEntry entry = new LexiconEntry();
+        entry.setKey(result.getString("lemma"));
+        entry.setOrdinality(result.getInt("ordinality"));
+        entry.setOrthography(result.getString("orthography"));
+        entry.setiType(result.getString("endings"));
+        entry.setGender(result.getString("gender"));
+        entry.setPos(result.getString("pos"));
+        entry.setEncodedDefinition(result.getBytes("definition"), codec);
+        return entry;
+    }
+
+    /**
+     * Looks up a batch of words with one set-based query for the analyses of all distinct forms not already
+     * known, and one for the entries of all distinct lemmas not already cached, each split into statements of
+     * at most {@value #MAX_PARAMETERS} parameters.
+     * @param words word forms, in any number and with any repetition
+     * @return a QueryResult for each word, in order
+     */
+    @Override
+    public List<QueryResult> lookupAll(Collection<String> words){
+        final List<String> normalized = new ArrayList<String>(words.size());
+        final Map<String, List<MorphologyAnalysis>> analyses = new HashMap<String, List<MorphologyAnalysis>>();
+        final Set<String> missingForms = new LinkedHashSet<String>();
+        final FormIndex index = formIndex;
+        for (String word: words){
+            final String form = Orthography.normalize(word.trim());
+            normalized.add(form);
+            if (analyses.containsKey(form) || missingForms.contains(form)) continue;
+            final List<MorphologyAnalysis> known = index != null ? index.findAnalysis(form) : analysisCache.get(form);
+            if (known != null){
+                analyses.put(form, known);
+            } else {
+                missingForms.add(form);
+            }
+        }
+        final ReadConnectionPool pool = readers;
+        final ReadConnectionPool.Reader reader = pool.acquire();
+        try {
+            final Map<String, List<MorphologyAnalysis>> fetched = new HashMap<String, List<MorphologyAnalysis>>();
+            selectIn(reader, "SELECT f.form, l.lemma, m.features FROM forms f JOIN morphology m ON m.form_id = f._id "
+                    + "JOIN lemmas l ON l._id = m.lemma_id WHERE f.form IN (%s) ORDER BY m._id", missingForms,
+                    new RowReader() {
+                        @Override
+                        public void read(ResultSet result) throws SQLException {
+                            final MorphologyAnalysis analysis = readAnalysis(result);
+                            group(fetched, result.getString(1)).add(analysis);
+                        }
+                    });
+            for (String form: missingForms){
+                final List<MorphologyAnalysis> found = fetched.containsKey(form)
+                        ? Collections.unmodifiableList(fetched.get(form))
+                        : Collections.<MorphologyAnalysis>emptyList();
+                analysisCache.put(form, found);
+                analyses.put(form, found);
+            }
+
+            final Map<String, List<LexiconEntry>> entries = new HashMap<String, List<LexiconEntry>>();
+            final Set<String> missingLemmas = new LinkedHashSet<String>();
+            for (List<MorphologyAnalysis> list: analyses.values()){
+                for (MorphologyAnalysis analysis: list){
+                    final String lemma = Orthography.normalize(analysis.getLemma().trim());
+                    if (entries.containsKey(lemma) || missingLemmas.contains(lemma)) continue;
+                    final List<LexiconEntry> cached = entryCache.get(lemma);
+                    if (cached != null){
+                        entries.put(lemma, cached);
+                    } else {
+                        missingLemmas.add(lemma);
+                    }
+                }
+            }
+            final Map<String, List<LexiconEntry>> read = new HashMap<String, List<LexiconEntry>>();
+            selectIn(reader, "SELECT lemma, ordinality, orthography, endings, gender, pos, definition FROM lexicon "
+                    + "WHERE lemma IN (%s) ORDER BY ordinality, _id", missingLemmas,
+                    new RowReader() {
+                        @Override
+                        public void read(ResultSet result) throws SQLException {
+                            final LexiconEntry entry = readEntry(result);
+                            group(read, result.getString("lemma")).add(entry);
+                        }
+                    });
+            for (String lemma: missingLemmas){
+                final List<LexiconEntry> found = read.containsKey(lemma)
+                        ? Collections.unmodifiableList(read.get(lemma))
+                        : Collections.<LexiconEntry>emptyList();
+                entryCache.put(lemma, found);
+                entries.put(lemma, found);
+            }
+
+            final List<QueryResult> results = new ArrayList<QueryResult>(normalized.size());
+            for (String form: normalized){
+                final QueryResult result = new QueryResult();
+                result.addMorphologicalAnalysis(analyses.get(form));
+                for (String lemma: result.getUniqueLemmas()){
+                    result.addLexicographicalEntry(entries.get(Orthography.normalize(lemma.trim())));
+                }
+                results.add(result);
+            }
+            return results;
+        } catch (SQLException se){
+            throw new RuntimeException(se);
+        } finally {
+            pool.release(reader);
+        }
+    }
+
+    /** Receives each row of a query */
+    private static interface RowReader {
+        void read(ResultSet result) throws SQLException;
+    }
+
+    /**
+     * Runs the query for the keys, as many statements as it takes to keep within {@link #MAX_PARAMETERS}
+     * @param sql query with a %s where the IN list of parameters goes
+     */
+    private static void selectIn(ReadConnectionPool.Reader connection, String sql, Collection<String> keys, RowReader reader)
+            throws SQLException {
+        final Iterator<String> remaining = keys.iterator();
+        for (int left = keys.size(); left > 0; left -= MAX_PARAMETERS){
+            final int count = Math.min(left, MAX_PARAMETERS);
+            final StringBuilder parameters = new StringBuilder(2 * count);
+            for (int i = 0; i < count; i++){
+                parameters.append(i == 0 ? "?" : ",?");
+            }
+            final PreparedStatement select = connection.getConnection().prepareStatement(String.format(sql, parameters));
+            try {
+                for (int i = 1; i <= count; i++){
+                    select.setString(i, remaining.next());
+                }
+                final ResultSet result = select.executeQuery();
+                while (result.next()){
+                    reader.read(result);
+                }
+                result.close();
+            } finally {
+                select.close();
+            }
+        }
+    }
+
+    private static <T> List<T> group(Map<String, List<T>> groups, String key){
+        List<T> group = groups.get(key);
+        if (group == null){
+            group = new ArrayList<T>();
+            groups.put(key, group);
+        }
+        return group;
     }
 
 
@@ -214,18 +970,11 @@ public class DataRepository implements PersistenceStrategy {
     public void writeAnalysis(MorphologyAnalysis analysis) {
 
         try {
-            writeAnalysis.setString(1, analysis.getForm());
-            writeAnalysis.setString(2, analysis.getLemma());
-            writeAnalysis.setString(3, analysis.getGrammaticalCase());
-            writeAnalysis.setString(4, analysis.getDegree());
-            writeAnalysis.setString(5, analysis.getGender());
-            writeAnalysis.setString(6, analysis.getMood());
-            writeAnalysis.setString(7, analysis.getNumber());
-            writeAnalysis.setString(8, analysis.getPerson());
-            writeAnalysis.setString(9, analysis.getPos());
-            writeAnalysis.setString(10, analysis.getTense());
-            writeAnalysis.setString(11, analysis.getVoice());
-            writeAnalysis.execute();
+            final PreparedStatement insert = writeAnalysis.getStatement();
+            insert.setInt(1, forms.intern(analysis.getForm()));
+            insert.setInt(2, lemmas.intern(analysis.getLemma()));
+            insert.setInt(3, analysis.getFeatures());
+            writeAnalysis.add();
         } catch (Exception e){
             throw new RuntimeException(e);
         }
@@ -234,16 +983,37 @@ public class DataRepository implements PersistenceStrategy {
 
     @Override
     public void writeLexiconEntry(LexiconEntry entry){
+        try {
+            if (trainer == null){
+                insertLexiconEntry(entry);
+            } else if (trainer.add(entry)){
+                trainCodec();
+            }
+        } catch (SQLException e){
+            throw new RuntimeException(e);
+        }
+    }
 
+    private void insertLexiconEntry(LexiconEntry entry){
         try {
-            writeLexiconEntry.setString(1, entry.getKey());
-            writeLexiconEntry.setInt(2, entry.getOrdinality());
-            writeLexiconEntry.setString(3, entry.getOrthography());
-            writeLexiconEntry.setString(4, entry.getiType());
-            writeLexiconEntry.setString(5, entry.getGender());
-            writeLexiconEntry.setString(6, entry.getPos());
-            writeLexiconEntry.setBlob(7, Compression.toCompressedInputStream(entry.getDefinition()));
-            writeLexiconEntry.execute();
+            final PreparedStatement insert = writeLexiconEntry.getStatement();
+            insert.setString(1, entry.getKey());
+            insert.setInt(2, entry.getOrdinality());
+            insert.setString(3, entry.getOrthography());
+            insert.setString(4, entry.getiType());
+            insert.setString(5, entry.getGender());
+            insert.setString(6, entry.getPos());
+            insert.setBytes(7, telemetry.encode(codec, entry.getDefinition()));
+            writeLexiconEntry.add();
+            final PreparedStatement gloss = writeGloss.getStatement();
+            for (Map.Entry<String, int[]> term: GlossTerms.index(entry.getDefinition()).entrySet()){
+                gloss.setString(1, term.getKey());
+                gloss.setString(2, entry.getKey());
+                gloss.setInt(3, entry.getOrdinality());
+                gloss.setInt(4, term.getValue()[0]);
+                gloss.setInt(5, term.getValue()[1]);
+                writeGloss.add();
+            }
         } catch (Exception e){
             throw new RuntimeException(e);
         }
@@ -0,0 +1,141 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import org.magnopere.lexicon.latin.LexiconEntry;
+
+/**
+ * Compresses definitions as raw deflate against a preset dictionary trained from the lexicon itself, so
+ * that short glosses share the vocabulary of the whole dictionary rather than starting from a cold window.
+ * Each stream is preceded by a marker byte and the length of the definition in UTF-8 bytes, so that its
+ * size is known before it is decoded. Blobs written in the earlier per-entry gzip format, and bare deflate
+ * streams written before the length was added, are still read: a raw deflate stream can never begin with the
+ * gzip magic byte 0x1f, nor with the marker, whose block type is the reserved 11.
+ * <p/>
+ * Instances are immutable and safe to share between threads.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class DefinitionCodec implements LexiconEntry.DefinitionDecoder {
+
+    /** Reads and writes the per-entry gzip format only; used for databases built without a dictionary */
+    public static final DefinitionCodec GZIP = new DefinitionCodec(null);
+
+    /** BFINAL set and the reserved block type 11: never the first byte of a raw deflate stream */
+    private static final int SIZED_MARKER = 0x07;
+
+    private final byte[] dictionary;
+
+
+    /**
+     * New instance
+     * @param dictionary preset dictionary, at most 32 KiB, or null for the legacy gzip format
+     */
+    public DefinitionCodec(byte[] dictionary) {
+        if (dictionary != null && dictionary.length > DictionaryTrainer.DICTIONARY_SIZE){
+            throw new IllegalArgumentException("Dictionary exceeds the deflate window: " + dictionary.length);
+        }
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @return the preset dictionary, or null for the legacy gzip format
+     */
+    public byte[] getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @param definition to compress
+     * @return compressed definition
+     */
+    public byte[] encode(String definition){
+        if (dictionary == null) return Compression.compress(definition);
+        final byte[] body = Compression.deflate(definition, dictionary);
+        final byte[] header = new byte[6];
+        int pos = 0;
+        header[pos++] = SIZED_MARKER;
+        int size = Compression.utf8Length(definition);
+        while (size > 0x7f){
+            header[pos++] = (byte) (size & 0x7f | 0x80);
+            size >>>= 7;
+        }
+        header[pos++] = (byte) size;
+        final byte[] blob = new byte[pos + body.length];
+        System.arraycopy(header, 0, blob, 0, pos);
+        System.arraycopy(body, 0, blob, pos, body.length);
+        return blob;
+    }
+
+    /**
+     * @param blob a definition compressed by this codec or in the legacy gzip format
+     * @return the definition
+     */
+    @Override
+    public String decode(byte[] blob){
+        if (Compression.isGzip(blob)){
+            return Compression.deflateToString(blob);
+        }
+        if (isSized(blob)){
+            final int start = bodyStart(blob);
+            return Compression.inflate(blob, start, blob.length - start, dictionary, decodedSize(blob));
+        }
+        return Compression.inflate(blob, 0, blob.length, dictionary, 0);
+    }
+
+    /**
+     * @param blob a definition compressed by this codec or in the legacy gzip format
+     * @return the length of the definition in UTF-8 bytes, or -1 for a bare deflate stream, which does not record it
+     */
+    @Override
+    public int decodedSize(byte[] blob){
+        if (Compression.isGzip(blob)){
+            return Compression.gzipSize(blob);
+        }
+        if (!isSized(blob)) return -1;
+        int size = 0;
+        for (int pos = 1, shift = 0; ; pos++, shift += 7){
+            size |= (blob[pos] & 0x7f) << shift;
+            if ((blob[pos] & 0x80) == 0) return size;
+        }
+    }
+
+    private static boolean isSized(byte[] blob){
+        return blob.length > 1 && blob[0] == SIZED_MARKER;
+    }
+
+    private static int bodyStart(byte[] blob){
+        int pos = 1;
+        while ((blob[pos] & 0x80) != 0){
+            pos++;
+        }
+        return pos + 1;
+    }
+}
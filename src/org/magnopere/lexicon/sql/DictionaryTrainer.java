@@ -0,0 +1,201 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import org.magnopere.lexicon.latin.LexiconEntry;
+
+import java.io.UnsupportedEncodingException;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Builds the preset dictionary for a {@link DefinitionCodec} from the first definitions written to the lexicon.
+ * Entries are held back until enough text has been sampled; the writer then trains the codec and writes the
+ * buffered entries with it.
+ * <p/>
+ * Training counts runs of one to four words which recur in the sample and keeps those which save the most
+ * (occurrences beyond the first times length), skipping any already contained in a chosen run. Deflate
+ * reaches the end of its window most cheaply, so the best runs are placed last.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+class DictionaryTrainer {
+    private static final Logger LOG = Logger.getLogger(DictionaryTrainer.class.getName());
+
+    /** The deflate window; a longer dictionary would never be referenced */
+    static final int DICTIONARY_SIZE = 32 * 1024;
+    /** Characters of definition text sampled before training */
+    static final int SAMPLE_SIZE = 1024 * 1024;
+    private static final int MAX_WORDS = 4;
+    private static final int MIN_LENGTH = 4;
+    private static final int MIN_OCCURRENCES = 3;
+    /** Bounds the containment checks when most candidates are fragments of runs already chosen */
+    private static final int MAX_CANDIDATES = 20000;
+
+    private final List<LexiconEntry> buffered = new ArrayList<LexiconEntry>();
+    private final int sampleSize;
+    private int sampled;
+
+
+    DictionaryTrainer() {
+        this(SAMPLE_SIZE);
+    }
+
+    DictionaryTrainer(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Holds an entry back until the codec has been trained
+     * @param entry to buffer
+     * @return true once enough text has been sampled to train
+     */
+    boolean add(LexiconEntry entry){
+        buffered.add(entry);
+        sampled += entry.getDefinition().length();
+        return sampled >= sampleSize;
+    }
+
+    /**
+     * @return the entries held back, in the order added
+     */
+    List<LexiconEntry> getBuffered() {
+        return buffered;
+    }
+
+    /**
+     * @return a codec using a dictionary trained on the buffered definitions
+     */
+    DefinitionCodec train(){
+        final long start = System.nanoTime();
+        final List<String> definitions = new ArrayList<String>(buffered.size());
+        for (LexiconEntry entry: buffered){
+            definitions.add(entry.getDefinition());
+        }
+        final Map<String, int[]> counts = countRuns(definitions);
+        final List<Map.Entry<String, int[]>> candidates = new ArrayList<Map.Entry<String, int[]>>();
+        for (Map.Entry<String, int[]> run: counts.entrySet()){
+            if (run.getValue()[0] >= MIN_OCCURRENCES){
+                candidates.add(run);
+            }
+        }
+        Collections.sort(candidates, new Comparator<Map.Entry<String, int[]>>() {
+            @Override
+            public int compare(Map.Entry<String, int[]> a, Map.Entry<String, int[]> b) {
+                final long scoreA = score(a), scoreB = score(b);
+                return scoreA > scoreB ? -1 : scoreA < scoreB ? 1 : a.getKey().compareTo(b.getKey());
+            }
+        });
+        final List<String> chosen = new ArrayList<String>();
+        final StringBuilder contents = new StringBuilder();
+        int size = 0;
+        for (int i = 0; i < candidates.size() && i < MAX_CANDIDATES && size < DICTIONARY_SIZE; i++){
+            final String run = candidates.get(i).getKey();
+            final int length = utf8Length(run);
+            if (size + length > DICTIONARY_SIZE || contents.indexOf(run) >= 0) continue;
+            chosen.add(run);
+            contents.append(run);
+            size += length;
+        }
+        final StringBuilder dictionary = new StringBuilder(size);
+        for (int i = chosen.size() - 1; i >= 0; i--){
+            dictionary.append(chosen.get(i));
+        }
+        final DefinitionCodec codec;
+        try {
+            codec = new DefinitionCodec(dictionary.toString().getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+        report(definitions, codec, start);
+        return codec;
+    }
+
+    private static long score(Map.Entry<String, int[]> run){
+        return (long) (run.getValue()[0] - 1) * run.getKey().length();
+    }
+
+    /**
+     * Splits each definition into words, each keeping the spaces and punctuation which follow it, and counts
+     * every run of up to MAX_WORDS consecutive words.
+     */
+    private static Map<String, int[]> countRuns(List<String> definitions){
+        final Map<String, int[]> counts = new HashMap<String, int[]>();
+        final List<String> words = new ArrayList<String>();
+        final StringBuilder run = new StringBuilder();
+        for (String definition: definitions){
+            words.clear();
+            int wordStart = 0;
+            for (int i = 1; i <= definition.length(); i++){
+                if (i == definition.length() || (Character.isLetterOrDigit(definition.charAt(i)) && !Character.isLetterOrDigit(definition.charAt(i - 1)))){
+                    words.add(definition.substring(wordStart, i));
+                    wordStart = i;
+                }
+            }
+            for (int i = 0; i < words.size(); i++){
+                run.setLength(0);
+                for (int n = 0; n < MAX_WORDS && i + n < words.size(); n++){
+                    run.append(words.get(i + n));
+                    if (run.length() < MIN_LENGTH) continue;
+                    final String key = run.toString();
+                    final int[] count = counts.get(key);
+                    if (count == null){
+                        counts.put(key, new int[]{1});
+                    } else {
+                        count[0]++;
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static int utf8Length(String s){
+        int length = 0;
+        for (int i = 0; i < s.length(); i++){
+            final char c = s.charAt(i);
+            length += c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isSurrogate(c) ? 2 : 3;
+        }
+        return length;
+    }
+
+    private void report(List<String> definitions, DefinitionCodec codec, long startNanos){
+        long text = 0, gzip = 0, trained = 0;
+        for (String definition: definitions){
+            text += definition.length();
+            gzip += Compression.compress(definition).length;
+            trained += codec.encode(definition).length;
+        }
+        LOG.info(String.format("Trained a %d byte definition dictionary from %d definitions in %.1f s. Sample of %d chars: %d bytes gzipped per entry, %d bytes with the dictionary (%.0f%%).",
+                codec.getDictionary().length, definitions.size(), (System.nanoTime() - startNanos) / 1e9,
+                text, gzip, trained, gzip > 0 ? 100d * trained / gzip : 0d));
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import org.magnopere.lexicon.latin.MorphologyAnalysis;
+
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * The whole morphology table held in a few flat arrays, answering {@link #findAnalysis(String)} without SQLite.
+ * Forms are stored end to end as UTF-8 and found through an open-addressed hash table of form numbers; each
+ * form owns a run of packed records of (lemma number, features). The only objects are the arrays and the
+ * lemma strings, whatever the number of rows. Read-only once loaded, so safe for any number of threads.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class FormIndex {
+    private static final Logger LOG = Logger.getLogger(FormIndex.class.getName());
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** UTF-8 of every form, end to end */
+    private final byte[]    formBytes;
+    /** start of each form in formBytes, and one past the last */
+    private final int[]     formOffsets;
+    /** hash of each form, to skip byte comparison on collisions */
+    private final int[]     formHashes;
+    /** first record of each form's run, and one past the last */
+    private final int[]     firstRecords;
+    /** lemma number and features of each analysis, two ints per record */
+    private final int[]     records;
+    /** form number + 1 per slot, 0 if empty; the length is a power of two */
+    private final int[]     slots;
+    private final String[]  lemmas;
+    private final long      loadNanos;
+
+
+    private FormIndex(byte[] formBytes, int[] formOffsets, int[] firstRecords, int[] records, String[] lemmas, long loadNanos) {
+        this.formBytes = formBytes;
+        this.formOffsets = formOffsets;
+        this.firstRecords = firstRecords;
+        this.records = records;
+        this.lemmas = lemmas;
+        final int forms = getFormCount();
+        formHashes = new int[forms];
+        int capacity = 2;
+        while (capacity < forms * 2){
+            capacity <<= 1;
+        }
+        slots = new int[capacity];
+        for (int form = 0; form < forms; form++){
+            final int hash = hash(formBytes, formOffsets[form], formOffsets[form + 1]);
+            formHashes[form] = hash;
+            int slot = hash & (capacity - 1);
+            while (slots[slot] != 0){
+                slot = (slot + 1) & (capacity - 1);
+            }
+            slots[slot] = form + 1;
+        }
+        this.loadNanos = System.nanoTime() - loadNanos;
+    }
+
+    /**
+     * Reads the forms, lemmas and morphology tables
+     * @param conn connection to verba.db
+     * @return the index
+     * @throws SQLException on failure
+     */
+    static FormIndex load(Connection conn) throws SQLException {
+        final long start = System.nanoTime();
+        final Statement statement = conn.createStatement();
+        try {
+            // lemma ids to dense numbers
+            final int[] lemmaNumbers = new int[maxId(statement, "lemmas") + 1];
+            final List<String> lemmas = new ArrayList<String>();
+            ResultSet result = statement.executeQuery("SELECT _id, lemma FROM lemmas ORDER BY _id");
+            while (result.next()){
+                lemmaNumbers[result.getInt(1)] = lemmas.size();
+                lemmas.add(result.getString(2));
+            }
+            result.close();
+
+            // forms in id order, so that the ordered morphology rows fall into runs by form number
+            final int[] formNumbers = new int[maxId(statement, "forms") + 1];
+            Arrays.fill(formNumbers, -1);
+            byte[] formBytes = new byte[1 << 20];
+            int[] formOffsets = new int[1 << 14];
+            int forms = 0, length = 0;
+            result = statement.executeQuery("SELECT _id, form FROM forms ORDER BY _id");
+            while (result.next()){
+                final byte[] utf8 = result.getString(2).getBytes(UTF_8);
+                if (length + utf8.length > formBytes.length){
+                    formBytes = Arrays.copyOf(formBytes, Math.max(formBytes.length * 2, length + utf8.length));
+                }
+                if (forms + 2 > formOffsets.length){
+                    formOffsets = Arrays.copyOf(formOffsets, formOffsets.length * 2);
+                }
+                System.arraycopy(utf8, 0, formBytes, length, utf8.length);
+                formOffsets[forms] = length;
+                formNumbers[result.getInt(1)] = forms++;
+                length += utf8.length;
+            }
+            formOffsets[forms] = length;
+            result.close();
+
+            final int[] firstRecords = new int[forms + 1];
+            int[] records = new int[1 << 16];
+            int count = 0, form = -1;
+            result = statement.executeQuery("SELECT form_id, lemma_id, features FROM morphology ORDER BY form_id, _id");
+            while (result.next()){
+                final int number = formNumbers[result.getInt(1)];
+                while (form < number){
+                    firstRecords[++form] = count;
+                }
+                if (2 * count + 2 > records.length){
+                    records = Arrays.copyOf(records, records.length * 2);
+                }
+                records[2 * count] = lemmaNumbers[result.getInt(2)];
+                records[2 * count + 1] = result.getInt(3);
+                count++;
+            }
+            result.close();
+            while (form < forms){
+                firstRecords[++form] = count;
+            }
+            final FormIndex index = new FormIndex(Arrays.copyOf(formBytes, length), Arrays.copyOf(formOffsets, forms + 1),
+                    firstRecords, Arrays.copyOf(records, 2 * count), lemmas.toArray(new String[lemmas.size()]), start);
+            LOG.info(String.format("Loaded %d forms, %d analyses and %d lemmas into the form index in %.1f s; about %.1f MB of heap.",
+                    index.getFormCount(), index.getAnalysisCount(), lemmas.size(), index.getLoadNanos() / 1e9,
+                    index.getHeapBytes() / (double) (1 << 20)));
+            return index;
+        } finally {
+            statement.close();
+        }
+    }
+
+    private static int maxId(Statement statement, String table) throws SQLException {
+        final ResultSet result = statement.executeQuery(String.format("SELECT max(_id) FROM %s", table));
+        final int max = result.next() ? result.getInt(1) : 0;
+        result.close();
+        return max;
+    }
+
+    /**
+     * @param form a rectified form
+     * @return (possibly empty) list of analyses of the form, new on every call
+     */
+    public List<MorphologyAnalysis> findAnalysis(String form) {
+        final byte[] key = form.getBytes(UTF_8);
+        final int hash = hash(key, 0, key.length);
+        final int mask = slots.length - 1;
+        for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask){
+            final int number = slots[slot] - 1;
+            if (formHashes[number] == hash && matches(number, key)){
+                final List<MorphologyAnalysis> analyses = new ArrayList<MorphologyAnalysis>(firstRecords[number + 1] - firstRecords[number]);
+                for (int record = firstRecords[number]; record < firstRecords[number + 1]; record++){
+                    final MorphologyAnalysis analysis = new MorphologyAnalysis();
+                    analysis.setForm(form);
+                    analysis.setLemma(lemmas[records[2 * record]]);
+                    analysis.setFeatures(records[2 * record + 1]);
+                    analyses.add(analysis);
+                }
+                return analyses;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private boolean matches(int number, byte[] key){
+        final int start = formOffsets[number];
+        if (formOffsets[number + 1] - start != key.length) return false;
+        for (int i = 0; i < key.length; i++){
+            if (formBytes[start + i] != key[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a, finished with a murmur3 mix so that the low bits used for the slot are well spread
+     */
+    private static int hash(byte[] bytes, int from, int to){
+        int h = 0x811c9dc5;
+        for (int i = from; i < to; i++){
+            h ^= bytes[i] & 0xff;
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    public int getFormCount() {
+        return formOffsets.length - 1;
+    }
+
+    public int getAnalysisCount() {
+        return records.length / 2;
+    }
+
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+
+    /**
+     * @return an estimate of the heap held: the arrays, and the lemma strings at two bytes a character
+     */
+    public long getHeapBytes() {
+        long bytes = formBytes.length + 4L * (formOffsets.length + formHashes.length + firstRecords.length
+                + records.length + slots.length + lemmas.length);
+        for (String lemma: lemmas){
+            bytes += 40 + 2L * lemma.length();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import org.magnopere.lexicon.latin.Orthography;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Finds the forms within a small edit distance of a misspelt word by symmetric deletion: every string left by
+ * deleting up to {@link #MAX_DISTANCE} characters of a form is recorded against the form, and the deletions of
+ * the word are looked up in that record. A form shares a deletion with any word within the distance, so only
+ * those forms need their true distance, optimal string alignment (Levenshtein with transposition), computed.
+ * The deletions are kept as hashes, sorted, beside the number of their form: eight bytes apiece, whatever their
+ * length. Read-only once built, so safe for any number of threads.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class FuzzyIndex {
+    private static final Logger LOG = Logger.getLogger(FuzzyIndex.class.getName());
+    /** The greatest distance the deletions recorded cover */
+    public static final int MAX_DISTANCE = 2;
+
+    /** Every form end to end */
+    private final char[]    formChars;
+    /** start of each form in formChars, and one past the last */
+    private final int[]     formOffsets;
+    /** hash of each deletion, ascending */
+    private final int[]     deletionHashes;
+    /** number of the form each deletion came from */
+    private final int[]     deletionForms;
+    private final long      buildNanos;
+
+
+    private FuzzyIndex(char[] formChars, int[] formOffsets, int[] deletionHashes, int[] deletionForms, long buildNanos) {
+        this.formChars = formChars;
+        this.formOffsets = formOffsets;
+        this.deletionHashes = deletionHashes;
+        this.deletionForms = deletionForms;
+        this.buildNanos = buildNanos;
+    }
+
+    /**
+     * Reads the forms table
+     * @param conn connection to verba.db
+     * @return the index
+     * @throws SQLException on failure
+     */
+    static FuzzyIndex load(Connection conn) throws SQLException {
+        final long start = System.nanoTime();
+        final List<String> forms = new ArrayList<String>();
+        final Statement statement = conn.createStatement();
+        try {
+            final ResultSet result = statement.executeQuery("SELECT form FROM forms");
+            while (result.next()){
+                forms.add(result.getString(1));
+            }
+            result.close();
+        } finally {
+            statement.close();
+        }
+        final FuzzyIndex index = build(forms, start);
+        LOG.info(String.format("Built the fuzzy index of %d forms and %d deletions in %.1f s; about %.1f MB of heap.",
+                index.getFormCount(), index.getDeletionCount(), index.getBuildNanos() / 1e9,
+                index.getHeapBytes() / (double) (1 << 20)));
+        return index;
+    }
+
+    /**
+     * @param forms distinct normalized forms
+     * @return the index of the forms
+     */
+    public static FuzzyIndex build(Collection<String> forms) {
+        return build(forms, System.nanoTime());
+    }
+
+    private static FuzzyIndex build(Collection<String> forms, long start) {
+        int length = 0;
+        for (String word: forms){
+            length += word.length();
+        }
+        final char[] formChars = new char[length];
+        final int[] formOffsets = new int[forms.size() + 1];
+        long[] deletions = new long[forms.size() * 16];
+        int count = 0, form = 0, offset = 0;
+        int[] hashes = new int[64];
+        for (String word: forms){
+            word.getChars(0, word.length(), formChars, offset);
+            formOffsets[form] = offset;
+            hashes = deletions(formChars, offset, offset + word.length(), MAX_DISTANCE, hashes);
+            final int found = hashes[0];
+            if (count + found > deletions.length){
+                deletions = Arrays.copyOf(deletions, Math.max(deletions.length * 2, count + found));
+            }
+            for (int i = 1; i <= found; i++){
+                // the hash in the high half, so that sorting orders by hash
+                deletions[count++] = ((long) hashes[i] << 32) | form;
+            }
+            offset += word.length();
+            form++;
+        }
+        formOffsets[form] = offset;
+        Arrays.sort(deletions, 0, count);
+        final int[] deletionHashes = new int[count];
+        final int[] deletionForms = new int[count];
+        int distinct = 0;
+        for (int i = 0; i < count; i++){
+            if (i > 0 && deletions[i] == deletions[i - 1]) continue;
+            deletionHashes[distinct] = (int) (deletions[i] >> 32);
+            deletionForms[distinct] = (int) deletions[i];
+            distinct++;
+        }
+        return new FuzzyIndex(formChars, formOffsets, Arrays.copyOf(deletionHashes, distinct),
+                Arrays.copyOf(deletionForms, distinct), System.nanoTime() - start);
+    }
+
+    /**
+     * Hashes the text and every string left by deleting up to distance of its characters
+     * @param hashes to reuse if large enough
+     * @return the count of hashes in element 0, followed by the hashes
+     */
+    private static int[] deletions(char[] text, int from, int to, int distance, int[] hashes){
+        final int length = to - from;
+        final int needed = 2 + length + (distance > 1 ? length * (length - 1) / 2 : 0);
+        if (hashes.length < needed){
+            hashes = new int[needed];
+        }
+        int count = 0;
+        hashes[++count] = hash(text, from, to, -1, -1);
+        if (distance > 0){
+            for (int i = from; i < to; i++){
+                hashes[++count] = hash(text, from, to, i, -1);
+                if (distance > 1){
+                    for (int j = i + 1; j < to; j++){
+                        hashes[++count] = hash(text, from, to, i, j);
+                    }
+                }
+            }
+        }
+        hashes[0] = count;
+        return hashes;
+    }
+
+    /**
+     * FNV-1a of the text less the characters at skip and alsoSkip, finished with a murmur3 mix
+     */
+    private static int hash(char[] text, int from, int to, int skip, int alsoSkip){
+        int h = 0x811c9dc5;
+        for (int i = from; i < to; i++){
+            if (i == skip || i == alsoSkip) continue;
+            h ^= text[i];
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * @param word a word, normalized here
+     * @param maxDistance the greatest edit distance wanted, at most {@link #MAX_DISTANCE}
+     * @param limit the most forms wanted
+     * @return up to limit forms within maxDistance of the word, nearest first and in order within a distance
+     */
+    public List<String> suggest(String word, int maxDistance, int limit) {
+        if (maxDistance < 0 || maxDistance > MAX_DISTANCE){
+            throw new IllegalArgumentException(String.format("maxDistance must be from 0 to %d: %d", MAX_DISTANCE, maxDistance));
+        }
+        final char[] query = Orthography.normalize(word.trim()).toCharArray();
+        // nearer forms come first, so a wider search is needed only while the nearer ones are too few
+        List<Suggestion> found = Collections.emptyList();
+        for (int distance = 0; distance <= maxDistance && found.size() < limit; distance++){
+            found = suggest(query, distance);
+        }
+        final List<String> suggestions = new ArrayList<String>(Math.min(limit, found.size()));
+        for (int i = 0; i < found.size() && i < limit; i++){
+            suggestions.add(found.get(i).form);
+        }
+        return suggestions;
+    }
+
+    /**
+     * @return the forms within maxDistance of the query, nearest first
+     */
+    private List<Suggestion> suggest(char[] query, int maxDistance){
+        final int[] hashes = deletions(query, 0, query.length, maxDistance, new int[0]);
+        int[] candidates = new int[64];
+        int count = 0;
+        for (int i = 1; i <= hashes[0]; i++){
+            for (int d = lowerBound(hashes[i]); d < deletionHashes.length && deletionHashes[d] == hashes[i]; d++){
+                if (count == candidates.length){
+                    candidates = Arrays.copyOf(candidates, count * 2);
+                }
+                candidates[count++] = deletionForms[d];
+            }
+        }
+        Arrays.sort(candidates, 0, count);
+        final List<Suggestion> found = new ArrayList<Suggestion>();
+        final int[][] rows = new int[3][query.length + maxDistance + 1];
+        for (int i = 0; i < count; i++){
+            if (i > 0 && candidates[i] == candidates[i - 1]) continue;
+            final int distance = distance(query, candidates[i], maxDistance, rows);
+            if (distance <= maxDistance){
+                final int start = formOffsets[candidates[i]];
+                found.add(new Suggestion(new String(formChars, start, formOffsets[candidates[i] + 1] - start), distance));
+            }
+        }
+        Collections.sort(found, Suggestion.NEAREST);
+        return found;
+    }
+
+    private int lowerBound(int hash){
+        int low = 0, high = deletionHashes.length;
+        while (low < high){
+            final int mid = (low + high) >>> 1;
+            if (deletionHashes[mid] < hash){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Optimal string alignment distance between the query and a form, abandoned once it must exceed max
+     * @param rows three rows at least as long as the form, plus one
+     * @return the distance, or max + 1 if greater than max
+     */
+    private int distance(char[] query, int form, int max, int[][] rows){
+        final int start = formOffsets[form];
+        final int length = formOffsets[form + 1] - start;
+        if (Math.abs(length - query.length) > max) return max + 1;
+        int[] before = rows[0], previous = rows[1], current = rows[2];
+        for (int j = 0; j <= length; j++){
+            previous[j] = j;
+        }
+        for (int i = 1; i <= query.length; i++){
+            current[0] = i;
+            int best = i;
+            for (int j = 1; j <= length; j++){
+                final char c = formChars[start + j - 1];
+                int cost = previous[j - 1] + (query[i - 1] == c ? 0 : 1);
+                cost = Math.min(cost, Math.min(previous[j] + 1, current[j - 1] + 1));
+                if (i > 1 && j > 1 && query[i - 1] == formChars[start + j - 2] && query[i - 2] == c){
+                    cost = Math.min(cost, before[j - 2] + 1);
+                }
+                current[j] = cost;
+                best = Math.min(best, cost);
+            }
+            if (best > max) return max + 1;
+            final int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[length];
+    }
+
+    public int getFormCount() {
+        return formOffsets.length - 1;
+    }
+
+    public int getDeletionCount() {
+        return deletionHashes.length;
+    }
+
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * @return the heap held by the arrays
+     */
+    public long getHeapBytes() {
+        return 2L * formChars.length + 4L * (formOffsets.length + deletionHashes.length + deletionForms.length);
+    }
+
+    private static class Suggestion {
+        static final Comparator<Suggestion> NEAREST = new Comparator<Suggestion>() {
+            @Override
+            public int compare(Suggestion a, Suggestion b) {
+                return a.distance != b.distance ? a.distance - b.distance : a.form.compareTo(b.form);
+            }
+        };
+
+        final String    form;
+        final int       distance;
+
+        Suggestion(String form, int distance) {
+            this.form = form;
+            this.distance = distance;
+        }
+    }
+}
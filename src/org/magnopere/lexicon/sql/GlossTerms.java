@@ -0,0 +1,132 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splits English glosses into the terms of the reverse index. A term is a run of letters, lower cased and with
+ * a plural ending taken off, so that "weapons" is found by "weapon". Common English words, the Latin and
+ * abbreviations which definitions set in &lt;em&gt;, and capitalized abbreviations such as the author citation
+ * "Cs." are left out.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+final class GlossTerms {
+    private static final String EMPHASIS     = "<em>";
+    private static final String END_EMPHASIS = "</em>";
+    private static final Set<String> STOP_WORDS = new HashSet<String>(Arrays.asList(
+            "a", "an", "and", "any", "are", "as", "at", "be", "by", "for", "from", "he", "her", "his", "in", "is", "it",
+            "its", "of", "on", "one", "or", "so", "some", "that", "the", "their", "them", "this", "to", "up", "us",
+            "was", "which", "who", "with"));
+
+    /**
+     * Do not instantiate
+     */
+    private GlossTerms() { }
+
+    /**
+     * @param definition a definition, with its emphasis markup
+     * @return each term of the definition, in order of first appearance, with the number of times it appears
+     * and the number of terms before its first appearance
+     */
+    static Map<String, int[]> index(String definition){
+        final Map<String, int[]> terms = new LinkedHashMap<String, int[]>();
+        int position = 0;
+        for (String term: split(definition)){
+            final int[] seen = terms.get(term);
+            if (seen == null){
+                terms.put(term, new int[]{1, position});
+            } else {
+                seen[0]++;
+            }
+            position++;
+        }
+        return terms;
+    }
+
+    /**
+     * @param text English words
+     * @return the distinct terms of the text
+     */
+    static List<String> query(String text){
+        return new ArrayList<String>(index(text).keySet());
+    }
+
+    private static List<String> split(String text){
+        final List<String> terms = new ArrayList<String>();
+        final int length = text.length();
+        int i = 0;
+        while (i < length){
+            if (text.startsWith(EMPHASIS, i)){
+                final int end = text.indexOf(END_EMPHASIS, i);
+                i = end < 0 ? length : end + END_EMPHASIS.length();
+            } else if (isLetter(text.charAt(i))){
+                final int start = i;
+                while (i < length && isLetter(text.charAt(i))){
+                    i++;
+                }
+                final boolean abbreviation = Character.isUpperCase(text.charAt(start)) && i < length && text.charAt(i) == '.';
+                final String word = text.substring(start, i).toLowerCase();
+                if (!abbreviation && !STOP_WORDS.contains(word)){
+                    terms.add(stem(word));
+                }
+            } else {
+                i++;
+            }
+        }
+        return terms;
+    }
+
+    private static boolean isLetter(char c){
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * Takes the plural off: "cities" to "city", "boxes" to "box", "arms" to "arm", but not "grass"
+     */
+    private static String stem(String word){
+        final int length = word.length();
+        if (length > 4 && word.endsWith("ies")) return word.substring(0, length - 3) + 'y';
+        if (length > 3 && (word.endsWith("sses") || word.endsWith("xes") || word.endsWith("ches") || word.endsWith("shes"))){
+            return word.substring(0, length - 2);
+        }
+        if (length > 3 && word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us") && !word.endsWith("is")){
+            return word.substring(0, length - 1);
+        }
+        return word;
+    }
+}
@@ -0,0 +1,546 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import org.magnopere.lexicon.latin.LexiconEntry;
+import org.magnopere.lexicon.latin.MorphologyAnalysis;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TimeZone;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * Measures a build of the database, SQL scripts or index. Time is kept per {@link Phase}, summed over the threads
+ * working in it, so that phases running at once may add up to more than the build took. Each phase's time is its
+ * own: writing excludes the compression done while writing, and parsing excludes normalization and the hand-off
+ * of records to the writer.
+ * <p/>
+ * While the build runs, progress is logged every few seconds with the records and bytes parsed per second and the
+ * depth of any watched queue. Once it has finished, {@link #writeReport(File)} writes the totals as JSON.
+ * <p/>
+ * Counters may be added to from any thread.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class ImportTelemetry {
+    private static final Logger LOG = Logger.getLogger(ImportTelemetry.class.getName());
+
+    public static final String REPORT_FILE_NAME = "verba-import.json";
+    /** Records a parser counts before adding them to the telemetry */
+    public static final int PUBLISH_INTERVAL = 2000;
+    private static final long SAMPLE_MILLIS = 100;
+    private static final long PROGRESS_MILLIS = 5000;
+
+    private static final Phase[] PHASES = Phase.values();
+
+    /** Discards everything; for parsers and writers used outside a measured build */
+    public static final ImportTelemetry NONE = new ImportTelemetry(false);
+
+    /**
+     * Stages of the build. Bytes are counted by parsing, as read from the sources, and by compression, as written.
+     */
+    public static enum Phase {
+        /** reading the sources and building records */
+        PARSE,
+        /** folding the orthography of forms, lemmas and keys */
+        NORMALIZE,
+        /** training the definition dictionary and compressing definitions */
+        COMPRESS,
+        /** writing records to the persistence layer */
+        WRITE,
+        /** building indexes, and finishing what was held back until then */
+        INDEX;
+
+        String getName(){
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+
+    private final boolean           enabled;
+    private final AtomicLongArray   nanos   = new AtomicLongArray(PHASES.length);
+    private final AtomicLongArray   records = new AtomicLongArray(PHASES.length);
+    private final AtomicLongArray   bytes   = new AtomicLongArray(PHASES.length);
+    private final List<QueueGauge>  queues  = new CopyOnWriteArrayList<QueueGauge>();
+
+    private Timer   timer;
+    private Date    started;
+    private long    startNanos;
+    private long    finishNanos;
+
+
+    public ImportTelemetry() {
+        this(true);
+    }
+
+    private ImportTelemetry(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Starts the clock and the periodic progress log
+     */
+    public synchronized void start(){
+        if (!enabled) throw new IllegalStateException("NONE cannot be started");
+        if (timer != null) throw new IllegalStateException("Already started");
+        started = new Date();
+        startNanos = System.nanoTime();
+        timer = new Timer("import-telemetry", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            private long lastLog = startNanos;
+            private long lastRecords;
+            private long lastBytes;
+
+            @Override
+            public void run() {
+                for (QueueGauge gauge: queues){
+                    gauge.sample();
+                }
+                final long now = System.nanoTime();
+                if (now - lastLog >= PROGRESS_MILLIS * 1000000L){
+                    final long parsed = records.get(Phase.PARSE.ordinal());
+                    final long read = bytes.get(Phase.PARSE.ordinal());
+                    logProgress(now, parsed - lastRecords, read - lastBytes, now - lastLog);
+                    lastLog = now;
+                    lastRecords = parsed;
+                    lastBytes = read;
+                }
+            }
+        }, SAMPLE_MILLIS, SAMPLE_MILLIS);
+    }
+
+    /**
+     * Stops the clock and the progress log
+     */
+    public synchronized void finish(){
+        if (timer == null) throw new IllegalStateException("Not started");
+        if (finishNanos != 0) return;
+        timer.cancel();
+        finishNanos = System.nanoTime();
+    }
+
+    /**
+     * Adds to the counters of a phase
+     * @param phase where the time was spent
+     * @param elapsed nanoseconds spent
+     * @param count records handled
+     * @param size bytes handled
+     */
+    public void add(Phase phase, long elapsed, long count, long size){
+        if (!enabled) return;
+        final int i = phase.ordinal();
+        nanos.addAndGet(i, elapsed);
+        if (count != 0) records.addAndGet(i, count);
+        if (size != 0) bytes.addAndGet(i, size);
+    }
+
+    /**
+     * Has the depth of the queue sampled while the build runs
+     * @param name of the queue in the log and report
+     * @param queue to watch
+     */
+    public void watchQueue(String name, BlockingQueue<?> queue){
+        if (enabled) queues.add(new QueueGauge(name, queue));
+    }
+
+    /**
+     * @return a meter for one parser on one thread
+     */
+    public ParseMeter newParseMeter(){
+        return new ParseMeter();
+    }
+
+    /**
+     * Wraps a strategy so that its writes are timed as {@link Phase#WRITE} and its index build and closing as
+     * {@link Phase#INDEX}, less any compression done meanwhile. A strategy which compresses must be given this
+     * telemetry itself for that to be told apart.
+     * @param persister the strategy to time
+     * @return the timed strategy, or the strategy itself if the telemetry is {@link #NONE}
+     */
+    public PersistenceStrategy instrument(PersistenceStrategy persister){
+        return enabled ? new InstrumentedPersister(persister) : persister;
+    }
+
+    /**
+     * Compresses a definition, timing it as {@link Phase#COMPRESS}
+     */
+    byte[] encode(DefinitionCodec codec, String definition){
+        final long start = System.nanoTime();
+        final byte[] encoded = codec.encode(definition);
+        add(Phase.COMPRESS, System.nanoTime() - start, 1, encoded.length);
+        return encoded;
+    }
+
+    /**
+     * Trains a definition codec, timing it as {@link Phase#COMPRESS}
+     */
+    DefinitionCodec train(DictionaryTrainer trainer){
+        final long start = System.nanoTime();
+        final DefinitionCodec trained = trainer.train();
+        add(Phase.COMPRESS, System.nanoTime() - start, 0, 0);
+        return trained;
+    }
+
+    public long getNanos(Phase phase){
+        return nanos.get(phase.ordinal());
+    }
+
+    public long getRecords(Phase phase){
+        return records.get(phase.ordinal());
+    }
+
+    public long getBytes(Phase phase){
+        return bytes.get(phase.ordinal());
+    }
+
+    /**
+     * @return nanoseconds from start to finish, or to now if not yet finished
+     */
+    public synchronized long getWallNanos(){
+        if (timer == null) return 0;
+        return (finishNanos != 0 ? finishNanos : System.nanoTime()) - startNanos;
+    }
+
+    /**
+     * @return the phase which took the most time
+     */
+    public Phase getDominantPhase(){
+        Phase dominant = PHASES[0];
+        for (Phase phase: PHASES){
+            if (getNanos(phase) > getNanos(dominant)) dominant = phase;
+        }
+        return dominant;
+    }
+
+    /**
+     * @return one line giving the time of each phase and the phase which dominated
+     */
+    public String getSummary(){
+        final StringBuilder sb = new StringBuilder(String.format("Import took %.1f s:", getWallNanos() / 1e9));
+        final long total = getPhaseTotalNanos();
+        for (Phase phase: PHASES){
+            sb.append(String.format(" %s %.1f s (%.0f%%),", phase.getName(), getNanos(phase) / 1e9,
+                    total > 0 ? 100d * getNanos(phase) / total : 0d));
+        }
+        sb.setLength(sb.length() - 1);
+        return sb.append(String.format("; dominated by %s.", getDominantPhase().getName())).toString();
+    }
+
+    /**
+     * Writes the report to {@link #REPORT_FILE_NAME} in the directory, replacing any earlier report
+     * @param dir where the build's output went
+     * @return the report file
+     */
+    public File writeReport(File dir){
+        final File report = new File(dir, REPORT_FILE_NAME);
+        try {
+            final Writer out = new OutputStreamWriter(new FileOutputStream(report), "UTF-8");
+            try {
+                out.write(toJson());
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        LOG.info("Wrote the import report to " + report);
+        return report;
+    }
+
+    /**
+     * @return the totals of the build as a JSON object
+     */
+    public String toJson(){
+        final SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.ROOT);
+        iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+        final double wall = getWallNanos() / 1e9;
+        final long total = getPhaseTotalNanos();
+        final StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"started\": ").append(quote(started == null ? "" : iso.format(started))).append(",\n");
+        json.append("  \"java\": ").append(quote(System.getProperty("java.version"))).append(",\n");
+        json.append("  \"processors\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+        json.append("  \"wallSeconds\": ").append(decimal(wall)).append(",\n");
+        json.append("  \"records\": ").append(getRecords(Phase.PARSE)).append(",\n");
+        json.append("  \"bytes\": ").append(getBytes(Phase.PARSE)).append(",\n");
+        json.append("  \"recordsPerSecond\": ").append(decimal(rate(getRecords(Phase.PARSE), wall))).append(",\n");
+        json.append("  \"bytesPerSecond\": ").append(decimal(rate(getBytes(Phase.PARSE), wall))).append(",\n");
+        json.append("  \"dominantPhase\": ").append(quote(getDominantPhase().getName())).append(",\n");
+        json.append("  \"phases\": {");
+        for (Phase phase: PHASES){
+            final double seconds = getNanos(phase) / 1e9;
+            json.append(phase.ordinal() == 0 ? "\n" : ",\n")
+                .append("    ").append(quote(phase.getName())).append(": {")
+                .append("\"seconds\": ").append(decimal(seconds))
+                .append(", \"share\": ").append(decimal(total > 0 ? (double) getNanos(phase) / total : 0))
+                .append(", \"records\": ").append(getRecords(phase))
+                .append(", \"bytes\": ").append(getBytes(phase))
+                .append(", \"recordsPerSecond\": ").append(decimal(rate(getRecords(phase), seconds)))
+                .append(", \"bytesPerSecond\": ").append(decimal(rate(getBytes(phase), seconds)))
+                .append('}');
+        }
+        json.append("\n  },\n  \"queues\": {");
+        boolean first = true;
+        for (QueueGauge gauge: queues){
+            json.append(first ? "\n" : ",\n").append("    ").append(quote(gauge.name)).append(": ");
+            gauge.toJson(json);
+            first = false;
+        }
+        return json.append(first ? "}\n}\n" : "\n  }\n}\n").toString();
+    }
+
+    private long getPhaseTotalNanos(){
+        long total = 0;
+        for (Phase phase: PHASES){
+            total += getNanos(phase);
+        }
+        return total;
+    }
+
+    private void logProgress(long now, long recent, long recentBytes, long recentNanos){
+        final double seconds = (now - startNanos) / 1e9;
+        final double recentSeconds = recentNanos / 1e9;
+        final StringBuilder sb = new StringBuilder(String.format(
+                "Import at %.0f s: %d records (%.0f/s, %.0f/s lately), %.1f MB read (%.1f MB/s, %.1f MB/s lately)",
+                seconds, getRecords(Phase.PARSE), rate(getRecords(Phase.PARSE), seconds), rate(recent, recentSeconds),
+                getBytes(Phase.PARSE) / 1048576d, rate(getBytes(Phase.PARSE), seconds) / 1048576d,
+                rate(recentBytes, recentSeconds) / 1048576d));
+        for (QueueGauge gauge: queues){
+            sb.append(String.format("; %s queue %d/%d", gauge.name, gauge.queue.size(), gauge.getCapacity()));
+        }
+        LOG.info(sb.append('.').toString());
+    }
+
+    private static double rate(long count, double seconds){
+        return seconds > 0 ? count / seconds : 0d;
+    }
+
+    /**
+     * @return the value as a JSON string; the values quoted here need no escaping beyond quotes and backslashes
+     */
+    private static String quote(String value){
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    private static String decimal(double value){
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+
+    /**
+     * Times one parser on one thread. Records are counted as the parser hands them off, and added to the
+     * telemetry every {@link #PUBLISH_INTERVAL} records and once more when the parser calls {@link #publish()};
+     * the parsing time added is the time since the last publication, less the normalization and hand-offs.
+     * Not safe for use by more than one thread.
+     */
+    public final class ParseMeter {
+        private long lastPublished = System.nanoTime();
+        private long parsed;
+        private long read;
+        private long normalized;
+        private long normalizeNanos;
+        private long handOffNanos;
+
+        private ParseMeter() { }
+
+        /**
+         * @param in a source
+         * @return the source, counting the bytes read from it
+         */
+        public InputStream count(InputStream in){
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    final int b = super.read();
+                    if (b >= 0) read++;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int off, int len) throws IOException {
+                    final int n = super.read(buffer, off, len);
+                    if (n > 0) read += n;
+                    return n;
+                }
+            };
+        }
+
+        /**
+         * @param size bytes read from a source other than through {@link #count(InputStream)}
+         */
+        public void addBytes(long size){
+            read += size;
+        }
+
+        /**
+         * @param start when normalizing text began, from System.nanoTime()
+         */
+        public void normalized(long start){
+            normalizeNanos += System.nanoTime() - start;
+            normalized++;
+        }
+
+        /**
+         * Counts a record handed to the writer
+         * @param start when the hand-off began, from System.nanoTime()
+         */
+        public void handedOff(long start){
+            handOffNanos += System.nanoTime() - start;
+            record();
+        }
+
+        /**
+         * Counts a record kept by the parser
+         */
+        public void record(){
+            if (++parsed == PUBLISH_INTERVAL) publish();
+        }
+
+        /**
+         * Adds what has been counted since the last publication to the telemetry
+         */
+        public void publish(){
+            final long now = System.nanoTime();
+            add(Phase.PARSE, now - lastPublished - normalizeNanos - handOffNanos, parsed, read);
+            add(Phase.NORMALIZE, normalizeNanos, normalized, 0);
+            lastPublished = now;
+            parsed = 0;
+            read = 0;
+            normalized = 0;
+            normalizeNanos = 0;
+            handOffNanos = 0;
+        }
+    }
+
+
+    /**
+     * Samples the depth of a queue
+     */
+    private static final class QueueGauge {
+        private final String            name;
+        private final BlockingQueue<?>  queue;
+        private long    samples;
+        private long    sum;
+        private int     max;
+
+        QueueGauge(String name, BlockingQueue<?> queue){
+            this.name = name;
+            this.queue = queue;
+        }
+
+        synchronized void sample(){
+            final int depth = queue.size();
+            samples++;
+            sum += depth;
+            max = Math.max(max, depth);
+        }
+
+        int getCapacity(){
+            return queue.size() + queue.remainingCapacity();
+        }
+
+        synchronized void toJson(StringBuilder json){
+            json.append("{\"capacity\": ").append(getCapacity())
+                .append(", \"maxDepth\": ").append(max)
+                .append(", \"meanDepth\": ").append(decimal(samples > 0 ? (double) sum / samples : 0))
+                .append(", \"samples\": ").append(samples)
+                .append('}');
+        }
+    }
+
+
+    /**
+     * Times the calls made to a strategy on behalf of the build
+     */
+    private final class InstrumentedPersister implements PersistenceStrategy {
+        private final PersistenceStrategy persister;
+
+        InstrumentedPersister(PersistenceStrategy persister){
+            if (persister == null) throw new IllegalArgumentException("null: persister");
+            this.persister = persister;
+        }
+
+        @Override
+        public void buildLexiconTable() {
+            persister.buildLexiconTable();
+        }
+
+        @Override
+        public void buildMorphologyTable() {
+            persister.buildMorphologyTable();
+        }
+
+        @Override
+        public void buildIndexes() {
+            final long compressed = getNanos(Phase.COMPRESS);
+            final long start = System.nanoTime();
+            persister.buildIndexes();
+            add(Phase.INDEX, System.nanoTime() - start - (getNanos(Phase.COMPRESS) - compressed), 0, 0);
+        }
+
+        @Override
+        public void close() throws Exception {
+            final long compressed = getNanos(Phase.COMPRESS);
+            final long start = System.nanoTime();
+            persister.close();
+            add(Phase.INDEX, System.nanoTime() - start - (getNanos(Phase.COMPRESS) - compressed), 0, 0);
+        }
+
+        @Override
+        public void writeAnalysis(MorphologyAnalysis analysis) {
+            final long compressed = getNanos(Phase.COMPRESS);
+            final long start = System.nanoTime();
+            persister.writeAnalysis(analysis);
+            add(Phase.WRITE, System.nanoTime() - start - (getNanos(Phase.COMPRESS) - compressed), 1, 0);
+        }
+
+        @Override
+        public void writeLexiconEntry(LexiconEntry entry) {
+            final long compressed = getNanos(Phase.COMPRESS);
+            final long start = System.nanoTime();
+            persister.writeLexiconEntry(entry);
+            add(Phase.WRITE, System.nanoTime() - start - (getNanos(Phase.COMPRESS) - compressed), 1, 0);
+        }
+    }
+}
@@ -0,0 +1,563 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import org.magnopere.lexicon.latin.LexiconEntry;
+import org.magnopere.lexicon.latin.LexiconParser;
+import org.magnopere.lexicon.latin.MappedMorphologyParser;
+import org.magnopere.lexicon.latin.MorphologyAnalysis;
+import org.magnopere.lexicon.latin.MorphologyParser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import static org.magnopere.lexicon.latin.Slurper.*;
+
+/**
+ * Brings an existing verba.db up to date with the XML sources without rebuilding it. A digest of each
+ * source file is kept so that an unchanged source is skipped outright. For a changed source, a content hash
+ * is kept per lexicon entry (lemma and ordinality) and per morphology form group; the source is parsed once
+ * to hash it, the groups which were added, changed or removed are deleted, and a second parse writes only
+ * the added and changed groups.
+ * <p/>
+ * A table with no hashes recorded, such as one written by a full build, is rebuilt once from scratch while
+ * its hashes are recorded.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class IncrementalBuild {
+    private static final Logger LOG = Logger.getLogger(IncrementalBuild.class.getName());
+
+    private static final String DIGEST_TABLES_SQL = "org/magnopere/lexicon/sql/createDigestTables.sql";
+
+    private final DataRepository    repo;
+    private final Connection        conn;
+    private final File              morphFile;
+    private ImportTelemetry         telemetry = ImportTelemetry.NONE;
+    /** the repository, as the deltas write to it */
+    private PersistenceStrategy     target;
+
+
+    /**
+     * New instance
+     * @param repo the repository to update
+     * @param morphFile latin.morph.xml on disk, or null to use the copy on the classpath
+     */
+    public IncrementalBuild(DataRepository repo, File morphFile) {
+        if (repo == null) throw new IllegalArgumentException("null: repo");
+        this.repo = repo;
+        this.conn = repo.getConnection();
+        this.morphFile = morphFile;
+        this.target = repo;
+    }
+
+    /**
+     * Times the parsers and the writes to the repository against the given telemetry, which the repository
+     * should be given too
+     * @param telemetry telemetry for the import
+     */
+    public void setTelemetry(ImportTelemetry telemetry) {
+        if (telemetry == null) throw new IllegalArgumentException("null: telemetry");
+        this.telemetry = telemetry;
+        this.target = telemetry.instrument(repo);
+    }
+
+    /**
+     * Updates the lexicon and then the morphology table, and deletes the forms and lemmas no longer used.
+     * The repository is left open; its indexes are to be built and the repository closed as after any
+     * other build.
+     */
+    public void run(){
+        try {
+            repo.beginBatchWrites();
+            repo.executeScript(slurp(getClass().getClassLoader(), DIGEST_TABLES_SQL));
+            forgetStaleSchema("lexicon", "gloss_index", "term");
+            forgetStaleSchema("morphology", "morphology", "form_id");
+            conn.commit();
+            new LexiconDelta().update();
+            new MorphologyDelta().update();
+            repo.pruneUnreferencedIds();
+        } catch (RuntimeException e){
+            throw e;
+        } catch (Exception e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Drops the recorded hashes of a source whose tables were built to an earlier schema, lacking the given
+     * table or column, so that the update rebuilds them in full
+     */
+    private void forgetStaleSchema(String source, String table, String column) throws SQLException {
+        if (repo.hasColumn(table, column)) return;
+        final Statement statement = conn.createStatement();
+        try {
+            statement.executeUpdate(String.format("DELETE FROM %s_digest", source));
+            statement.executeUpdate(String.format("DELETE FROM source_digest WHERE source = '%s'", source));
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * FNV-1a over the fields, with a separator between them
+     */
+    private static long hash(String... fields){
+        long h = 0xcbf29ce484222325L;
+        for (String field: fields){
+            for (int i = 0; i < field.length(); i++){
+                h ^= field.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= 0xFFFF;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Spreads a record hash over 64 bits so that group digests may be summed, which makes them independent of
+     * the order of the records within the group
+     */
+    private static long mix(long h){
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static String sha1(InputStream in) throws Exception {
+        final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        try {
+            final byte[] buf = new byte[1 << 16];
+            for (int read = in.read(buf); read > 0; read = in.read(buf)){
+                digest.update(buf, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (byte b: digest.digest()){
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+
+    private enum Phase {
+        /** hash every group, writing nothing */
+        DIGEST,
+        /** write the records of changed groups */
+        APPLY,
+        /** rebuild the table, hashing as it is written */
+        FULL
+    }
+
+
+    /**
+     * One table and its source. Each subclass stands in as its parser's sink during each pass.
+     */
+    private abstract class Delta<R> {
+        private final String    source;
+        private final String    digestTable;
+        private final String[]  keyColumns;
+
+        private final Map<String, Long> digests = new HashMap<String, Long>();
+        private Set<String> changed;
+        private Phase       phase;
+
+        Delta(String source, String digestTable, String... keyColumns){
+            this.source = source;
+            this.digestTable = digestTable;
+            this.keyColumns = keyColumns;
+        }
+
+        abstract InputStream openSource() throws IOException;
+
+        abstract void parse();
+
+        abstract String keyOf(R rec);
+
+        abstract long hashOf(R rec);
+
+        /** deletes the rows of the given groups from the data table */
+        abstract void deleteRows(Collection<String> keys) throws SQLException;
+
+        abstract void rebuildTable();
+
+        abstract void prepareInsert() throws SQLException;
+
+        abstract void write(R rec);
+
+        void update() throws Exception {
+            final long start = System.nanoTime();
+            final String sourceDigest = sha1(openSource());
+            if (sourceDigest.equals(loadSourceDigest())){
+                LOG.info(String.format("%s source is unchanged; skipping.", source));
+                return;
+            }
+            final Map<String, Long> previous = loadDigests();
+            if (previous.isEmpty()){
+                phase = Phase.FULL;
+                parse();
+                execute("DELETE FROM " + digestTable);
+                saveDigests(digests.keySet());
+                LOG.info(String.format("%s: no content hashes recorded; rebuilt %d groups in %.1f s.",
+                        source, digests.size(), (System.nanoTime() - start) / 1e9));
+            } else {
+                phase = Phase.DIGEST;
+                parse();
+                changed = new HashSet<String>();
+                int inserted = 0;
+                for (Map.Entry<String, Long> digest: digests.entrySet()){
+                    final Long was = previous.get(digest.getKey());
+                    if (!digest.getValue().equals(was)){
+                        changed.add(digest.getKey());
+                        if (was == null) inserted++;
+                    }
+                }
+                final Set<String> removed = new HashSet<String>(previous.keySet());
+                removed.removeAll(digests.keySet());
+                final Set<String> stale = new HashSet<String>(changed);
+                stale.addAll(removed);
+                deleteRows(stale);
+                deleteDigests(stale);
+                phase = Phase.APPLY;
+                parse();
+                saveDigests(changed);
+                LOG.info(String.format("%s: %d groups inserted, %d updated, %d deleted, %d unchanged in %.1f s.",
+                        source, inserted, changed.size() - inserted, removed.size(), digests.size() - changed.size(),
+                        (System.nanoTime() - start) / 1e9));
+            }
+            saveSourceDigest(sourceDigest);
+            conn.commit();
+        }
+
+        void accept(R rec){
+            final String key = keyOf(rec);
+            if (phase != Phase.APPLY){
+                final Long digest = digests.get(key);
+                digests.put(key, (digest == null ? 0L : digest) + mix(hashOf(rec)));
+            }
+            if (phase == Phase.FULL || (phase == Phase.APPLY && changed.contains(key))){
+                write(rec);
+            }
+        }
+
+        /** called by the parser before it writes any records */
+        void beginPass(){
+            try {
+                if (phase == Phase.FULL){
+                    rebuildTable();
+                } else if (phase == Phase.APPLY){
+                    prepareInsert();
+                }
+            } catch (SQLException e){
+                throw new RuntimeException(e);
+            }
+        }
+
+        private String loadSourceDigest() throws SQLException {
+            final PreparedStatement select = conn.prepareStatement("SELECT digest FROM source_digest WHERE source = ?");
+            try {
+                select.setString(1, source);
+                final ResultSet result = select.executeQuery();
+                final String digest = result.next() ? result.getString(1) : null;
+                result.close();
+                return digest;
+            } finally {
+                select.close();
+            }
+        }
+
+        private void saveSourceDigest(String digest) throws SQLException {
+            final PreparedStatement insert = conn.prepareStatement("INSERT OR REPLACE INTO source_digest (source, digest) VALUES (?, ?)");
+            try {
+                insert.setString(1, source);
+                insert.setString(2, digest);
+                insert.executeUpdate();
+            } finally {
+                insert.close();
+            }
+        }
+
+        private Map<String, Long> loadDigests() throws SQLException {
+            final Map<String, Long> loaded = new HashMap<String, Long>();
+            final PreparedStatement select = conn.prepareStatement(
+                    String.format("SELECT %s, digest FROM %s", join(keyColumns), digestTable));
+            try {
+                final ResultSet result = select.executeQuery();
+                while (result.next()){
+                    final StringBuilder key = new StringBuilder(result.getString(1));
+                    for (int i = 1; i < keyColumns.length; i++){
+                        key.append('\t').append(result.getString(i + 1));
+                    }
+                    loaded.put(key.toString(), result.getLong(keyColumns.length + 1));
+                }
+                result.close();
+            } finally {
+                select.close();
+            }
+            return loaded;
+        }
+
+        private void saveDigests(Collection<String> keys) throws SQLException {
+            final PreparedStatement insert = conn.prepareStatement(String.format(
+                    "INSERT OR REPLACE INTO %s (%s, digest) VALUES (%s?)", digestTable, join(keyColumns), placeholders()));
+            try {
+                for (String key: keys){
+                    final int column = bindKey(insert, key);
+                    insert.setLong(column, digests.get(key));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            } finally {
+                insert.close();
+            }
+        }
+
+        private void deleteDigests(Collection<String> keys) throws SQLException {
+            deleteGroups(digestTable, keys);
+        }
+
+        /**
+         * Deletes the rows of the given groups from a table keyed by this delta's key columns
+         */
+        void deleteGroups(String table, Collection<String> keys) throws SQLException {
+            final StringBuilder where = new StringBuilder();
+            for (String column: keyColumns){
+                where.append(where.length() == 0 ? "" : " AND ").append(column).append(" = ?");
+            }
+            deleteKeys(String.format("DELETE FROM %s WHERE %s", table, where), keys);
+        }
+
+        /**
+         * Executes a delete statement whose leading parameters are bound to the parts of each key
+         */
+        void deleteKeys(String sql, Collection<String> keys) throws SQLException {
+            final PreparedStatement delete = conn.prepareStatement(sql);
+            try {
+                for (String key: keys){
+                    bindKey(delete, key);
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+            } finally {
+                delete.close();
+            }
+        }
+
+        /**
+         * Binds the parts of a tab-separated key to the leading parameters
+         * @return the next free parameter index
+         */
+        private int bindKey(PreparedStatement statement, String key) throws SQLException {
+            final String[] parts = key.split("\t", -1);
+            for (int i = 0; i < parts.length; i++){
+                statement.setString(i + 1, parts[i]);
+            }
+            return parts.length + 1;
+        }
+
+        private String placeholders(){
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < keyColumns.length; i++){
+                sb.append("?, ");
+            }
+            return sb.toString();
+        }
+
+        private void execute(String sql) throws SQLException {
+            final PreparedStatement statement = conn.prepareStatement(sql);
+            try {
+                statement.executeUpdate();
+            } finally {
+                statement.close();
+            }
+        }
+    }
+
+    private static String join(String[] columns){
+        final StringBuilder sb = new StringBuilder();
+        for (String column: columns){
+            sb.append(sb.length() == 0 ? "" : ", ").append(column);
+        }
+        return sb.toString();
+    }
+
+
+    private final class LexiconDelta extends Delta<LexiconEntry> implements LexiconSink {
+
+        LexiconDelta(){
+            super("lexicon", "lexicon_digest", "lemma", "ordinality");
+        }
+
+        @Override
+        InputStream openSource() {
+            return LexiconParser.class.getResourceAsStream(LexiconParser.LEXICON_PATH);
+        }
+
+        @Override
+        void parse() {
+            final LexiconParser parser = new LexiconParser(this, openSource());
+            parser.setTelemetry(telemetry);
+            parser.parse();
+        }
+
+        @Override
+        String keyOf(LexiconEntry entry) {
+            return entry.getKey() + '\t' + entry.getOrdinality();
+        }
+
+        @Override
+        long hashOf(LexiconEntry entry) {
+            return hash(entry.getKey(), Integer.toString(entry.getOrdinality()), entry.getOrthography(),
+                    entry.getiType(), entry.getGender(), entry.getPos(), entry.getDefinition());
+        }
+
+        @Override
+        void deleteRows(Collection<String> keys) throws SQLException {
+            deleteGroups("lexicon", keys);
+            deleteGroups("gloss_index", keys);
+        }
+
+        @Override
+        void rebuildTable() {
+            repo.buildLexiconTable();
+        }
+
+        @Override
+        void prepareInsert() throws SQLException {
+            repo.prepareLexiconInsert();
+        }
+
+        @Override
+        void write(LexiconEntry entry) {
+            target.writeLexiconEntry(entry);
+        }
+
+        @Override
+        public void buildLexiconTable() {
+            beginPass();
+        }
+
+        @Override
+        public void writeLexiconEntry(LexiconEntry entry) {
+            accept(entry);
+        }
+    }
+
+
+    private final class MorphologyDelta extends Delta<MorphologyAnalysis> implements MorphologySink {
+
+        MorphologyDelta(){
+            super("morphology", "morphology_digest", "form");
+        }
+
+        @Override
+        InputStream openSource() throws IOException {
+            return morphFile == null
+                    ? MorphologyParser.class.getResourceAsStream(MorphologyParser.LEXICON_PATH)
+                    : new FileInputStream(morphFile);
+        }
+
+        @Override
+        void parse() {
+            if (morphFile == null){
+                final MorphologyParser parser = new MorphologyParser(this,
+                        MorphologyParser.class.getResourceAsStream(MorphologyParser.LEXICON_PATH));
+                parser.setTelemetry(telemetry);
+                parser.parse();
+            } else {
+                final MappedMorphologyParser parser = new MappedMorphologyParser(this, morphFile);
+                parser.setTelemetry(telemetry);
+                parser.parse();
+            }
+        }
+
+        @Override
+        String keyOf(MorphologyAnalysis analysis) {
+            return analysis.getForm();
+        }
+
+        @Override
+        long hashOf(MorphologyAnalysis analysis) {
+            return hash(analysis.getForm(), analysis.getLemma(), analysis.getGrammaticalCase(), analysis.getDegree(),
+                    analysis.getGender(), analysis.getMood(), analysis.getNumber(), analysis.getPerson(),
+                    analysis.getPos(), analysis.getTense(), analysis.getVoice());
+        }
+
+        @Override
+        void deleteRows(Collection<String> keys) throws SQLException {
+            deleteKeys("DELETE FROM morphology WHERE form_id = (SELECT _id FROM forms WHERE form = ?)", keys);
+        }
+
+        @Override
+        void rebuildTable() {
+            repo.buildMorphologyTable();
+        }
+
+        @Override
+        void prepareInsert() throws SQLException {
+            repo.prepareMorphologyInsert();
+        }
+
+        @Override
+        void write(MorphologyAnalysis analysis) {
+            target.writeAnalysis(analysis);
+        }
+
+        @Override
+        public void buildMorphologyTable() {
+            beginPass();
+        }
+
+        @Override
+        public void writeAnalysis(MorphologyAnalysis analysis) {
+            accept(analysis);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns integer ids to the distinct values of a string column, such as forms and lemmas, writing each value to
+ * its id table the first time it is seen. Ids already in the table are loaded first, so that an incremental
+ * update continues the existing numbering.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+class Interner {
+    private final Connection            conn;
+    private final String                table;
+    private final String                column;
+    private final BatchInserter         insert;
+    private final Map<String, Integer>  ids = new HashMap<String, Integer>();
+    private int                         nextId = 1;
+
+
+    Interner(Connection conn, String table, String column, int batchSize) throws SQLException {
+        this.conn = conn;
+        this.table = table;
+        this.column = column;
+        load();
+        insert = new BatchInserter(conn, table,
+                String.format("insert into %s (_id, %s) values (?, ?);", table, column), batchSize);
+    }
+
+    private void load() throws SQLException {
+        final Statement select = conn.createStatement();
+        try {
+            final ResultSet result = select.executeQuery(String.format("SELECT _id, %s FROM %s", column, table));
+            while (result.next()){
+                final int id = result.getInt(1);
+                ids.put(result.getString(2), id);
+                nextId = Math.max(nextId, id + 1);
+            }
+            result.close();
+        } finally {
+            select.close();
+        }
+    }
+
+    /**
+     * @param value to intern
+     * @return the id of value, written to the id table if it is new
+     * @throws SQLException on failure
+     */
+    int intern(String value) throws SQLException {
+        final Integer id = ids.get(value);
+        if (id != null) return id;
+        final int assigned = nextId++;
+        ids.put(value, assigned);
+        final PreparedStatement statement = insert.getStatement();
+        statement.setInt(1, assigned);
+        statement.setString(2, value);
+        insert.add();
+        return assigned;
+    }
+
+    void flush() throws SQLException {
+        insert.flush();
+    }
+
+    void finish() throws SQLException {
+        insert.finish();
+    }
+}
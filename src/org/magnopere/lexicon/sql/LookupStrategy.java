@@ -0,0 +1,76 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import org.magnopere.lexicon.latin.LexiconEntry;
+import org.magnopere.lexicon.latin.MorphologyAnalysis;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The read side of a built dictionary, as used by the console
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public interface LookupStrategy {
+
+    /**
+     * Accepts a word form, finds all matching morphological forms and their lemmas, and
+     * all lexicon entries for those unique lemmas collecting this all in a QueryResult
+     * @param word a word form
+     * @return QueryResult
+     */
+    QueryResult lookup(String word);
+
+    /**
+     * Looks up a batch of words, as {@link #lookup(String)} would each in turn
+     * @param words word forms
+     * @return a QueryResult for each word, in order
+     */
+    List<QueryResult> lookupAll(Collection<String> words);
+
+    /**
+     * @param form a word form
+     * @return (possibly empty) list of analyses of the form
+     */
+    List<MorphologyAnalysis> findAnalysis(String form);
+
+    /**
+     * @param lemma the lemmatized form of a word
+     * @return (possibly empty) list of entries found, by ordinality
+     */
+    List<LexiconEntry> findLexiconEntry(String lemma);
+
+    /**
+     * Releases the underlying store
+     */
+    void close() throws Exception;
+}
@@ -29,44 +29,27 @@
 
 package org.magnopere.lexicon.sql;
 
-import org.magnopere.lexicon.latin.LexiconEntry;
-import org.magnopere.lexicon.latin.MorphologyAnalysis;
-
 /**
+ * Everything a build writes to: the lexicon and morphology tables, then the indexes
  * @author Roger Grantham
  * @since 6/4/11
  */
-public interface PersistenceStrategy {
+public interface PersistenceStrategy extends LexiconSink, MorphologySink {
 
     final String MORPH_TABLE_SQL    = "org/magnopere/lexicon/sql/createMorphTable.sql";
     final String LEXICON_TABLE_SQL  = "org/magnopere/lexicon/sql/createLexiconTable.sql";
+    final String MORPH_INDEX_SQL    = "org/magnopere/lexicon/sql/createMorphIndexes.sql";
+    final String LEXICON_INDEX_SQL  = "org/magnopere/lexicon/sql/createLexiconIndexes.sql";
 
     /**
-     * Sets up the table
-     */
-    void buildLexiconTable();
-                              
-    /**
-     * Sets up the table
+     * Called once every record has been written, before {@link #close()}. In a bulk load the indexes
+     * are created here rather than with the tables.
      */
-    void buildMorphologyTable();
-
+    void buildIndexes();
 
     /**
      * Closes resources held open for writing to the persistence layer
      */
     void close() throws Exception;
 
-    /**
-     * Persists the given analysis
-     * @param analysis MorphologyAnalysis
-     */
-    void writeAnalysis(MorphologyAnalysis analysis);
-
-    /**
-     * Persists teh given entry
-     * @param entry  LexiconEntry
-     */
-    void writeLexiconEntry(LexiconEntry entry);
-
 }
@@ -0,0 +1,259 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import org.magnopere.lexicon.latin.Orthography;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Every form and lemma, sorted and front coded, for completing a prefix. The UTF-8 strings are held in blocks of
+ * {@link #BLOCK_SIZE}: the first of a block whole, each of the rest as the length it shares with its predecessor
+ * and the bytes that follow. A prefix is found by binary search over the block heads and completed by decoding
+ * forward, so the index is two arrays whatever the number of strings. Read-only once built, so safe for any
+ * number of threads.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class PrefixIndex {
+    private static final Logger LOG = Logger.getLogger(PrefixIndex.class.getName());
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BLOCK_SIZE = 16;
+
+    /** Unsigned byte order, which is code point order for UTF-8 */
+    private static final Comparator<byte[]> UNSIGNED = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] a, byte[] b) {
+            return PrefixIndex.compare(a, a.length, b);
+        }
+    };
+
+    /** varint lengths and string bytes, block after block */
+    private final byte[]    data;
+    /** start of each block in data */
+    private final int[]     blockOffsets;
+    private final int       count;
+    private final int       maxLength;
+    private final long      buildNanos;
+
+
+    private PrefixIndex(byte[] data, int[] blockOffsets, int count, int maxLength, long buildNanos) {
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+        this.count = count;
+        this.maxLength = maxLength;
+        this.buildNanos = buildNanos;
+    }
+
+    /**
+     * Reads the forms and lemmas tables
+     * @param conn connection to verba.db
+     * @return the index
+     * @throws SQLException on failure
+     */
+    static PrefixIndex load(Connection conn) throws SQLException {
+        final long start = System.nanoTime();
+        final List<String> words = new ArrayList<String>();
+        final Statement statement = conn.createStatement();
+        try {
+            final ResultSet result = statement.executeQuery("SELECT form FROM forms UNION SELECT lemma FROM lemmas");
+            while (result.next()){
+                words.add(result.getString(1));
+            }
+            result.close();
+        } finally {
+            statement.close();
+        }
+        final PrefixIndex index = build(words, start);
+        LOG.info(String.format("Loaded %d forms and lemmas into the prefix index in %.1f s; about %.1f MB of heap.",
+                index.getCount(), index.getBuildNanos() / 1e9, index.getHeapBytes() / (double) (1 << 20)));
+        return index;
+    }
+
+    /**
+     * @param words normalized words, in any order and possibly repeated
+     * @return the index of the distinct words
+     */
+    public static PrefixIndex build(Collection<String> words) {
+        return build(words, System.nanoTime());
+    }
+
+    private static PrefixIndex build(Collection<String> words, long start) {
+        final List<byte[]> sorted = new ArrayList<byte[]>(words.size());
+        for (String word: words){
+            sorted.add(word.getBytes(UTF_8));
+        }
+        Collections.sort(sorted, UNSIGNED);
+        final ByteArrayOutputStream data = new ByteArrayOutputStream(sorted.size() * 4);
+        final int[] blockOffsets = new int[(sorted.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        byte[] previous = null;
+        int count = 0, maxLength = 0;
+        for (byte[] word: sorted){
+            if (previous != null && UNSIGNED.compare(previous, word) == 0) continue;
+            if (count % BLOCK_SIZE == 0){
+                blockOffsets[count / BLOCK_SIZE] = data.size();
+                writeVarint(data, word.length);
+                data.write(word, 0, word.length);
+            } else {
+                int shared = 0;
+                final int limit = Math.min(previous.length, word.length);
+                while (shared < limit && previous[shared] == word[shared]){
+                    shared++;
+                }
+                writeVarint(data, shared);
+                writeVarint(data, word.length - shared);
+                data.write(word, shared, word.length - shared);
+            }
+            maxLength = Math.max(maxLength, word.length);
+            previous = word;
+            count++;
+        }
+        final int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        final int[] offsets = new int[blocks];
+        System.arraycopy(blockOffsets, 0, offsets, 0, blocks);
+        return new PrefixIndex(data.toByteArray(), offsets, count, maxLength, System.nanoTime() - start);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value){
+        while (value >= 0x80){
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * @param prefix the start of a word, normalized here
+     * @param limit the most completions wanted
+     * @return up to limit words starting with the prefix, in order
+     */
+    public List<String> complete(String prefix, int limit) {
+        final byte[] key = Orthography.normalize(prefix.trim()).getBytes(UTF_8);
+        final List<String> completions = new ArrayList<String>(Math.min(limit, 16));
+        if (count == 0 || limit <= 0) return completions;
+        // the last block whose head does not follow the prefix; any completion lies in it or after it
+        int low = 0, high = blockOffsets.length - 1;
+        while (low < high){
+            final int mid = (low + high + 1) >>> 1;
+            if (compareHead(mid, key) <= 0){
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        final byte[] word = new byte[maxLength];
+        for (int block = low; block < blockOffsets.length; block++){
+            final int[] position = {blockOffsets[block]};
+            final int end = Math.min(BLOCK_SIZE, count - block * BLOCK_SIZE);
+            for (int i = 0; i < end; i++){
+                final int shared = i == 0 ? 0 : readVarint(position);
+                final int length = shared + readVarint(position);
+                System.arraycopy(data, position[0], word, shared, length - shared);
+                position[0] += length - shared;
+                if (startsWith(word, length, key)){
+                    completions.add(new String(word, 0, length, UTF_8));
+                    if (completions.size() == limit) return completions;
+                } else if (compare(word, length, key) > 0){
+                    return completions;
+                }
+            }
+        }
+        return completions;
+    }
+
+    private int readVarint(int[] position){
+        int value = 0, shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private int compareHead(int block, byte[] key){
+        final int[] position = {blockOffsets[block]};
+        final int length = readVarint(position);
+        final int start = position[0];
+        final int limit = Math.min(length, key.length);
+        for (int i = 0; i < limit; i++){
+            final int difference = (data[start + i] & 0xff) - (key[i] & 0xff);
+            if (difference != 0) return difference;
+        }
+        return length - key.length;
+    }
+
+    private static boolean startsWith(byte[] word, int length, byte[] prefix){
+        if (length < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++){
+            if (word[i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private static int compare(byte[] word, int length, byte[] other){
+        final int limit = Math.min(length, other.length);
+        for (int i = 0; i < limit; i++){
+            final int difference = (word[i] & 0xff) - (other[i] & 0xff);
+            if (difference != 0) return difference;
+        }
+        return length - other.length;
+    }
+
+    /**
+     * @return the number of distinct words
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * @return the heap held by the two arrays
+     */
+    public long getHeapBytes() {
+        return data.length + 4L * blockOffsets.length;
+    }
+}
@@ -32,72 +32,116 @@ package org.magnopere.lexicon.sql;
 import org.magnopere.lexicon.latin.LexiconEntry;
 import org.magnopere.lexicon.latin.MorphologyAnalysis;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 /**
  * A single word may have zero or more morphological entries with zero or more lemmas. We wish to describe
  * each morphological form the word can map to and relate each lemma to zero or more lexicographical entries.
+ * <p/>
+ * Analyses and entries are grouped by lemma as they are added. Entries from the repositories carry their
+ * definitions still encoded, so nothing is decompressed unless a definition is actually read.
  *
  * @author Roger Grantham
  * @since May 30, 2011
  */
 public class QueryResult {
 
-    final List<MorphologyAnalysis> morphologyicalAnalyses = new ArrayList<MorphologyAnalysis>();
-    final List<LexiconEntry>       lexiconEntries         = new ArrayList<LexiconEntry>();
+    /** The analyses and entries of a lemma */
+    private static class Group {
+        final List<MorphologyAnalysis> analyses = new ArrayList<MorphologyAnalysis>(4);
+        final List<LexiconEntry>       entries  = new ArrayList<LexiconEntry>(2);
+    }
+
+    private final Map<String, Group>    groups          = new TreeMap<String, Group>();
+    /** Lemmas with at least one analysis, in order */
+    private final Set<String>           analysedLemmas  = new TreeSet<String>();
 
     public QueryResult() {
     }
 
 
     public void addMorphologicalAnalysis(List<MorphologyAnalysis> analyses){
-        morphologyicalAnalyses.addAll(analyses);
+        for (MorphologyAnalysis analysis: analyses){
+            group(analysis.getLemma()).analyses.add(analysis);
+            analysedLemmas.add(analysis.getLemma());
+        }
     }
 
     public void addLexicographicalEntry(List<LexiconEntry> entries){
-        lexiconEntries.addAll(entries);
+        for (LexiconEntry entry: entries){
+            group(entry.getKey()).entries.add(entry);
+        }
+    }
+
+    private Group group(String lemma){
+        Group group = groups.get(lemma);
+        if (group == null){
+            group = new Group();
+            groups.put(lemma, group);
+        }
+        return group;
     }
 
 
+    /**
+     * @return the lemmas of the analyses, in order; a view, not to be modified
+     */
     public Set<String> getUniqueLemmas(){
-        final Set<String> uniques = new TreeSet<String>();
-        for (MorphologyAnalysis analysis: morphologyicalAnalyses){
-            uniques.add(analysis.getLemma());
-        }
-        return uniques;
+        return Collections.unmodifiableSet(analysedLemmas);
     }
 
+    /**
+     * @return the analyses of the lemma, in the order added
+     */
+    public List<MorphologyAnalysis> getAnalyses(String lemma){
+        final Group group = groups.get(lemma);
+        return group == null ? Collections.<MorphologyAnalysis>emptyList() : Collections.unmodifiableList(group.analyses);
+    }
 
-    public String formatResult(ResultFormatter formatter){
-        final StringBuilder sb = new StringBuilder();
-        for (String lemma: getUniqueLemmas()){
-            sb.append(formatter.format(findAnalysisForLemma(lemma), findEntriesMatchingLemma(lemma)));
-        }
-        return sb.toString();
+    /**
+     * @return the entries of the lemma, in the order added
+     */
+    public List<LexiconEntry> getEntries(String lemma){
+        final Group group = groups.get(lemma);
+        return group == null ? Collections.<LexiconEntry>emptyList() : Collections.unmodifiableList(group.entries);
     }
 
 
-    private List<MorphologyAnalysis> findAnalysisForLemma(String lemma){
-        final List<MorphologyAnalysis> matches = new ArrayList<MorphologyAnalysis>();
-        for (MorphologyAnalysis analysis: morphologyicalAnalyses){
-            if (analysis.getLemma().equals(lemma)){
-                matches.add(analysis);
-            }
+    /**
+     * Writes the result a lemma at a time, each block going out as soon as it is formatted
+     * @param word the word as looked up
+     * @param formatter renders the result
+     * @param out where to write
+     * @throws IOException on failure to write
+     */
+    public void formatResult(String word, ResultFormatter formatter, Appendable out) throws IOException {
+        formatter.beginResult(word, out);
+        int index = 0;
+        for (String lemma: analysedLemmas){
+            formatter.formatLemma(word, index++, getAnalyses(lemma), getEntries(lemma), out);
         }
-        return matches;
+        formatter.endResult(word, out);
     }
 
-    private List<LexiconEntry> findEntriesMatchingLemma(String lemma){
-        final List<LexiconEntry> matches = new ArrayList<LexiconEntry>();
-        for (LexiconEntry entry: lexiconEntries){
-            if (entry.getKey().equals(lemma)){
-                matches.add(entry);
-            }
+    /**
+     * @return the result as the formatter renders it
+     */
+    public String formatResult(String word, ResultFormatter formatter){
+        final StringBuilder sb = new StringBuilder();
+        try {
+            formatResult(word, formatter, sb);
+        } catch (IOException e) {
+            // a StringBuilder does not throw
+            throw new RuntimeException(e);
         }
-        return matches;
+        return sb.toString();
     }
 
 }
@@ -0,0 +1,249 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import org.magnopere.lexicon.latin.LexiconEntry;
+import org.magnopere.lexicon.latin.MorphologyAnalysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Lets the lexicon and morphology parsers run on their own threads while a single writer thread feeds
+ * their records to the underlying PersistenceStrategy, which is never touched by more than one thread
+ * at a time. Each parser hands its records through a bounded queue, so a parser that gets ahead of the
+ * writer blocks rather than filling the heap.
+ * <p/>
+ * Call {@link #start()} before the parsers are created. {@link #buildIndexes()} waits for the queues to
+ * drain and the writer thread to finish; from then on the underlying strategy is used on the calling thread.
+ * If a parser fails, {@link #abort()} stops the writer without draining the queues.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class QueuedPersister implements PersistenceStrategy {
+    private static final Logger LOG = Logger.getLogger(QueuedPersister.class.getName());
+
+    /** Records buffered per queue before a parser blocks */
+    public static final int DEFAULT_CAPACITY = 10000;
+    private static final int DRAIN_SIZE = 1000;
+    private static final long WAIT_MILLIS = 10;
+
+    /* markers placed on a queue, ahead of its records, to have the writer build the table */
+    private static final LexiconEntry       BUILD_LEXICON_TABLE     = new LexiconEntry();
+    private static final MorphologyAnalysis BUILD_MORPHOLOGY_TABLE  = new MorphologyAnalysis();
+
+    private final PersistenceStrategy                   persister;
+    private final BlockingQueue<LexiconEntry>           lexiconQueue;
+    private final BlockingQueue<MorphologyAnalysis>     morphologyQueue;
+    private final Thread                                writer;
+
+    private volatile boolean    producersDone;
+    private volatile boolean    aborted;
+    private volatile Throwable  failure;
+    private int                 lexiconHighWater;
+    private int                 morphologyHighWater;
+
+
+    public QueuedPersister(PersistenceStrategy persister) {
+        this(persister, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * New instance
+     * @param persister the strategy to which the writer thread hands every record
+     * @param capacity records buffered per queue before a parser blocks
+     */
+    public QueuedPersister(PersistenceStrategy persister, int capacity) {
+        if (persister == null) throw new IllegalArgumentException("null: persister");
+        this.persister = persister;
+        lexiconQueue = new ArrayBlockingQueue<LexiconEntry>(capacity);
+        morphologyQueue = new ArrayBlockingQueue<MorphologyAnalysis>(capacity);
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    drainQueues();
+                } catch (Throwable t){
+                    failure = t;
+                    lexiconQueue.clear();
+                    morphologyQueue.clear();
+                }
+            }
+        }, "verba-writer");
+    }
+
+    /**
+     * Has the telemetry sample the depth of both queues
+     * @param telemetry telemetry for the import
+     */
+    public void setTelemetry(ImportTelemetry telemetry) {
+        if (telemetry == null) throw new IllegalArgumentException("null: telemetry");
+        telemetry.watchQueue("lexicon", lexiconQueue);
+        telemetry.watchQueue("morphology", morphologyQueue);
+    }
+
+    /**
+     * Starts the writer thread
+     */
+    public void start(){
+        writer.start();
+    }
+
+    private void drainQueues() throws InterruptedException {
+        final List<LexiconEntry> entries = new ArrayList<LexiconEntry>(DRAIN_SIZE);
+        final List<MorphologyAnalysis> analyses = new ArrayList<MorphologyAnalysis>(DRAIN_SIZE);
+        while (!aborted){
+            lexiconHighWater = Math.max(lexiconHighWater, lexiconQueue.size());
+            morphologyHighWater = Math.max(morphologyHighWater, morphologyQueue.size());
+            lexiconQueue.drainTo(entries, DRAIN_SIZE);
+            morphologyQueue.drainTo(analyses, DRAIN_SIZE);
+            if (entries.isEmpty() && analyses.isEmpty()){
+                if (producersDone && lexiconQueue.isEmpty() && morphologyQueue.isEmpty()){
+                    return;
+                }
+                final MorphologyAnalysis analysis = morphologyQueue.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (analysis != null) analyses.add(analysis);
+            }
+            for (LexiconEntry entry: entries){
+                if (entry == BUILD_LEXICON_TABLE){
+                    persister.buildLexiconTable();
+                } else {
+                    persister.writeLexiconEntry(entry);
+                }
+            }
+            for (MorphologyAnalysis analysis: analyses){
+                if (analysis == BUILD_MORPHOLOGY_TABLE){
+                    persister.buildMorphologyTable();
+                } else {
+                    persister.writeAnalysis(analysis);
+                }
+            }
+            entries.clear();
+            analyses.clear();
+        }
+    }
+
+    private <T> void put(BlockingQueue<T> queue, T rec){
+        try {
+            while (!queue.offer(rec, WAIT_MILLIS, TimeUnit.MILLISECONDS)){
+                checkWriter();
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        checkWriter();
+    }
+
+    private void checkWriter(){
+        if (aborted){
+            throw new IllegalStateException("Build was aborted");
+        }
+        if (failure != null){
+            throw new RuntimeException("Writer thread failed", failure);
+        }
+        if (!writer.isAlive() && !producersDone){
+            throw new IllegalStateException("Writer thread is not running");
+        }
+    }
+
+    @Override
+    public void buildLexiconTable() {
+        put(lexiconQueue, BUILD_LEXICON_TABLE);
+    }
+
+    @Override
+    public void buildMorphologyTable() {
+        put(morphologyQueue, BUILD_MORPHOLOGY_TABLE);
+    }
+
+    @Override
+    public void writeLexiconEntry(LexiconEntry entry) {
+        put(lexiconQueue, entry);
+    }
+
+    @Override
+    public void writeAnalysis(MorphologyAnalysis analysis) {
+        put(morphologyQueue, analysis);
+    }
+
+    /**
+     * Waits for the writer to empty both queues, then builds the indexes on the calling thread. No
+     * records may be written after this is called.
+     */
+    @Override
+    public void buildIndexes() {
+        awaitWriter();
+        persister.buildIndexes();
+    }
+
+    private void awaitWriter(){
+        if (producersDone) return;
+        producersDone = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (failure != null){
+            throw new RuntimeException("Writer thread failed", failure);
+        }
+        LOG.info(String.format("Writer finished. Queue high-water marks: lexicon %d, morphology %d.",
+                lexiconHighWater, morphologyHighWater));
+    }
+
+    /**
+     * Stops the writer thread, discarding the records still queued, and waits for it to finish. Parsers
+     * still writing fail on their next record. The underlying strategy is left as it is.
+     */
+    public void abort(){
+        aborted = true;
+        producersDone = true;
+        lexiconQueue.clear();
+        morphologyQueue.clear();
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        awaitWriter();
+        persister.close();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Connections for lookups, each used by one thread at a time and owning the statements prepared on it.
+ * The first wraps the repository's own connection, so a pool of one reads exactly as before; the rest are
+ * opened on demand, read-only, up to the size of the pool, after which callers wait for one to be released.
+ * SQLite readers share the database file, so lookups on separate connections run side by side.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+class ReadConnectionPool {
+
+    /** A connection and the statements prepared on it */
+    static class Reader {
+        private final Connection                        conn;
+        private final boolean                           owned;
+        private final Map<String, PreparedStatement>    statements = new HashMap<String, PreparedStatement>();
+
+        private Reader(Connection conn, boolean owned) {
+            this.conn = conn;
+            this.owned = owned;
+        }
+
+        Connection getConnection() {
+            return conn;
+        }
+
+        /**
+         * @return the statement for the SQL, prepared on first use
+         */
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null){
+                statement = conn.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        private void close() throws SQLException {
+            for (PreparedStatement statement: statements.values()){
+                statement.close();
+            }
+            statements.clear();
+            if (owned) conn.close();
+        }
+    }
+
+    private final Connection            primary;
+    private final String                url;
+    private final int                   size;
+    private final BlockingQueue<Reader> idle;
+    private final List<Reader>          opened = new ArrayList<Reader>();
+
+
+    /**
+     * New instance
+     * @param primary the repository's connection, lent as the first reader and never closed here
+     * @param url JDBC URL from which the other readers are opened
+     * @param size the most readers, at least 1
+     */
+    ReadConnectionPool(Connection primary, String url, int size) {
+        if (size < 1) throw new IllegalArgumentException("size must be positive: " + size);
+        this.primary = primary;
+        this.url = url;
+        this.size = size;
+        idle = new ArrayBlockingQueue<Reader>(size);
+    }
+
+    /**
+     * @return a reader for the calling thread alone, to be handed back to {@link #release(Reader)}
+     */
+    Reader acquire() {
+        final Reader reader = idle.poll();
+        if (reader != null) return reader;
+        synchronized (opened){
+            if (opened.size() < size){
+                final Reader added = open();
+                opened.add(added);
+                return added;
+            }
+        }
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    void release(Reader reader) {
+        idle.offer(reader);
+    }
+
+    private Reader open() {
+        if (opened.isEmpty()) return new Reader(primary, false);
+        try {
+            final Connection conn = DriverManager.getConnection(url);
+            conn.setReadOnly(true);
+            return new Reader(conn, true);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Closes the statements of every reader and the connections opened here. No reader may be in use.
+     */
+    void close() throws SQLException {
+        synchronized (opened){
+            for (Reader reader: opened){
+                reader.close();
+            }
+            opened.clear();
+            idle.clear();
+        }
+    }
+}
@@ -32,14 +32,36 @@ package org.magnopere.lexicon.sql;
 import org.magnopere.lexicon.latin.LexiconEntry;
 import org.magnopere.lexicon.latin.MorphologyAnalysis;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
+ * Renders a {@link QueryResult} straight to an Appendable, a lemma at a time, by way of
+ * {@link QueryResult#formatResult(String, ResultFormatter, Appendable)}.
  * @author Roger Grantham
  * @since May 30, 2011
  */
 public interface ResultFormatter {
 
-    String format(List<MorphologyAnalysis> analyses, List<LexiconEntry> entries);
+    /**
+     * Written before the lemmas of the word
+     */
+    void beginResult(String word, Appendable out) throws IOException;
 
+    /**
+     * Writes one lemma of the word
+     * @param word the word as looked up
+     * @param index counts the lemmas of the word from 0
+     * @param analyses the analyses of the word under this lemma
+     * @param entries the entries of the lemma
+     * @param out where to write
+     * @throws IOException on failure to write
+     */
+    void formatLemma(String word, int index, List<MorphologyAnalysis> analyses, List<LexiconEntry> entries, Appendable out)
+            throws IOException;
+
+    /**
+     * Written after the lemmas of the word
+     */
+    void endResult(String word, Appendable out) throws IOException;
 }
@@ -0,0 +1,237 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes table rows as text for the sqlite3 shell, one value at a time. Each row is assembled in a reused
+ * buffer and copied to the writer when it ends, so emitting a row allocates nothing beyond the values.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+abstract class RowEmitter {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    protected final Writer          out;
+    protected final StringBuilder   row = new StringBuilder(1024);
+    private char[]                  chars = new char[1024];
+    private int                     column;
+    private long                    rows;
+
+
+    RowEmitter(Writer out) {
+        this.out = out;
+    }
+
+    /** appends a string value */
+    abstract RowEmitter text(String value);
+
+    /** appends an integer value */
+    RowEmitter integer(int value){
+        separate().append(value);
+        return this;
+    }
+
+    /** appends a blob value */
+    abstract RowEmitter blob(byte[] value);
+
+    /**
+     * Starts the next value, writing whatever precedes it
+     * @return the row buffer, to which the value is to be appended
+     */
+    StringBuilder separate(){
+        if (column++ == 0){
+            beginRow(rows);
+        } else {
+            row.append(',');
+        }
+        return row;
+    }
+
+    /** called before the first value of each row */
+    abstract void beginRow(long rowIndex);
+
+    /** called after the last value of each row */
+    abstract void endRow(long rowIndex);
+
+    /**
+     * Ends the current row and writes it out
+     * @throws IOException on failure
+     */
+    void endRow() throws IOException {
+        endRow(rows++);
+        column = 0;
+        final int length = row.length();
+        if (chars.length < length){
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        row.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+        row.setLength(0);
+    }
+
+    /**
+     * Completes the output after the last row
+     * @throws IOException on failure
+     */
+    abstract void finish() throws IOException;
+
+    long getRowCount() {
+        return rows;
+    }
+
+    static void appendHex(StringBuilder sb, byte[] data){
+        for (byte b: data){
+            sb.append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
+        }
+    }
+
+
+    /**
+     * SQL INSERT statements carrying up to <code>rowsPerStatement</code> rows each. Multi-row VALUES lists need
+     * sqlite3 3.7.11 or later; shells before 3.8.8 refuse lists longer than 500 rows.
+     */
+    static final class Insert extends RowEmitter {
+        private final String    prefix;
+        private final int       rowsPerStatement;
+
+
+        Insert(Writer out, String table, String columns, int rowsPerStatement) {
+            super(out);
+            if (rowsPerStatement < 1) throw new IllegalArgumentException("rowsPerStatement must be positive: " + rowsPerStatement);
+            this.prefix = String.format("INSERT INTO %s (%s) VALUES\n(", table, columns);
+            this.rowsPerStatement = rowsPerStatement;
+        }
+
+        @Override
+        RowEmitter text(String value){
+            final StringBuilder sb = separate();
+            if (value == null){
+                sb.append("NULL");
+                return this;
+            }
+            sb.append('\'');
+            for (int i = 0; i < value.length(); i++){
+                final char c = value.charAt(i);
+                if (c == '\'') sb.append('\'');
+                sb.append(c);
+            }
+            sb.append('\'');
+            return this;
+        }
+
+        @Override
+        RowEmitter blob(byte[] value){
+            final StringBuilder sb = separate();
+            if (value == null){
+                sb.append("NULL");
+            } else {
+                sb.append("X'");
+                appendHex(sb, value);
+                sb.append('\'');
+            }
+            return this;
+        }
+
+        @Override
+        void beginRow(long rowIndex) {
+            row.append(rowIndex % rowsPerStatement == 0 ? prefix : ",\n(");
+        }
+
+        @Override
+        void endRow(long rowIndex) {
+            row.append(rowIndex % rowsPerStatement == rowsPerStatement - 1 ? ");\n" : ")");
+        }
+
+        @Override
+        void finish() throws IOException {
+            if (getRowCount() % rowsPerStatement != 0){
+                out.write(";\n");
+            }
+        }
+    }
+
+
+    /**
+     * RFC 4180 CSV for the sqlite3 shell's <code>.import</code> in csv mode. Values are quoted only when they
+     * hold a comma, quote or line break. Blobs are written as hex, which the import script decodes.
+     */
+    static final class Csv extends RowEmitter {
+
+        Csv(Writer out) {
+            super(out);
+        }
+
+        @Override
+        RowEmitter text(String value){
+            final StringBuilder sb = separate();
+            if (value == null) return this;
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++){
+                final char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote){
+                sb.append(value);
+                return this;
+            }
+            sb.append('"');
+            for (int i = 0; i < value.length(); i++){
+                final char c = value.charAt(i);
+                if (c == '"') sb.append('"');
+                sb.append(c);
+            }
+            sb.append('"');
+            return this;
+        }
+
+        @Override
+        RowEmitter blob(byte[] value){
+            final StringBuilder sb = separate();
+            if (value != null) appendHex(sb, value);
+            return this;
+        }
+
+        @Override
+        void beginRow(long rowIndex) {
+        }
+
+        @Override
+        void endRow(long rowIndex) {
+            row.append('\n');
+        }
+
+        @Override
+        void finish() {
+        }
+    }
+}
@@ -33,41 +33,166 @@ import org.magnopere.lexicon.latin.LexiconEntry;
 import org.magnopere.lexicon.latin.MorphologyAnalysis;
 
 import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
 
 import static org.magnopere.lexicon.latin.Slurper.*;
 
 /**
+ * Writes the database contents as scripts for the sqlite3 shell: lexicon.sql and morphology.sql, which are
+ * read by sqlite3.init, and gloss.sql, the reverse index of English terms, which lexicon.sql reads. Rows are
+ * written either as multi-row INSERT statements within the scripts or, for {@link Format#CSV}, to a CSV file
+ * per table, which the scripts load with <code>.import</code>.
  * @author Roger Grantham
  * @since 6/4/11
  */
 public class SQLWriter implements PersistenceStrategy {
-    
-    private static final String INSERT_ANALYSIS = "INSERT INTO morphology (form, lemma, grammaticalCase, degree, gender, mood, number, person, pos, tense, voice) VALUES ";
-    private static final String INSERT_LEX_ENTRY = "INSERT INTO lexicon (lemma, ordinality, orthography, endings, gender, pos, definition) VALUES ";
-    
+    private static final Logger LOG = Logger.getLogger(SQLWriter.class.getName());
+
+    /** How rows are written */
+    public static enum Format {
+        /** INSERT statements of up to {@link #ROWS_PER_INSERT} rows each */
+        INSERT,
+        /**
+         * CSV files imported into staging tables and copied into place. Definitions are written as hex and
+         * decoded by <code>unhex()</code>, which needs sqlite3 3.41 or later.
+         */
+        CSV
+    }
+
+    /** The most rows older sqlite3 shells accept in one VALUES list */
+    public static final int ROWS_PER_INSERT = 500;
+
+    private static final String ANALYSIS_COLUMNS = "form_id, lemma_id, features";
+    private static final String LEX_ENTRY_COLUMNS = "lemma, ordinality, orthography, endings, gender, pos, definition";
+    private static final String LEX_ENTRY_IMPORT = "lemma, ordinality, orthography, endings, gender, pos, unhex(definition)";
+    private static final String GLOSS_COLUMNS = "term, lemma, ordinality, frequency, position";
+
     private final BufferedWriter    lexiconWriter;
     private final BufferedWriter    morphologyWriter;
+    private final BufferedWriter    glossWriter;
+    private final RowEmitter        lexiconRows;
+    private final RowEmitter        morphologyRows;
+    private final RowEmitter        glossRows;
+    private final File              outputDir;
+    /** Ids of forms and lemmas in order of assignment, written out once the morphology rows are done */
+    private final Map<String, Integer> formIds = new LinkedHashMap<String, Integer>();
+    private final Map<String, Integer> lemmaIds = new LinkedHashMap<String, Integer>();
 
     private final String createLexiconTableScript;
     private final String createMorphologyTableScript;
+    private final String createLexiconIndexScript;
+    private final String createMorphologyIndexScript;
+    private final boolean bulkLoad;
+    private final Format format;
+    private final long startNanos = System.nanoTime();
+    private boolean indexesBuilt;
+    private DefinitionCodec codec;
+    /** Holds the first lexicon entries while the definition codec is trained, null once it has been */
+    private DictionaryTrainer trainer;
+    private ImportTelemetry telemetry = ImportTelemetry.NONE;
 
     public SQLWriter(File outputDir) {
+        this(outputDir, false);
+    }
+
+    public SQLWriter(File outputDir, boolean bulkLoad) {
+        this(outputDir, bulkLoad, Format.INSERT);
+    }
+
+    /**
+     * New instance
+     * @param outputDir directory to which lexicon.sql and morphology.sql, and for CSV the data files, are written
+     * @param bulkLoad if true, the scripts create bare tables, load them with journaling and syncing turned
+     * off, and only then create the indexes and ANALYZE
+     * @param format how rows are written
+     */
+    public SQLWriter(File outputDir, boolean bulkLoad, Format format) {
         if (outputDir == null) throw new IllegalArgumentException("null: outputDir");
+        if (format == null) throw new IllegalArgumentException("null: format");
+        this.outputDir = outputDir;
+        this.bulkLoad = bulkLoad;
+        this.format = format;
         createMorphologyTableScript = slurp(getClass().getClassLoader(), MORPH_TABLE_SQL);
         createLexiconTableScript = slurp(getClass().getClassLoader(), LEXICON_TABLE_SQL);
+        createMorphologyIndexScript = slurp(getClass().getClassLoader(), MORPH_INDEX_SQL);
+        createLexiconIndexScript = slurp(getClass().getClassLoader(), LEXICON_INDEX_SQL);
         try {
-            lexiconWriter       = new BufferedWriter(new FileWriter(new File(outputDir, "lexicon.sql")));
-            morphologyWriter    = new BufferedWriter(new FileWriter(new File(outputDir, "morphology.sql")));
+            lexiconWriter       = open("lexicon.sql");
+            morphologyWriter    = open("morphology.sql");
+            glossWriter         = open("gloss.sql");
+            lexiconRows         = beginRows(lexiconWriter, "lexicon", LEX_ENTRY_COLUMNS);
+            morphologyRows      = beginRows(morphologyWriter, "morphology", ANALYSIS_COLUMNS);
+            glossRows           = beginRows(glossWriter, "gloss_index", GLOSS_COLUMNS);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+
+    /**
+     * Times the compression of definitions, and the training of the codec, against the given telemetry
+     * @param telemetry telemetry for the import
+     */
+    public void setTelemetry(ImportTelemetry telemetry) {
+        if (telemetry == null) throw new IllegalArgumentException("null: telemetry");
+        this.telemetry = telemetry;
+    }
+
+    private BufferedWriter open(String fileName) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(outputDir, fileName)), "UTF-8"), 1 << 16);
+    }
+
+    /**
+     * @return an emitter writing the rows of the table into the script, or for CSV into table.csv
+     */
+    private RowEmitter beginRows(Writer script, String table, String columns) throws IOException {
+        return format == Format.CSV
+                ? new RowEmitter.Csv(open(table + ".csv"))
+                : new RowEmitter.Insert(script, table, columns, ROWS_PER_INSERT);
+    }
+
+    /**
+     * Completes the rows of the table; for CSV, the script then imports them into a staging table and copies
+     * them into place, applying importColumns.
+     */
+    private void endRows(Writer script, RowEmitter rows, String table, String columns, String importColumns) throws IOException {
+        rows.finish();
+        if (format == Format.CSV){
+            rows.out.close();
+            final String staging = table + "_import";
+            script.write(String.format("CREATE TABLE %s (%s);%n", staging, columns));
+            script.write(String.format(".mode csv%n.import '%s' %s%n.mode list%n",
+                    new File(outputDir, table + ".csv").getAbsolutePath(), staging));
+            script.write(String.format("INSERT INTO %s (%s) SELECT %s FROM %s;%n", table, columns, importColumns, staging));
+            script.write(String.format("DROP TABLE %s;%n", staging));
+        }
+    }
+
+    private void writeIds(Map<String, Integer> ids, String table, String column) throws IOException {
+        final String columns = "_id, " + column;
+        final RowEmitter rows = beginRows(morphologyWriter, table, columns);
+        for (Map.Entry<String, Integer> id: ids.entrySet()){
+            rows.integer(id.getValue()).text(id.getKey()).endRow();
+        }
+        endRows(morphologyWriter, rows, table, columns, columns);
+    }
+
+    private static int intern(Map<String, Integer> ids, String value){
+        Integer id = ids.get(value);
+        if (id == null){
+            id = ids.size() + 1;
+            ids.put(value, id);
+        }
+        return id;
+    }
+
     @Override
     public void buildLexiconTable() {
         try {
-            lexiconWriter.write(createLexiconTableScript);
-            lexiconWriter.write(String.format("BEGIN TRANSACTION;%n"));
+            beginTable(lexiconWriter, createLexiconTableScript, createLexiconIndexScript);
+            trainer = new DictionaryTrainer();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -76,42 +201,80 @@ public class SQLWriter implements PersistenceStrategy {
     @Override
     public void buildMorphologyTable() {
         try {
+            beginTable(morphologyWriter, createMorphologyTableScript, createMorphologyIndexScript);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void beginTable(Writer writer, String tableScript, String indexScript) throws IOException {
+        if (bulkLoad){
+            writer.write(String.format("PRAGMA journal_mode = OFF;%nPRAGMA synchronous = OFF;%n"));
+            writer.write(tableScript);
+        } else {
+            writer.write(tableScript);
+            writer.write(indexScript);
+        }
+        writer.write(String.format("%nBEGIN TRANSACTION;%n"));
+    }
 
-            morphologyWriter.write(createMorphologyTableScript);
-            morphologyWriter.write(String.format("BEGIN TRANSACTION;%n"));
+    /**
+     * Ends the load transaction in each script. For a bulk load, the indexes and ANALYZE follow it, timed
+     * by the sqlite3 shell.
+     */
+    @Override
+    public void buildIndexes() {
+        try {
+            if (trainer != null) trainCodec();
+            endRows(lexiconWriter, lexiconRows, "lexicon", LEX_ENTRY_COLUMNS, LEX_ENTRY_IMPORT);
+            endRows(glossWriter, glossRows, "gloss_index", GLOSS_COLUMNS, GLOSS_COLUMNS);
+            glossWriter.close();
+            lexiconWriter.write(String.format(".read '%s'%n", new File(outputDir, "gloss.sql").getAbsolutePath()));
+            endTable(lexiconWriter, createLexiconIndexScript, "lexicon", "gloss_index");
+            endRows(morphologyWriter, morphologyRows, "morphology", ANALYSIS_COLUMNS, ANALYSIS_COLUMNS);
+            writeIds(formIds, "forms", "form");
+            writeIds(lemmaIds, "lemmas", "lemma");
+            endTable(morphologyWriter, createMorphologyIndexScript, "morphology", "forms", "lemmas");
+            morphologyWriter.write(String.format("%s%n", DataRepository.LINK_LEXICON_SQL));
+            LOG.info(String.format("Wrote %d lexicon, %d gloss and %d morphology rows as %s in %.1f s.", lexiconRows.getRowCount(),
+                    glossRows.getRowCount(), morphologyRows.getRowCount(), format, (System.nanoTime() - startNanos) / 1e9));
+            indexesBuilt = true;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Ends the load transaction; for a bulk load, creates the indexes and analyzes every table they cover
+     */
+    private void endTable(Writer writer, String indexScript, String... tables) throws IOException {
+        writer.write(String.format("END TRANSACTION;%n"));
+        if (bulkLoad){
+            writer.write(String.format(".timer ON%n"));
+            writer.write(indexScript);
+            writer.write(String.format("%n"));
+            for (String table: tables){
+                writer.write(String.format("ANALYZE %s;%n", table));
+            }
+            writer.write(String.format(".timer OFF%n"));
+        }
+    }
+
     @Override
     public void close() throws Exception {
-        lexiconWriter.write("END TRANSACTION;");
-        lexiconWriter.flush();
+        if (!indexesBuilt) buildIndexes();
         lexiconWriter.close();
-        morphologyWriter.write("END TRANSACTION;");
-        morphologyWriter.flush();
         morphologyWriter.close();
     }
 
 
     @Override
     public void writeAnalysis(MorphologyAnalysis analysis) {
-        final String record = String.format("%s (\"%s\", \"%s\", \"%s\", \"%s\", \"%s\", \"%s\", \"%s\", \"%s\", \"%s\", \"%s\", \"%s\");%n",
-                INSERT_ANALYSIS,
-                analysis.getForm(),
-                analysis.getLemma(),
-                analysis.getGrammaticalCase(),
-                analysis.getDegree(),
-                analysis.getGender(),
-                analysis.getMood(),
-                analysis.getNumber(),
-                analysis.getPerson(),
-                analysis.getPos(),
-                analysis.getTense(),
-                analysis.getVoice());
         try {
-            morphologyWriter.write(record);
+            morphologyRows.integer(intern(formIds, analysis.getForm()))
+                    .integer(intern(lemmaIds, analysis.getLemma()))
+                    .integer(analysis.getFeatures())
+                    .endRow();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -119,17 +282,49 @@ public class SQLWriter implements PersistenceStrategy {
 
     @Override
     public void writeLexiconEntry(LexiconEntry entry) {
-        final String record = String.format("%s (\"%s\", \"%d\", \"%s\", \"%s\", \"%s\", \"%s\", X\'%s\');%n",
-                INSERT_LEX_ENTRY,
-                entry.getKey(),
-                entry.getOrdinality(),
-                entry.getOrthography(),
-                entry.getiType(),
-                entry.getGender(),
-                entry.getPos(),
-                Compression.toCompressedHex(entry.getDefinition()));
+        if (trainer == null){
+            insertLexiconEntry(entry);
+        } else if (trainer.add(entry)){
+            trainCodec();
+        }
+    }
+
+    /**
+     * Trains the definition codec on the entries held back so far, writes its dictionary, and then the entries
+     */
+    private void trainCodec() {
+        final DictionaryTrainer training = trainer;
+        trainer = null;
+        codec = telemetry.train(training);
+        try {
+            lexiconWriter.write(String.format("INSERT INTO definition_dictionary (_id, dictionary) VALUES (1, X'%s');%n",
+                    Compression.toHex(codec.getDictionary())));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        for (LexiconEntry entry: training.getBuffered()){
+            insertLexiconEntry(entry);
+        }
+    }
+
+    private void insertLexiconEntry(LexiconEntry entry) {
         try {
-            lexiconWriter.write(record);
+            lexiconRows.text(entry.getKey())
+                    .integer(entry.getOrdinality())
+                    .text(entry.getOrthography())
+                    .text(entry.getiType())
+                    .text(entry.getGender())
+                    .text(entry.getPos())
+                    .blob(telemetry.encode(codec, entry.getDefinition()))
+                    .endRow();
+            for (Map.Entry<String, int[]> term: GlossTerms.index(entry.getDefinition()).entrySet()){
+                glossRows.text(term.getKey())
+                        .text(entry.getKey())
+                        .integer(entry.getOrdinality())
+                        .integer(term.getValue()[0])
+                        .integer(term.getValue()[1])
+                        .endRow();
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
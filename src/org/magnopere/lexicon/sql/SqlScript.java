@@ -0,0 +1,84 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the bundled SQL scripts into single statements. The JDBC driver only executes the first statement
+ * handed to executeUpdate, so a script holding a table and its indexes must be run one statement at a time.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+class SqlScript {
+
+    /** Not to be implemented */
+    private SqlScript() {
+        // no op
+    }
+
+    /**
+     * Drops "--" comment lines and splits the remainder on semicolons which are not inside a quoted string
+     * @param script SQL text
+     * @return the non-empty statements, without their terminating semicolons
+     */
+    static List<String> split(String script){
+        final List<String> statements = new ArrayList<String>();
+        final StringBuilder sb = new StringBuilder();
+        char quote = 0;
+        for (String line: script.split("\r?\n")){
+            if (quote == 0 && line.trim().startsWith("--")) continue;
+            for (int i = 0; i < line.length(); i++){
+                final char c = line.charAt(i);
+                if (quote != 0){
+                    if (c == quote) quote = 0;
+                } else if (c == '\'' || c == '"'){
+                    quote = c;
+                } else if (c == ';'){
+                    add(statements, sb);
+                    continue;
+                }
+                sb.append(c);
+            }
+            sb.append('\n');
+        }
+        add(statements, sb);
+        return statements;
+    }
+
+    private static void add(List<String> statements, StringBuilder sb){
+        final String statement = sb.toString().trim();
+        if (statement.length() > 0){
+            statements.add(statement);
+        }
+        sb.setLength(0);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A least-recently-used cache bounded by the total weight of its values rather than by their number. Keys are
+ * spread over stripes, each an access-ordered LinkedHashMap with its own lock and an equal share of the weight,
+ * so that concurrent readers rarely contend. A value heavier than a stripe's share is never cached.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class WeightedCache<K, V> {
+
+    /**
+     * Estimates the weight of a value, in bytes
+     */
+    public interface Weigher<V> {
+        int weigh(V value);
+    }
+
+    private final Stripe<K, V>[]    stripes;
+    private final Weigher<V>        weigher;
+    private final long              maxWeight;
+    private final AtomicLong        hits        = new AtomicLong();
+    private final AtomicLong        misses      = new AtomicLong();
+    private final AtomicLong        evictions   = new AtomicLong();
+
+
+    /**
+     * New instance
+     * @param maxWeight total weight held across all stripes; 0 disables caching
+     * @param stripeCount number of independently locked stripes, rounded up to a power of two
+     * @param weigher estimates the weight of each value
+     */
+    @SuppressWarnings("unchecked")
+    public WeightedCache(long maxWeight, int stripeCount, Weigher<V> weigher) {
+        if (maxWeight < 0) throw new IllegalArgumentException("maxWeight must not be negative: " + maxWeight);
+        if (stripeCount < 1) throw new IllegalArgumentException("stripeCount must be positive: " + stripeCount);
+        if (weigher == null) throw new IllegalArgumentException("null: weigher");
+        int count = 1;
+        while (count < stripeCount){
+            count <<= 1;
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.stripes = (Stripe<K, V>[]) new Stripe<?, ?>[count];
+        for (int i = 0; i < count; i++){
+            stripes[i] = new Stripe<K, V>(maxWeight / count);
+        }
+    }
+
+    /**
+     * @param key to look up
+     * @return the cached value, or null
+     */
+    public V get(K key){
+        final Stripe<K, V> stripe = stripeFor(key);
+        final V value;
+        synchronized (stripe){
+            final Weighted<V> weighted = stripe.map.get(key);
+            value = weighted == null ? null : weighted.value;
+        }
+        (value == null ? misses : hits).incrementAndGet();
+        return value;
+    }
+
+    /**
+     * Caches a value, evicting the least recently used values of its stripe as needed
+     * @param key of the value
+     * @param value to cache, not null
+     */
+    public void put(K key, V value){
+        if (value == null) throw new IllegalArgumentException("null: value");
+        final Stripe<K, V> stripe = stripeFor(key);
+        final int weight = weigher.weigh(value);
+        if (weight > stripe.maxWeight) return;
+        int evicted = 0;
+        synchronized (stripe){
+            final Weighted<V> previous = stripe.map.put(key, new Weighted<V>(value, weight));
+            stripe.weight += weight - (previous == null ? 0 : previous.weight);
+            final Iterator<Weighted<V>> eldest = stripe.map.values().iterator();
+            while (stripe.weight > stripe.maxWeight){
+                stripe.weight -= eldest.next().weight;
+                eldest.remove();
+                evicted++;
+            }
+        }
+        if (evicted > 0) evictions.addAndGet(evicted);
+    }
+
+    /**
+     * Empties the cache; the counters are kept
+     */
+    public void clear(){
+        for (Stripe<K, V> stripe: stripes){
+            synchronized (stripe){
+                stripe.map.clear();
+                stripe.weight = 0;
+            }
+        }
+    }
+
+    private Stripe<K, V> stripeFor(K key){
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (stripes.length - 1)];
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * @return the weight currently held
+     */
+    public long getWeight(){
+        long weight = 0;
+        for (Stripe<K, V> stripe: stripes){
+            synchronized (stripe){
+                weight += stripe.weight;
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * @return the number of values currently held
+     */
+    public int size(){
+        int size = 0;
+        for (Stripe<K, V> stripe: stripes){
+            synchronized (stripe){
+                size += stripe.map.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        final long hits = getHits(), lookups = hits + getMisses();
+        return String.format("%d values, %d of %d bytes; %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                size(), getWeight(), maxWeight, hits, lookups - hits, lookups > 0 ? 100d * hits / lookups : 0d, getEvictions());
+    }
+
+
+    private static final class Weighted<V> {
+        final V     value;
+        final int   weight;
+
+        Weighted(V value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Stripe<K, V> {
+        final LinkedHashMap<K, Weighted<V>> map = new LinkedHashMap<K, Weighted<V>>(16, 0.75f, true);
+        final long  maxWeight;
+        long        weight;
+
+        Stripe(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+    }
+}
@@ -32,9 +32,19 @@ CREATE TABLE lexicon
  endings VARCHAR (250),
  gender VARCHAR (4)  CHECK (gender in ("", "fem", "masc", "neut")),
  pos VARCHAR (10)  CHECK (pos in ("", "adj", "adv", "adverbial", "conj", "exclam", "noun", "numeral", "part", "prep", "pron", "verb", "dep")),
- definition BLOB
+ definition BLOB,
+ lemma_id INTEGER
 );
 
-CREATE INDEX lex_lemma_index ON lexicon (lemma);
-CREATE INDEX lex_pos_index ON lexicon (pos);
+CREATE TABLE definition_dictionary
+(_id INTEGER PRIMARY KEY,
+ dictionary BLOB
+);
 
+CREATE TABLE gloss_index
+(term VARCHAR(250),
+ lemma VARCHAR(250),
+ ordinality INTEGER,
+ frequency INTEGER,
+ position INTEGER
+);
@@ -24,22 +24,20 @@
 -- other provisions required by the [GPL] License.  If you do not delete
 -- the provisions above, a recipient may use your version of this file
 -- under either the MPL or the [GPL] License.
-CREATE TABLE morphology
-(_id INTEGER PRIMARY KEY AUTOINCREMENT,
- form VARCHAR(250),
- lemma VARCHAR(250),
- grammaticalCase VARCHAR(20) CHECK (grammaticalCase in ("", "abl", "acc", "dat", "gen", "nom", "voc")),
- degree  VARCHAR(20) CHECK (degree in ("", "degree", "comp", "superl")),
- gender  VARCHAR(4) CHECK (gender in ("", "fem", "masc", "neut")),
- mood  VARCHAR(20)  CHECK (mood in ("", "gerundive", "imperat", "ind", "inf", "part", "subj", "supine")),
- number  VARCHAR(20) CHECK (number in ("", "pl", "sg")),
- person  VARCHAR(20) CHECK (person in ("", "first", "second", "third")),
- pos  VARCHAR(20) CHECK (pos in ("", "adj", "adv", "adverbial", "conj", "exclam", "noun", "numeral", "part", "prep", "pron", "verb")),
- tense  VARCHAR(20) CHECK (tense in ("", "fut", "futperf", "imperf", "perf", "plup", "pres")),
- voice  VARCHAR(20) CHECK (voice in ("", "act", "pass"))
+CREATE TABLE forms
+(_id INTEGER PRIMARY KEY,
+ form VARCHAR(250)
 );
 
-CREATE INDEX morph_form_lemma_index ON morphology (form, lemma);
-CREATE INDEX morph_form_index ON morphology (form);
-CREATE INDEX morph_lemma_index ON morphology (lemma);
+CREATE TABLE lemmas
+(_id INTEGER PRIMARY KEY,
+ lemma VARCHAR(250)
+);
 
+-- features packs the nine grammatical features into one integer; see MorphologyAnalysis.getFeatures()
+CREATE TABLE morphology
+(_id INTEGER PRIMARY KEY AUTOINCREMENT,
+ form_id INTEGER REFERENCES forms (_id),
+ lemma_id INTEGER REFERENCES lemmas (_id),
+ features INTEGER
+);
\ No newline at end of file
@@ -0,0 +1,206 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon;
+
+import org.magnopere.lexicon.sql.DataRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a {@link LookupServer} on localhost, checks its answers to good and bad requests, then has several
+ * clients send lookups over kept-alive connections and reports requests per second and the latency
+ * percentiles. Reads the verba.db in the directory named by the verba.test.db property, and is skipped if
+ * there is none.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class LookupServerTest {
+
+    private static final int    WORDS       = 200;
+    private static final int    REQUESTS    = 500;
+    private static final int[]  CLIENTS     = {1, 4, 16};
+
+    private static final JsonFormatter FORMATTER = new JsonFormatter();
+
+
+    public static void main(String[] args) throws Exception {
+        final File dbDir = new File(System.getProperty("verba.test.db", "generated"));
+        if (!new File(dbDir, "verba.db").isFile()){
+            System.out.println("LookupServerTest skipped: no verba.db in " + dbDir.getAbsolutePath());
+            return;
+        }
+        final List<String> words = sampleForms(dbDir);
+        final DataRepository repo = new DataRepository(dbDir.getAbsolutePath());
+        final LookupServer server = new LookupServer(repo, 0);
+        try {
+            repo.setReadConnections(Runtime.getRuntime().availableProcessors());
+            final List<String> expected = new ArrayList<String>(words.size());
+            for (String word: words){
+                expected.add("[" + repo.lookup(word).formatResult(word, FORMATTER) + "]");
+            }
+            server.start();
+            final String base = String.format("http://localhost:%d", server.getPort());
+            checkStatus(base + LookupServer.LOOKUP_PATH + "?q=" + URLEncoder.encode(words.get(0), "UTF-8"), "GET", 200);
+            checkStatus(base + LookupServer.LOOKUP_PATH + "foo?q=amo", "GET", 404);
+            checkStatus(base + LookupServer.LOOKUP_PATH, "GET", 400);
+            checkStatus(base + LookupServer.LOOKUP_PATH + "?q=%zz", "GET", 400);
+            checkStatus(base + LookupServer.LOOKUP_PATH + "?q=amo", "POST", 405);
+            for (int clients: CLIENTS){
+                run(base, words, expected, clients);
+            }
+        } finally {
+            server.stop(0);
+            repo.close();
+        }
+        System.out.println("LookupServerTest passed.");
+    }
+
+    private static List<String> sampleForms(File dbDir) throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        final Connection conn = DriverManager.getConnection("jdbc:sqlite:" + new File(dbDir, "verba.db").getAbsolutePath());
+        try {
+            final Statement statement = conn.createStatement();
+            final ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM forms");
+            final int step = Math.max(1, count.getInt(1) / WORDS);
+            count.close();
+            final ResultSet result = statement.executeQuery("SELECT form FROM forms WHERE _id % " + step + " = 0");
+            final List<String> words = new ArrayList<String>();
+            while (result.next() && words.size() < WORDS){
+                words.add(result.getString(1));
+            }
+            result.close();
+            statement.close();
+            if (words.isEmpty()) throw new AssertionError("No forms in " + dbDir);
+            return words;
+        } finally {
+            conn.close();
+        }
+    }
+
+    private static void checkStatus(String url, String method, int expected) throws IOException {
+        final HttpURLConnection http = (HttpURLConnection) new URL(url).openConnection();
+        http.setRequestMethod(method);
+        if ("POST".equals(method)){
+            http.setDoOutput(true);
+            final OutputStream out = http.getOutputStream();
+            out.write(new byte[]{'{', '}'});
+            out.close();
+        }
+        final int status = http.getResponseCode();
+        read(status < 400 ? http.getInputStream() : http.getErrorStream());
+        if (status != expected){
+            throw new AssertionError(String.format("%s %s: expected %d but was %d", method, url, expected, status));
+        }
+    }
+
+    /**
+     * Reads the body to its end, which lets HttpURLConnection reuse the connection
+     */
+    private static String read(InputStream in) throws IOException {
+        if (in == null) return "";
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0){
+            body.write(buffer, 0, n);
+        }
+        in.close();
+        return body.toString("UTF-8");
+    }
+
+    private static void run(final String base, final List<String> words, final List<String> expected, int clients)
+            throws Exception {
+        final long[][] latencies = new long[clients][REQUESTS];
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final List<Thread> threads = new ArrayList<Thread>(clients);
+        for (int c = 0; c < clients; c++){
+            final int client = c;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < REQUESTS; i++){
+                            final int w = (client * 31 + i) % words.size();
+                            final long begin = System.nanoTime();
+                            final HttpURLConnection http = (HttpURLConnection) new URL(base + LookupServer.LOOKUP_PATH
+                                    + "?q=" + URLEncoder.encode(words.get(w), "UTF-8")).openConnection();
+                            if (http.getResponseCode() != 200){
+                                read(http.getErrorStream());
+                                throw new AssertionError(words.get(w) + ": status " + http.getResponseCode());
+                            }
+                            final String body = read(http.getInputStream());
+                            latencies[client][i] = System.nanoTime() - begin;
+                            if (!expected.get(w).equals(body)){
+                                throw new AssertionError(words.get(w) + ": expected " + expected.get(w) + " but was " + body);
+                            }
+                        }
+                    } catch (Throwable t){
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            }, "client-" + c);
+            threads.add(thread);
+            thread.start();
+        }
+        final long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread: threads){
+            thread.join();
+        }
+        final double seconds = (System.nanoTime() - begin) / 1e9;
+        if (failure.get() != null) throw new AssertionError(failure.get());
+        final long[] all = new long[clients * REQUESTS];
+        for (int c = 0; c < clients; c++){
+            System.arraycopy(latencies[c], 0, all, c * REQUESTS, REQUESTS);
+        }
+        Arrays.sort(all);
+        System.out.println(String.format("%2d clients: %.0f requests/sec; latency p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                clients, all.length / seconds, all[all.length / 2] / 1e6, all[all.length * 99 / 100] / 1e6,
+                all[all.length - 1] / 1e6));
+    }
+}
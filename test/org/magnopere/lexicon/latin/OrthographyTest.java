@@ -0,0 +1,73 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.latin;
+
+/**
+ * Checks the rectification and folding of {@link Orthography}. Run by the ant test target; exits non-zero on
+ * the first failure.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class OrthographyTest {
+
+    public static void main(String[] args) {
+        checkRectify("Vir", "uir");
+        checkRectify("IVLIVS", "iulius");
+        checkRectify("C\u0101esar", "c\u0101esar");
+
+        checkNormalize("caesar", "caesar");
+        checkNormalize("C\u00e6s\u0103r", "caesar");
+        checkNormalize("\u0152DIPVS", "oedipus");
+        checkNormalize("am\u0101v\u012b", "amaui");
+        // combining marks written separately
+        checkNormalize("ama\u0304ui\u0304", "amaui");
+        // ligatures with a macron or an acute are written out as the bare ones are
+        checkNormalize("C\u01e3sar", "caesar");
+        checkNormalize("\u01e2TAS", "aetas");
+        checkNormalize("\u01fdtas", "aetas");
+        checkNormalize("\u01fcTAS", "aetas");
+        System.out.println("OrthographyTest passed.");
+    }
+
+    private static void checkRectify(String text, String expected){
+        check("rectify", text, expected, Orthography.rectify(text));
+    }
+
+    private static void checkNormalize(String text, String expected){
+        check("normalize", text, expected, Orthography.normalize(text));
+    }
+
+    private static void check(String conversion, String text, String expected, String actual){
+        if (!expected.equals(actual)){
+            throw new AssertionError(String.format("%s(\"%s\"): expected \"%s\" but was \"%s\"", conversion, text,
+                    expected, actual));
+        }
+    }
+}
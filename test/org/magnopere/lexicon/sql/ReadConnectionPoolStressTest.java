@@ -0,0 +1,164 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Roger Grantham.
+ * Portions created by Roger Grantham are
+ * Copyright (C) 2011. All Rights Reserved.
+ *
+ * Contributor(s): Roger Grantham
+ *
+ * Alternatively, the contents of this file may be used under the terms
+ * of the GNU Public License license (the  "[GPL] License"), in which case the
+ * provisions of [GPL] License are applicable instead of those
+ * above.  If you wish to allow use of your version of this file only
+ * under the terms of the [GPL] License and not to allow others to use
+ * your version of this file under the MPL, indicate your decision by
+ * deleting  the provisions above and replace  them with the notice and
+ * other provisions required by the [GPL] License.  If you do not delete
+ * the provisions above, a recipient may use your version of this file
+ * under either the MPL or the [GPL] License.
+ */
+
+package org.magnopere.lexicon.sql;
+
+import org.magnopere.lexicon.JsonFormatter;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Looks words up from a growing number of threads sharing one repository and checks every result against
+ * the one found on a single thread, first against the read connection pool alone, then through the caches.
+ * Reports lookups per second for each number of threads. Reads the verba.db in the directory named by the
+ * verba.test.db property, and is skipped if there is none.
+ * @author Roger Grantham
+ * @since Oct 17, 2026
+ */
+public class ReadConnectionPoolStressTest {
+
+    private static final int    WORDS       = 2000;
+    private static final int    ROUNDS      = 3;
+    private static final int[]  THREADS     = {1, 2, 4, 8};
+
+    private static final JsonFormatter FORMATTER = new JsonFormatter();
+
+
+    public static void main(String[] args) throws Exception {
+        final File dbDir = new File(System.getProperty("verba.test.db", "generated"));
+        if (!new File(dbDir, "verba.db").isFile()){
+            System.out.println("ReadConnectionPoolStressTest skipped: no verba.db in " + dbDir.getAbsolutePath());
+            return;
+        }
+        final List<String> words = sampleForms(dbDir);
+        final List<String> expected = new ArrayList<String>(words.size());
+        final DataRepository single = new DataRepository(dbDir.getAbsolutePath());
+        try {
+            single.setCacheWeights(0, 0);
+            for (String word: words){
+                expected.add(single.lookup(word).formatResult(word, FORMATTER));
+            }
+        } finally {
+            single.close();
+        }
+        System.out.println(String.format("%d words, %d rounds per thread; %d processors.", words.size(), ROUNDS,
+                Runtime.getRuntime().availableProcessors()));
+        for (boolean cached: new boolean[]{false, true}){
+            for (int threads: THREADS){
+                run(dbDir, words, expected, threads, cached);
+            }
+        }
+        System.out.println("ReadConnectionPoolStressTest passed.");
+    }
+
+    /**
+     * @return forms taken at even intervals from the forms table, so that every run looks up the same words
+     */
+    private static List<String> sampleForms(File dbDir) throws Exception {
+        final DataRepository repo = new DataRepository(dbDir.getAbsolutePath());
+        try {
+            final Statement statement = repo.getConnection().createStatement();
+            try {
+                final ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM forms");
+                final int step = Math.max(1, count.getInt(1) / WORDS);
+                count.close();
+                final ResultSet result = statement.executeQuery("SELECT form FROM forms WHERE _id % " + step + " = 0");
+                final List<String> words = new ArrayList<String>();
+                while (result.next() && words.size() < WORDS){
+                    words.add(result.getString(1));
+                }
+                result.close();
+                if (words.isEmpty()) throw new AssertionError("No forms in " + dbDir);
+                return words;
+            } finally {
+                statement.close();
+            }
+        } finally {
+            repo.close();
+        }
+    }
+
+    private static void run(File dbDir, final List<String> words, final List<String> expected, int threads,
+                            boolean cached) throws Exception {
+        final DataRepository repo = new DataRepository(dbDir.getAbsolutePath());
+        try {
+            repo.setReadConnections(threads);
+            if (!cached) repo.setCacheWeights(0, 0);
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicInteger mismatches = new AtomicInteger();
+            final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+            final List<Thread> workers = new ArrayList<Thread>(threads);
+            for (int t = 0; t < threads; t++){
+                final int offset = t * words.size() / threads;
+                final Thread worker = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                            for (int i = 0; i < ROUNDS * words.size(); i++){
+                                // each thread starts at its own place in the list, so they do not move in step
+                                final int w = (offset + i) % words.size();
+                                final String word = words.get(w);
+                                if (!expected.get(w).equals(repo.lookup(word).formatResult(word, FORMATTER))){
+                                    mismatches.incrementAndGet();
+                                }
+                            }
+                        } catch (Throwable t){
+                            failure.compareAndSet(null, t);
+                        }
+                    }
+                }, "stress-" + t);
+                workers.add(worker);
+                worker.start();
+            }
+            final long begin = System.nanoTime();
+            start.countDown();
+            for (Thread worker: workers){
+                worker.join();
+            }
+            final double seconds = (System.nanoTime() - begin) / 1e9;
+            if (failure.get() != null) throw new AssertionError(failure.get());
+            if (mismatches.get() > 0){
+                throw new AssertionError(String.format("%d of %d lookups on %d threads differed from the single-threaded result",
+                        mismatches.get(), threads * ROUNDS * words.size(), threads));
+            }
+            System.out.println(String.format("%-6s %d threads: %.0f lookups/sec", cached ? "cached" : "pool", threads,
+                    threads * ROUNDS * words.size() / seconds));
+        } finally {
+            repo.close();
+        }
+    }
+}